@@ -0,0 +1,197 @@
+package com.transportes.benchmarks;
+
+import com.transportes.billing.entity.CostoSolicitud;
+import com.transportes.billing.entity.TarifaBase;
+import com.transportes.billing.entity.TarifaCombustible;
+import com.transportes.billing.entity.TarifaEstadia;
+import com.transportes.billing.entity.TarifaPesoVolumen;
+import com.transportes.billing.repository.CostoSolicitudRepository;
+import com.transportes.billing.repository.CostoTramoRepository;
+import com.transportes.billing.repository.TarifaBaseRepository;
+import com.transportes.billing.repository.TarifaCombustibleRepository;
+import com.transportes.billing.repository.TarifaEstadiaRepository;
+import com.transportes.billing.repository.TarifaPesoVolumenRepository;
+import com.transportes.billing.service.CalculadoraCostos;
+import com.transportes.billing.service.CatalogoTarifas;
+import com.transportes.billing.service.CostoService;
+import com.transportes.billing.service.TarifasVigentes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cálculo de costos de billing-service para rutas de 1 a 50 tramos: la cotización completa de
+ * CostoService (tarifas en memoria, multiplicador y armado de entidades) y el desglose de
+ * CalculadoraCostos en punto fijo y con BigDecimal.
+ * Antes de medir se verifica que ambos desgloses den exactamente lo mismo sobre entradas aleatorias.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CostoBenchmark {
+
+    private static final int CASOS_EQUIVALENCIA = 20_000;
+
+    @Param({"1", "5", "10", "25", "50"})
+    private int cantidadTramos;
+
+    private CostoService costoService;
+    private List<CostoService.TramoInfo> tramos;
+    private TarifasVigentes.Base tarifaBase;
+    private TarifasVigentes.Combustible tarifaCombustible;
+    private BigDecimal multiplicador;
+    private BigDecimal costoEstadia;
+
+    private final BigDecimal peso = new BigDecimal("12500.00");
+    private final BigDecimal volumen = new BigDecimal("33.20");
+
+    @Setup
+    public void preparar() {
+        Random random = new Random(42);
+        verificarEquivalencia(random);
+
+        TarifaBase base = TarifaBase.builder()
+                .id(1L).nombre("Tarifa base").activa(true).fechaVigenciaDesde(LocalDate.of(2025, 1, 1))
+                .costoFijoGestion(new BigDecimal("15000.00"))
+                .costoAdicionalPorTramo(new BigDecimal("2500.00"))
+                .build();
+        TarifaCombustible combustible = TarifaCombustible.builder()
+                .id(1L).activa(true).fechaVigenciaDesde(LocalDate.of(2025, 1, 1))
+                .precioPorLitro(new BigDecimal("1185.50"))
+                .build();
+        TarifaEstadia estadia = TarifaEstadia.builder()
+                .id(1L).activa(true).fechaVigenciaDesde(LocalDate.of(2025, 1, 1))
+                .costoPorDia(new BigDecimal("8000.00"))
+                .costoPorHora(new BigDecimal("350.00"))
+                .build();
+        List<TarifaPesoVolumen> pesoVolumen = List.of(
+                banda(1L, "0", "5000", "0", "15", "1.00"),
+                banda(2L, "5000.01", "15000", "0", "40", "1.25"),
+                banda(3L, "15000.01", "30000", "0", "70", "1.60"),
+                banda(4L, "30000.01", "45000", "0", "90", "2.10"));
+
+        TarifaBaseRepository tarifaBaseRepository = Stubs.repositorio(TarifaBaseRepository.class, Map.of(
+                "findFirstByActivaTrueOrderByFechaVigenciaDesdeDesc", args -> Optional.of(base),
+                "getReferenceById", args -> base));
+        TarifaCombustibleRepository tarifaCombustibleRepository = Stubs.repositorio(TarifaCombustibleRepository.class, Map.of(
+                "findFirstByActivaTrueOrderByFechaVigenciaDesdeDesc", args -> Optional.of(combustible),
+                "getReferenceById", args -> combustible));
+        TarifaEstadiaRepository tarifaEstadiaRepository = Stubs.repositorio(TarifaEstadiaRepository.class, Map.of(
+                "findFirstByActivaTrueOrderByFechaVigenciaDesdeDesc", args -> Optional.of(estadia),
+                "getReferenceById", args -> estadia));
+        TarifaPesoVolumenRepository tarifaPesoVolumenRepository = Stubs.repositorio(TarifaPesoVolumenRepository.class, Map.of(
+                "findByActivaTrueOrderByFechaVigenciaDesdeDesc", args -> pesoVolumen));
+
+        CatalogoTarifas catalogoTarifas = new CatalogoTarifas(tarifaBaseRepository, tarifaCombustibleRepository,
+                tarifaEstadiaRepository, tarifaPesoVolumenRepository, Stubs.sinTransacciones());
+        catalogoTarifas.recargar();
+        costoService = new CostoService(tarifaBaseRepository, tarifaCombustibleRepository, tarifaEstadiaRepository,
+                Stubs.repositorio(CostoSolicitudRepository.class, Map.of()),
+                Stubs.repositorio(CostoTramoRepository.class, Map.of()),
+                catalogoTarifas);
+
+        TarifasVigentes vigentes = catalogoTarifas.obtener();
+        tarifaBase = vigentes.base();
+        tarifaCombustible = vigentes.combustible();
+        multiplicador = vigentes.multiplicadorPesoVolumen(peso, volumen);
+        costoEstadia = new BigDecimal("16000.00");
+
+        // Tramos como los persiste logistics-service (distancias y tarifas del camión con 2 decimales)
+        tramos = new ArrayList<>();
+        for (int i = 0; i < cantidadTramos; i++) {
+            tramos.add(new CostoService.TramoInfo((long) i + 1,
+                    decimal(random, 5, 900, 2),
+                    decimal(random, 80, 400, 2),
+                    decimal(random, 2, 6, 2)));
+        }
+    }
+
+    @Benchmark
+    public CostoSolicitud cotizarCostoEstimado() {
+        return costoService.cotizarCostoEstimado(1L, tramos, peso, volumen, 2);
+    }
+
+    @Benchmark
+    public CalculadoraCostos.Desglose desglosarPuntoFijo() {
+        return CalculadoraCostos.desglosar(tramos, tarifaBase, tarifaCombustible, multiplicador,
+                costoEstadia, BigDecimal.ZERO);
+    }
+
+    @Benchmark
+    public CalculadoraCostos.Desglose desglosarBigDecimal() {
+        return CalculadoraCostos.desglosarDecimal(tramos, tarifaBase, tarifaCombustible, multiplicador,
+                costoEstadia, BigDecimal.ZERO);
+    }
+
+    /**
+     * Compara el desglose en punto fijo con el de BigDecimal (valor y escala) sobre entradas
+     * aleatorias, incluidas algunas con más decimales que la escala fija o valores que no
+     * entran en un long, que deben resolverse con el cálculo de respaldo
+     */
+    static void verificarEquivalencia(Random random) {
+        for (int caso = 0; caso < CASOS_EQUIVALENCIA; caso++) {
+            boolean grande = random.nextInt(50) == 0;
+            List<CostoService.TramoInfo> tramos = new ArrayList<>();
+            int cantidad = 1 + random.nextInt(50);
+            for (int i = 0; i < cantidad; i++) {
+                tramos.add(new CostoService.TramoInfo((long) i,
+                        decimal(random, 0.001, grande ? 1e9 : 2_000, random.nextInt(9)),
+                        decimal(random, 1, grande ? 1e9 : 500, random.nextInt(3)),
+                        decimal(random, 0.5, 8, 1 + random.nextInt(3))));
+            }
+            TarifasVigentes.Base base = new TarifasVigentes.Base(1L,
+                    decimal(random, 0, 50_000, random.nextInt(3)),
+                    random.nextBoolean() ? decimal(random, 0, 5_000, random.nextInt(3)) : null);
+            TarifasVigentes.Combustible combustible = new TarifasVigentes.Combustible(1L,
+                    decimal(random, 100, 3_000, random.nextInt(3)));
+            BigDecimal multiplicador = decimal(random, 0.5, 3, random.nextInt(3));
+            BigDecimal estadia = decimal(random, 0, 100_000, 2);
+            BigDecimal adicionales = random.nextBoolean() ? BigDecimal.ZERO : decimal(random, 0, 10_000, random.nextInt(3));
+
+            CalculadoraCostos.Desglose fijo = CalculadoraCostos.desglosar(
+                    tramos, base, combustible, multiplicador, estadia, adicionales);
+            CalculadoraCostos.Desglose referencia = CalculadoraCostos.desglosarDecimal(
+                    tramos, base, combustible, multiplicador, estadia, adicionales);
+            if (!fijo.equals(referencia)) {
+                throw new IllegalStateException("El desglose en punto fijo difiere del de BigDecimal en el caso " + caso
+                        + ": " + fijo + " <> " + referencia);
+            }
+        }
+    }
+
+    private static BigDecimal decimal(Random random, double minimo, double maximo, int escala) {
+        return BigDecimal.valueOf(minimo + random.nextDouble() * (maximo - minimo))
+                .setScale(escala, RoundingMode.HALF_UP);
+    }
+
+    private static TarifaPesoVolumen banda(Long id, String pesoMin, String pesoMax,
+                                           String volumenMin, String volumenMax, String multiplicador) {
+        return TarifaPesoVolumen.builder()
+                .id(id).activa(true).fechaVigenciaDesde(LocalDate.of(2025, 1, 1))
+                .pesoMinimoKg(new BigDecimal(pesoMin)).pesoMaximoKg(new BigDecimal(pesoMax))
+                .volumenMinimoM3(new BigDecimal(volumenMin)).volumenMaximoM3(new BigDecimal(volumenMax))
+                .multiplicadorCosto(new BigDecimal(multiplicador))
+                .build();
+    }
+}
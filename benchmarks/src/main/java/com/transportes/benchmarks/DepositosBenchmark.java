@@ -0,0 +1,166 @@
+package com.transportes.benchmarks;
+
+import com.transportes.logistics.client.OsrmClient;
+import com.transportes.logistics.entity.Deposito;
+import com.transportes.logistics.repository.DepositoRepository;
+import com.transportes.logistics.service.DistanciasHaversine;
+import com.transportes.logistics.service.IndiceDepositos;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.invoke.MethodHandle;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Selección de depósitos candidatos para una ruta (la que hace PlanificadorRutas para RutaService)
+ * sobre 10 a 100.000 depósitos: búsqueda de los k más cercanos en IndiceDepositos frente al
+ * recorrido completo ordenando por Haversine, y la distancia desde un punto a todos los depósitos:
+ * calcularDistanciaHaversine de OsrmClient par por par frente a DistanciasHaversine (arreglos
+ * paralelos, con y sin conversión a km).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DepositosBenchmark {
+
+    private static final MethodHandle HAVERSINE = Stubs.metodoPrivado(OsrmClient.class, "calcularDistanciaHaversine",
+            double.class, double.class, double.class, double.class, double.class);
+
+    private static final int CONSULTAS = 256; // potencia de 2
+    private static final int CANDIDATOS = 5;  // rutas.depositos-candidatos por defecto
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    private int cantidadDepositos;
+
+    private List<Deposito> depositos;
+    private IndiceDepositos indiceDepositos;
+    private DistanciasHaversine distancias;
+    private double[] salida;
+    private OsrmClient osrmClient;
+    private BigDecimal[] latitudes;
+    private BigDecimal[] longitudes;
+    private int siguiente;
+
+    @Setup
+    public void preparar() {
+        Random random = new Random(42);
+        depositos = new ArrayList<>(cantidadDepositos);
+        for (int i = 0; i < cantidadDepositos; i++) {
+            depositos.add(Deposito.builder()
+                    .id((long) i + 1)
+                    .codigo("DEP-" + (i + 1))
+                    .nombre("Depósito " + (i + 1))
+                    .direccion("Dirección " + (i + 1))
+                    .latitud(latitud(random))
+                    .longitud(longitud(random))
+                    .activo(true)
+                    .build());
+        }
+
+        indiceDepositos = new IndiceDepositos(Stubs.repositorio(DepositoRepository.class, Map.of(
+                "findByActivoTrue", args -> depositos)));
+        indiceDepositos.reconstruir();
+        double[] lats = new double[cantidadDepositos];
+        double[] lons = new double[cantidadDepositos];
+        for (int i = 0; i < cantidadDepositos; i++) {
+            lats[i] = depositos.get(i).getLatitud().doubleValue();
+            lons[i] = depositos.get(i).getLongitud().doubleValue();
+        }
+        distancias = new DistanciasHaversine(lats, lons);
+        salida = new double[cantidadDepositos];
+        osrmClient = OsrmClientBenchmark.crearOsrmClient();
+
+        latitudes = new BigDecimal[CONSULTAS];
+        longitudes = new BigDecimal[CONSULTAS];
+        for (int i = 0; i < CONSULTAS; i++) {
+            latitudes[i] = latitud(random);
+            longitudes[i] = longitud(random);
+        }
+    }
+
+    @Benchmark
+    public List<Deposito> masCercanosIndice() {
+        int i = siguiente++ & (CONSULTAS - 1);
+        return indiceDepositos.masCercanos(latitudes[i], longitudes[i], CANDIDATOS);
+    }
+
+    /**
+     * Selección original de RutaService: todos los depósitos activos ordenados por Haversine
+     */
+    @Benchmark
+    public List<Deposito> masCercanosRecorrido() {
+        int i = siguiente++ & (CONSULTAS - 1);
+        double lat = latitudes[i].doubleValue();
+        double lon = longitudes[i].doubleValue();
+        return depositos.stream()
+                .sorted(Comparator.comparingDouble(d -> haversine(lat, lon,
+                        d.getLatitud().doubleValue(), d.getLongitud().doubleValue())))
+                .limit(CANDIDATOS)
+                .toList();
+    }
+
+    @Benchmark
+    public void distanciasHaversine(Blackhole blackhole) {
+        int i = siguiente++ & (CONSULTAS - 1);
+        double lat = latitudes[i].doubleValue();
+        double lon = longitudes[i].doubleValue();
+        for (Deposito deposito : depositos) {
+            blackhole.consume(haversine(lat, lon,
+                    deposito.getLatitud().doubleValue(), deposito.getLongitud().doubleValue()));
+        }
+    }
+
+    @Benchmark
+    public double[] distanciasKernel() {
+        int i = siguiente++ & (CONSULTAS - 1);
+        distancias.distanciasKm(latitudes[i].doubleValue(), longitudes[i].doubleValue(), salida);
+        return salida;
+    }
+
+    /**
+     * Solo la cuerda al cuadrado, suficiente para comparar distancias (sin asin por elemento)
+     */
+    @Benchmark
+    public double[] cuerdasKernel() {
+        int i = siguiente++ & (CONSULTAS - 1);
+        distancias.cuerdasCuadradas(latitudes[i].doubleValue(), longitudes[i].doubleValue(), salida);
+        return salida;
+    }
+
+    private double haversine(double lat1, double lon1, double lat2, double lon2) {
+        try {
+            return (double) HAVERSINE.invokeExact(osrmClient, lat1, lon1, lat2, lon2);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Coordenadas dentro de Argentina, con la escala de las columnas de depósito
+    static BigDecimal latitud(Random random) {
+        return BigDecimal.valueOf(-55 + random.nextDouble() * 33).setScale(8, RoundingMode.HALF_UP);
+    }
+
+    static BigDecimal longitud(Random random) {
+        return BigDecimal.valueOf(-73 + random.nextDouble() * 20).setScale(8, RoundingMode.HALF_UP);
+    }
+}
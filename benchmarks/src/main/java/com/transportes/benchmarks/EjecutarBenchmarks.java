@@ -0,0 +1,30 @@
+package com.transportes.benchmarks;
+
+import org.openjdk.jmh.Main;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Punto de entrada de benchmarks.jar. Acepta las mismas opciones que JMH, pero por defecto guarda
+ * los resultados en JSON (jmh-<versión>.json) para poder compararlos entre versiones.
+ */
+public final class EjecutarBenchmarks {
+
+    private EjecutarBenchmarks() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> argumentos = new ArrayList<>(List.of(args));
+        if (!argumentos.contains("-rf")) {
+            argumentos.add("-rf");
+            argumentos.add("json");
+        }
+        if (!argumentos.contains("-rff")) {
+            String version = EjecutarBenchmarks.class.getPackage().getImplementationVersion();
+            argumentos.add("-rff");
+            argumentos.add("jmh-" + (version != null ? version : "dev") + ".json");
+        }
+        Main.main(argumentos.toArray(String[]::new));
+    }
+}
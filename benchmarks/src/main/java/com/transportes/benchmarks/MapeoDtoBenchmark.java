@@ -0,0 +1,144 @@
+package com.transportes.benchmarks;
+
+import com.transportes.billing.controller.TarifaBaseController;
+import com.transportes.billing.dto.TarifaBaseDTO;
+import com.transportes.billing.entity.TarifaBase;
+import com.transportes.clients.controller.ContenedorController;
+import com.transportes.clients.dto.ContenedorDTO;
+import com.transportes.clients.dto.SolicitudDTO;
+import com.transportes.clients.entity.Cliente;
+import com.transportes.clients.entity.Contenedor;
+import com.transportes.clients.entity.Solicitud;
+import com.transportes.clients.entity.Ubicacion;
+import com.transportes.clients.mapper.ClienteMapperImpl;
+import com.transportes.clients.mapper.ContenedorMapperImpl;
+import com.transportes.clients.mapper.SolicitudMapper;
+import com.transportes.clients.mapper.SolicitudMapperImpl;
+import com.transportes.clients.mapper.UbicacionMapperImpl;
+import com.transportes.logistics.controller.DepositoController;
+import com.transportes.logistics.dto.DepositoDTO;
+import com.transportes.logistics.entity.Deposito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversión de entidades a DTO: el mapper MapStruct SolicitudMapper.toDTO (con sus mappers de
+ * cliente, contenedor y ubicación) y los helpers privados convertirADTO de los controladores.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MapeoDtoBenchmark {
+
+    private static final MethodHandle CONTENEDOR_A_DTO = Stubs.metodoPrivado(
+            ContenedorController.class, "convertirADTO", ContenedorDTO.class, Contenedor.class);
+    private static final MethodHandle DEPOSITO_A_DTO = Stubs.metodoPrivado(
+            DepositoController.class, "convertirADTO", DepositoDTO.class, Deposito.class);
+    private static final MethodHandle TARIFA_BASE_A_DTO = Stubs.metodoPrivado(
+            TarifaBaseController.class, "convertirADTO", TarifaBaseDTO.class, TarifaBase.class);
+
+    private SolicitudMapper solicitudMapper;
+    private ContenedorController contenedorController;
+    private DepositoController depositoController;
+    private TarifaBaseController tarifaBaseController;
+
+    private Solicitud solicitud;
+    private Deposito deposito;
+    private TarifaBase tarifaBase;
+
+    @Setup
+    public void preparar() {
+        // Mismo cableado que hace Spring con los @Autowired del mapper generado
+        SolicitudMapperImpl mapper = new SolicitudMapperImpl();
+        Stubs.inyectar(mapper, "clienteMapper", new ClienteMapperImpl());
+        Stubs.inyectar(mapper, "contenedorMapper", new ContenedorMapperImpl());
+        Stubs.inyectar(mapper, "ubicacionMapper", new UbicacionMapperImpl());
+        solicitudMapper = mapper;
+
+        // convertirADTO no usa las dependencias de los controladores
+        contenedorController = new ContenedorController(null);
+        depositoController = new DepositoController(null, null, null);
+        tarifaBaseController = new TarifaBaseController(null, null);
+
+        Cliente cliente = Cliente.builder()
+                .id(1L).nombre("Ana").apellido("Pérez").email("ana.perez@example.com")
+                .telefono("+54 351 555-0101").direccion("Av. Colón 1234, Córdoba")
+                .keycloakUserId("3f1c2a9e-0000-4000-8000-000000000001")
+                .fechaRegistro(LocalDateTime.of(2025, 3, 1, 10, 0)).activo(true)
+                .build();
+        Contenedor contenedor = Contenedor.builder()
+                .id(10L).codigo("CONT-000010").pesoKg(new BigDecimal("12500.00")).volumenM3(new BigDecimal("33.20"))
+                .altoM(new BigDecimal("2.59")).anchoM(new BigDecimal("2.44")).largoM(new BigDecimal("6.06"))
+                .descripcion("Contenedor de 20 pies").cliente(cliente)
+                .fechaCreacion(LocalDateTime.of(2025, 3, 2, 9, 30))
+                .build();
+        solicitud = Solicitud.builder()
+                .id(100L).numeroSolicitud("SOL-20250302-0100").contenedor(contenedor).cliente(cliente)
+                .ubicacionOrigen(ubicacion(1000L, Ubicacion.TipoUbicacion.ORIGEN, "Puerto de Buenos Aires",
+                        "-34.60370000", "-58.38160000"))
+                .ubicacionDestino(ubicacion(1001L, Ubicacion.TipoUbicacion.DESTINO, "Parque industrial Córdoba",
+                        "-31.42010000", "-64.18880000"))
+                .estado(Solicitud.EstadoSolicitud.PROGRAMADA)
+                .costoEstimado(new BigDecimal("845320.75")).tiempoEstimadoHoras(14).rutaId(55L)
+                .fechaCreacion(LocalDateTime.of(2025, 3, 2, 9, 35))
+                .fechaUltimaActualizacion(LocalDateTime.of(2025, 3, 2, 11, 0))
+                .observaciones("Entregar en horario comercial")
+                .build();
+        deposito = Deposito.builder()
+                .id(7L).codigo("DEP-0007").nombre("Depósito Rosario").direccion("Ruta 9 km 280, Rosario")
+                .latitud(new BigDecimal("-32.94420000")).longitud(new BigDecimal("-60.65050000"))
+                .capacidadMaximaContenedores(120).contenedoresActuales(35).activo(true)
+                .build();
+        tarifaBase = TarifaBase.builder()
+                .id(1L).nombre("Tarifa base 2025").descripcion("Gestión y tramo adicional")
+                .costoFijoGestion(new BigDecimal("15000.00")).costoAdicionalPorTramo(new BigDecimal("2500.00"))
+                .fechaVigenciaDesde(LocalDate.of(2025, 1, 1)).activa(true)
+                .fechaCreacion(LocalDateTime.of(2024, 12, 20, 8, 0))
+                .build();
+    }
+
+    @Benchmark
+    public SolicitudDTO solicitudMapperToDTO() {
+        return solicitudMapper.toDTO(solicitud);
+    }
+
+    @Benchmark
+    public ContenedorDTO contenedorConvertirADTO() throws Throwable {
+        return (ContenedorDTO) CONTENEDOR_A_DTO.invokeExact(contenedorController, solicitud.getContenedor());
+    }
+
+    @Benchmark
+    public DepositoDTO depositoConvertirADTO() throws Throwable {
+        return (DepositoDTO) DEPOSITO_A_DTO.invokeExact(depositoController, deposito);
+    }
+
+    @Benchmark
+    public TarifaBaseDTO tarifaBaseConvertirADTO() throws Throwable {
+        return (TarifaBaseDTO) TARIFA_BASE_A_DTO.invokeExact(tarifaBaseController, tarifaBase);
+    }
+
+    private static Ubicacion ubicacion(Long id, Ubicacion.TipoUbicacion tipo, String direccion,
+                                       String latitud, String longitud) {
+        return Ubicacion.builder()
+                .id(id).tipo(tipo).direccion(direccion)
+                .latitud(new BigDecimal(latitud)).longitud(new BigDecimal(longitud))
+                .build();
+    }
+}
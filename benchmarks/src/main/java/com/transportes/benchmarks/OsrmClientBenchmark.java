@@ -0,0 +1,74 @@
+package com.transportes.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.transportes.logistics.client.OsrmCircuitBreaker;
+import com.transportes.logistics.client.OsrmClient;
+import com.transportes.logistics.client.OsrmTramoCache;
+import com.transportes.logistics.client.OsrmTransporte;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Estimación de OsrmClient cuando OSRM no responde (Haversine y 60 km/h). El log WARN de cada
+ * estimación queda deshabilitado por logback.xml, así que se mide solo el cálculo y el armado
+ * de la respuesta.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OsrmClientBenchmark {
+
+    private static final int TRAYECTOS = 1024; // potencia de 2
+
+    private OsrmClient osrmClient;
+    private BigDecimal[][] trayectos;
+    private int siguiente;
+
+    @Setup
+    public void preparar() {
+        Random random = new Random(42);
+        osrmClient = crearOsrmClient();
+        trayectos = new BigDecimal[TRAYECTOS][];
+        for (int i = 0; i < TRAYECTOS; i++) {
+            trayectos[i] = new BigDecimal[]{
+                    DepositosBenchmark.latitud(random), DepositosBenchmark.longitud(random),
+                    DepositosBenchmark.latitud(random), DepositosBenchmark.longitud(random)};
+        }
+    }
+
+    @Benchmark
+    public OsrmClient.RouteResponse calcularRutaFallback() {
+        BigDecimal[] t = trayectos[siguiente++ & (TRAYECTOS - 1)];
+        return osrmClient.calcularRutaFallback(t[0], t[1], t[2], t[3]);
+    }
+
+    /**
+     * OsrmClient con caché solo en memoria (sin persistencia); la estimación no consulta la caché
+     * ni usa el transporte HTTP
+     */
+    static OsrmClient crearOsrmClient() {
+        SimpleMeterRegistry registro = new SimpleMeterRegistry();
+        return new OsrmClient(
+                new OsrmTramoCache(10_000, Duration.ofHours(24), 4, Duration.ofSeconds(30), null, registro),
+                new OsrmTransporte(Duration.ofSeconds(1), Duration.ofSeconds(2), Duration.ofMillis(1500),
+                        Duration.ofSeconds(3), 1, false, Duration.ofMillis(150), new ObjectMapper(),
+                        new OsrmCircuitBreaker(5, Duration.ofSeconds(10), Duration.ofMinutes(5), registro), registro));
+    }
+}
@@ -0,0 +1,95 @@
+package com.transportes.benchmarks;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Utilidades para armar los servicios sin levantar Spring ni la base de datos
+ */
+final class Stubs {
+
+    private Stubs() {
+    }
+
+    /**
+     * Repositorio en memoria: cada método responde con la función registrada para su nombre,
+     * el resto lanza UnsupportedOperationException
+     */
+    static <T> T repositorio(Class<T> tipo, Map<String, Function<Object[], Object>> respuestas) {
+        InvocationHandler handler = (proxy, metodo, args) -> {
+            if (metodo.getDeclaringClass() == Object.class) {
+                return switch (metodo.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> tipo.getSimpleName() + " (stub)";
+                };
+            }
+            Function<Object[], Object> respuesta = respuestas.get(metodo.getName());
+            if (respuesta == null) {
+                throw new UnsupportedOperationException(tipo.getSimpleName() + "." + metodo.getName() + " no disponible en benchmarks");
+            }
+            return respuesta.apply(args);
+        };
+        return tipo.cast(Proxy.newProxyInstance(tipo.getClassLoader(), new Class<?>[]{tipo}, handler));
+    }
+
+    /**
+     * Administrador de transacciones que no abre ninguna: los repositorios en memoria no las necesitan
+     */
+    static PlatformTransactionManager sinTransacciones() {
+        return new AbstractPlatformTransactionManager() {
+            @Override
+            protected Object doGetTransaction() {
+                return new Object();
+            }
+
+            @Override
+            protected void doBegin(Object transaction, TransactionDefinition definition) {
+            }
+
+            @Override
+            protected void doCommit(DefaultTransactionStatus status) {
+            }
+
+            @Override
+            protected void doRollback(DefaultTransactionStatus status) {
+            }
+        };
+    }
+
+    /**
+     * Handle a un método privado de instancia (los helpers convertirADTO, Haversine, ...)
+     */
+    static MethodHandle metodoPrivado(Class<?> clase, String nombre, Class<?> retorno, Class<?>... parametros) {
+        try {
+            return MethodHandles.privateLookupIn(clase, MethodHandles.lookup())
+                    .findVirtual(clase, nombre, MethodType.methodType(retorno, parametros));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("No se encontró " + clase.getSimpleName() + "." + nombre, e);
+        }
+    }
+
+    /**
+     * Asigna un campo privado (dependencias que Spring inyecta con @Autowired)
+     */
+    static void inyectar(Object destino, String campo, Object valor) {
+        try {
+            Field field = destino.getClass().getDeclaredField(campo);
+            field.setAccessible(true);
+            field.set(destino, valor);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("No se pudo asignar " + campo, e);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.transportes.billing.controller;
 
+import com.transportes.billing.dto.CalcularCostoLoteRequest;
 import com.transportes.billing.dto.CalcularCostoRequest;
 import com.transportes.billing.dto.CostoSolicitudDTO;
 import com.transportes.billing.entity.CostoSolicitud;
@@ -53,24 +54,58 @@ public class CostoController {
         return ResponseEntity.status(HttpStatus.CREATED).body(convertirADTO(costo));
     }
 
+    @Operation(summary = "Calcular costo estimado de varias alternativas de ruta",
+               description = "Calcula en una sola llamada el costo de cada alternativa, en el mismo orden. "
+                       + "Solo se guardan si persistir=true")
+    @PreAuthorize("hasRole('OPERADOR')")
+    @PostMapping("/calcular-estimado/lote")
+    public ResponseEntity<List<CostoSolicitudDTO>> calcularCostosEstimadosLote(
+            @Valid @RequestBody CalcularCostoLoteRequest request) {
+
+        List<CostoService.AlternativaInfo> alternativas = request.getAlternativas().stream()
+                .map(a -> new CostoService.AlternativaInfo(
+                        a.getTramos().stream()
+                                .map(t -> new CostoService.TramoInfo(
+                                        t.getTramoId(),
+                                        t.getDistanciaKm(),
+                                        t.getCostoBasePorKm(),
+                                        t.getConsumoKmLitro()
+                                ))
+                                .collect(Collectors.toList()),
+                        a.getDiasEstadiaEstimados()
+                ))
+                .collect(Collectors.toList());
+
+        // Sin persistir es una cotización de solo lectura: no escribe en la base de datos
+        boolean persistir = Boolean.TRUE.equals(request.getPersistir());
+        List<CostoSolicitud> costos = persistir
+                ? costoService.calcularCostosEstimadosLote(
+                        request.getSolicitudId(),
+                        alternativas,
+                        request.getPesoTotalKg(),
+                        request.getVolumenTotalM3())
+                : costoService.cotizarCostosEstimados(
+                        request.getSolicitudId(),
+                        alternativas,
+                        request.getPesoTotalKg(),
+                        request.getVolumenTotalM3());
+
+        List<CostoSolicitudDTO> costosDTO = costos.stream()
+                .map(this::convertirADTO)
+                .collect(Collectors.toList());
+
+        return ResponseEntity.status(persistir ? HttpStatus.CREATED : HttpStatus.OK).body(costosDTO);
+    }
+
     @Operation(summary = "Calcular costo real/final de una solicitud")
     @PreAuthorize("hasRole('OPERADOR')")
     @PostMapping("/calcular-real")
     public ResponseEntity<CostoSolicitudDTO> calcularCostoReal(
             @Valid @RequestBody CalcularCostoRequest request) {
 
-        List<CostoService.TramoInfo> tramosInfo = request.getTramos().stream()
-                .map(t -> new CostoService.TramoInfo(
-                        t.getTramoId(),
-                        t.getDistanciaKm(),
-                        t.getCostoBasePorKm(),
-                        t.getConsumoKmLitro()
-                ))
-                .collect(Collectors.toList());
-
         CostoSolicitud costo = costoService.calcularCostoReal(
                 request.getSolicitudId(),
-                tramosInfo,
+                convertirATramosInfo(request),
                 request.getPesoTotalKg(),
                 request.getVolumenTotalM3(),
                 request.getHorasEstadiaTotales(),
@@ -80,6 +115,36 @@ public class CostoController {
         return ResponseEntity.status(HttpStatus.CREATED).body(convertirADTO(costo));
     }
 
+    @Operation(summary = "Calcular costo real/final de una solicitud (uso interno)",
+               description = "Idempotente: si la solicitud ya tiene costo final lo devuelve sin recalcularlo, "
+                       + "así logistics-service puede reintentar el pedido")
+    @PostMapping("/internal/calcular-real")
+    public ResponseEntity<CostoSolicitudDTO> calcularCostoRealInterno(
+            @Valid @RequestBody CalcularCostoRequest request) {
+
+        CostoSolicitud costo = costoService.calcularCostoRealSiNoExiste(
+                request.getSolicitudId(),
+                convertirATramosInfo(request),
+                request.getPesoTotalKg(),
+                request.getVolumenTotalM3(),
+                request.getHorasEstadiaTotales(),
+                request.getCostosAdicionales()
+        );
+
+        return ResponseEntity.ok(convertirADTO(costo));
+    }
+
+    private List<CostoService.TramoInfo> convertirATramosInfo(CalcularCostoRequest request) {
+        return request.getTramos().stream()
+                .map(t -> new CostoService.TramoInfo(
+                        t.getTramoId(),
+                        t.getDistanciaKm(),
+                        t.getCostoBasePorKm(),
+                        t.getConsumoKmLitro()
+                ))
+                .collect(Collectors.toList());
+    }
+
     @Operation(summary = "Obtener todos los costos de una solicitud")
     @PreAuthorize("hasRole('OPERADOR')")
     @GetMapping("/solicitud/{solicitudId}")
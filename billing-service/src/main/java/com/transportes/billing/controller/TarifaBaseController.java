@@ -3,6 +3,7 @@ package com.transportes.billing.controller;
 import com.transportes.billing.dto.TarifaBaseDTO;
 import com.transportes.billing.entity.TarifaBase;
 import com.transportes.billing.repository.TarifaBaseRepository;
+import com.transportes.billing.service.CatalogoTarifas;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -23,6 +24,7 @@ import java.util.stream.Collectors;
 public class TarifaBaseController {
 
     private final TarifaBaseRepository tarifaBaseRepository;
+    private final CatalogoTarifas catalogoTarifas;
 
     @GetMapping
     @Operation(summary = "Listar todas las tarifas base")
@@ -66,6 +68,7 @@ public class TarifaBaseController {
                 .build();
 
         TarifaBase guardada = tarifaBaseRepository.save(tarifa);
+        catalogoTarifas.recargar();
         return ResponseEntity.status(HttpStatus.CREATED).body(convertirADTO(guardada));
     }
 
@@ -87,6 +90,7 @@ public class TarifaBaseController {
                         tarifa.setActiva(dto.getActiva());
                     }
                     TarifaBase actualizada = tarifaBaseRepository.save(tarifa);
+                    catalogoTarifas.recargar();
                     return ResponseEntity.ok(convertirADTO(actualizada));
                 })
                 .orElse(ResponseEntity.notFound().build());
@@ -99,6 +103,7 @@ public class TarifaBaseController {
             return ResponseEntity.notFound().build();
         }
         tarifaBaseRepository.deleteById(id);
+        catalogoTarifas.recargar();
         return ResponseEntity.noContent().build();
     }
 
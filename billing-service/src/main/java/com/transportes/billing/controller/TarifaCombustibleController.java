@@ -3,6 +3,7 @@ package com.transportes.billing.controller;
 import com.transportes.billing.dto.TarifaCombustibleDTO;
 import com.transportes.billing.entity.TarifaCombustible;
 import com.transportes.billing.repository.TarifaCombustibleRepository;
+import com.transportes.billing.service.CatalogoTarifas;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -23,6 +24,7 @@ import java.util.stream.Collectors;
 public class TarifaCombustibleController {
 
     private final TarifaCombustibleRepository tarifaCombustibleRepository;
+    private final CatalogoTarifas catalogoTarifas;
 
     @GetMapping
     @Operation(summary = "Listar todas las tarifas de combustible")
@@ -63,6 +65,7 @@ public class TarifaCombustibleController {
                 .build();
 
         TarifaCombustible guardada = tarifaCombustibleRepository.save(tarifa);
+        catalogoTarifas.recargar();
         return ResponseEntity.status(HttpStatus.CREATED).body(convertirADTO(guardada));
     }
 
@@ -81,6 +84,7 @@ public class TarifaCombustibleController {
                         tarifa.setActiva(dto.getActiva());
                     }
                     TarifaCombustible actualizada = tarifaCombustibleRepository.save(tarifa);
+                    catalogoTarifas.recargar();
                     return ResponseEntity.ok(convertirADTO(actualizada));
                 })
                 .orElse(ResponseEntity.notFound().build());
@@ -93,6 +97,7 @@ public class TarifaCombustibleController {
             return ResponseEntity.notFound().build();
         }
         tarifaCombustibleRepository.deleteById(id);
+        catalogoTarifas.recargar();
         return ResponseEntity.noContent().build();
     }
 
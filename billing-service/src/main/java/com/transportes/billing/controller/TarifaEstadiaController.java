@@ -3,6 +3,7 @@ package com.transportes.billing.controller;
 import com.transportes.billing.dto.TarifaEstadiaDTO;
 import com.transportes.billing.entity.TarifaEstadia;
 import com.transportes.billing.repository.TarifaEstadiaRepository;
+import com.transportes.billing.service.CatalogoTarifas;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -23,6 +24,7 @@ import java.util.stream.Collectors;
 public class TarifaEstadiaController {
 
     private final TarifaEstadiaRepository tarifaEstadiaRepository;
+    private final CatalogoTarifas catalogoTarifas;
 
     @GetMapping
     @Operation(summary = "Listar todas las tarifas de estadía")
@@ -64,6 +66,7 @@ public class TarifaEstadiaController {
                 .build();
 
         TarifaEstadia guardada = tarifaEstadiaRepository.save(tarifa);
+        catalogoTarifas.recargar();
         return ResponseEntity.status(HttpStatus.CREATED).body(convertirADTO(guardada));
     }
 
@@ -83,6 +86,7 @@ public class TarifaEstadiaController {
                         tarifa.setActiva(dto.getActiva());
                     }
                     TarifaEstadia actualizada = tarifaEstadiaRepository.save(tarifa);
+                    catalogoTarifas.recargar();
                     return ResponseEntity.ok(convertirADTO(actualizada));
                 })
                 .orElse(ResponseEntity.notFound().build());
@@ -95,6 +99,7 @@ public class TarifaEstadiaController {
             return ResponseEntity.notFound().build();
         }
         tarifaEstadiaRepository.deleteById(id);
+        catalogoTarifas.recargar();
         return ResponseEntity.noContent().build();
     }
 
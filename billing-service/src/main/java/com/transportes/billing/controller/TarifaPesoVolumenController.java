@@ -3,6 +3,8 @@ package com.transportes.billing.controller;
 import com.transportes.billing.dto.TarifaPesoVolumenDTO;
 import com.transportes.billing.entity.TarifaPesoVolumen;
 import com.transportes.billing.repository.TarifaPesoVolumenRepository;
+import com.transportes.billing.service.CatalogoTarifas;
+import com.transportes.billing.service.TarifasVigentes;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -24,6 +26,7 @@ import java.util.stream.Collectors;
 public class TarifaPesoVolumenController {
 
     private final TarifaPesoVolumenRepository tarifaPesoVolumenRepository;
+    private final CatalogoTarifas catalogoTarifas;
 
     @GetMapping
     @Operation(summary = "Listar todas las tarifas de peso/volumen")
@@ -49,7 +52,11 @@ public class TarifaPesoVolumenController {
     public ResponseEntity<TarifaPesoVolumenDTO> buscarPorPesoYVolumen(
             @RequestParam BigDecimal peso,
             @RequestParam BigDecimal volumen) {
-        return tarifaPesoVolumenRepository.findByPesoYVolumen(peso, volumen)
+        TarifasVigentes.PesoVolumen vigente = catalogoTarifas.obtener().pesoVolumen().buscar(peso, volumen);
+        if (vigente == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return tarifaPesoVolumenRepository.findById(vigente.id())
                 .map(this::convertirADTO)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
@@ -70,6 +77,7 @@ public class TarifaPesoVolumenController {
                 .build();
 
         TarifaPesoVolumen guardada = tarifaPesoVolumenRepository.save(tarifa);
+        catalogoTarifas.recargar();
         return ResponseEntity.status(HttpStatus.CREATED).body(convertirADTO(guardada));
     }
 
@@ -92,6 +100,7 @@ public class TarifaPesoVolumenController {
                         tarifa.setActiva(dto.getActiva());
                     }
                     TarifaPesoVolumen actualizada = tarifaPesoVolumenRepository.save(tarifa);
+                    catalogoTarifas.recargar();
                     return ResponseEntity.ok(convertirADTO(actualizada));
                 })
                 .orElse(ResponseEntity.notFound().build());
@@ -104,6 +113,7 @@ public class TarifaPesoVolumenController {
             return ResponseEntity.notFound().build();
         }
         tarifaPesoVolumenRepository.deleteById(id);
+        catalogoTarifas.recargar();
         return ResponseEntity.noContent().build();
     }
 
@@ -0,0 +1,71 @@
+package com.transportes.billing.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CalcularCostoLoteRequest {
+
+    @NotNull(message = "El ID de solicitud es obligatorio")
+    private Long solicitudId;
+
+    @NotEmpty(message = "Debe incluir al menos una alternativa")
+    @Valid
+    private List<AlternativaRequest> alternativas;
+
+    @Positive(message = "El peso total debe ser positivo")
+    private BigDecimal pesoTotalKg;
+
+    @Positive(message = "El volumen total debe ser positivo")
+    private BigDecimal volumenTotalM3;
+
+    private Boolean persistir; // Por defecto no se guardan los costos calculados
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class AlternativaRequest {
+
+        @NotEmpty(message = "Debe incluir al menos un tramo")
+        @Valid
+        private List<TramoRequest> tramos;
+
+        @PositiveOrZero(message = "Los días de estadía no pueden ser negativos")
+        private Integer diasEstadiaEstimados;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TramoRequest {
+
+        private Long tramoId; // Opcional: las alternativas aún no guardadas no tienen ID de tramo
+
+        @NotNull(message = "La distancia es obligatoria")
+        @Positive(message = "La distancia debe ser positiva")
+        private BigDecimal distanciaKm;
+
+        @NotNull(message = "El costo base por km es obligatorio")
+        @Positive(message = "El costo base por km debe ser positivo")
+        private BigDecimal costoBasePorKm;
+
+        @NotNull(message = "El consumo de combustible es obligatorio")
+        @Positive(message = "El consumo de combustible debe ser positivo")
+        private BigDecimal consumoKmLitro;
+    }
+}
@@ -0,0 +1,242 @@
+package com.transportes.billing.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cálculo del desglose de costos de una solicitud (tramos y totales).
+ * <p>
+ * {@link #desglosar} trabaja en punto fijo sobre long escalados (centavos, milésimas, ...) y solo usa
+ * BigDecimal para convertir entradas y salidas. Reproduce exactamente las reglas de redondeo de
+ * {@link #desglosarDecimal} (el cálculo original con BigDecimal), incluida la escala de cada resultado.
+ * Si alguna entrada tiene más decimales que la escala fija o algún valor no entra en un long,
+ * se usa directamente el cálculo con BigDecimal.
+ */
+public final class CalculadoraCostos {
+
+    static final int ESCALA_MONTO = 2;          // tarifas y costos base (centavos)
+    static final int ESCALA_MULTIPLICADOR = 2;
+    static final int ESCALA_DISTANCIA = 6;      // km con 6 decimales (milímetros)
+    static final int ESCALA_CONSUMO = 2;        // km por litro
+    static final int ESCALA_LITROS = 2;         // como divide(consumo, 2, HALF_UP)
+    static final int ESCALA_RESULTADO = 2;      // como setScale(2, HALF_UP)
+
+    static final int ESCALA_COSTO_POR_KM = ESCALA_MONTO + ESCALA_MULTIPLICADOR;
+    static final int ESCALA_TRANSPORTE = ESCALA_COSTO_POR_KM + ESCALA_DISTANCIA;
+    static final int ESCALA_COMBUSTIBLE = ESCALA_LITROS + ESCALA_MONTO;
+
+    // litros = distancia / consumo, llevado a ESCALA_LITROS
+    private static final int AJUSTE_LITROS = ESCALA_LITROS + ESCALA_CONSUMO - ESCALA_DISTANCIA;
+
+    private static final long[] POTENCIAS_10 = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L,
+            1_000_000_000L, 10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L
+    };
+
+    private CalculadoraCostos() {
+    }
+
+    /**
+     * Costo de un tramo y totales de la solicitud
+     */
+    public record Desglose(List<LineaTramo> tramos,
+                           BigDecimal costoTransporte,
+                           BigDecimal costoCombustible,
+                           BigDecimal costoTotal) {}
+
+    public record LineaTramo(BigDecimal costoPorKm,
+                             BigDecimal costoCombustible,
+                             BigDecimal costoTotalTramo) {}
+
+    /**
+     * Desglose calculado en punto fijo, con el cálculo en BigDecimal como respaldo
+     */
+    public static Desglose desglosar(List<CostoService.TramoInfo> tramos,
+                                     TarifasVigentes.Base tarifaBase,
+                                     TarifasVigentes.Combustible tarifaCombustible,
+                                     BigDecimal multiplicador,
+                                     BigDecimal costoEstadia,
+                                     BigDecimal costosAdicionales) {
+        try {
+            return desglosarFijo(tramos, tarifaBase, tarifaCombustible, multiplicador, costoEstadia, costosAdicionales);
+        } catch (ArithmeticException e) {
+            // Entradas con más decimales que la escala fija, desbordamiento o división por cero:
+            // el cálculo con BigDecimal da el resultado (o la excepción) original
+            return desglosarDecimal(tramos, tarifaBase, tarifaCombustible, multiplicador, costoEstadia, costosAdicionales);
+        }
+    }
+
+    /**
+     * Cálculo de referencia con BigDecimal (reglas de redondeo originales de CostoService)
+     */
+    public static Desglose desglosarDecimal(List<CostoService.TramoInfo> tramos,
+                                            TarifasVigentes.Base tarifaBase,
+                                            TarifasVigentes.Combustible tarifaCombustible,
+                                            BigDecimal multiplicador,
+                                            BigDecimal costoEstadia,
+                                            BigDecimal costosAdicionales) {
+        List<LineaTramo> lineas = new ArrayList<>(tramos.size());
+        BigDecimal costoTransporte = BigDecimal.ZERO;
+        BigDecimal costoCombustible = BigDecimal.ZERO;
+
+        for (CostoService.TramoInfo tramoInfo : tramos) {
+            // Calcular costo por km del tramo (con multiplicador)
+            BigDecimal costoPorKm = tramoInfo.getCostoBasePorKm().multiply(multiplicador);
+
+            // Calcular costo de combustible del tramo
+            BigDecimal litrosNecesarios = tramoInfo.getDistanciaKm()
+                    .divide(tramoInfo.getConsumoKmLitro(), 2, RoundingMode.HALF_UP);
+            BigDecimal costoCombustibleTramo = litrosNecesarios.multiply(tarifaCombustible.precioPorLitro());
+
+            // Calcular costo adicional por tramo
+            BigDecimal costoAdicionalTramo = tarifaBase.costoAdicionalPorTramo() != null
+                    ? tarifaBase.costoAdicionalPorTramo()
+                    : BigDecimal.ZERO;
+
+            // Calcular costo total del tramo
+            BigDecimal costoTotalTramo = costoPorKm.multiply(tramoInfo.getDistanciaKm())
+                    .add(costoCombustibleTramo)
+                    .add(costoAdicionalTramo)
+                    .setScale(2, RoundingMode.HALF_UP);
+
+            lineas.add(new LineaTramo(costoPorKm, costoCombustibleTramo, costoTotalTramo));
+            costoTransporte = costoTransporte.add(costoPorKm.multiply(tramoInfo.getDistanciaKm()));
+            costoCombustible = costoCombustible.add(costoCombustibleTramo);
+        }
+
+        BigDecimal costoTotal = tarifaBase.costoFijoGestion()
+                .add(costoTransporte)
+                .add(costoCombustible)
+                .add(costoEstadia)
+                .add(costosAdicionales)
+                .setScale(2, RoundingMode.HALF_UP);
+
+        return new Desglose(lineas, costoTransporte, costoCombustible, costoTotal);
+    }
+
+    private static Desglose desglosarFijo(List<CostoService.TramoInfo> tramos,
+                                          TarifasVigentes.Base tarifaBase,
+                                          TarifasVigentes.Combustible tarifaCombustible,
+                                          BigDecimal multiplicador,
+                                          BigDecimal costoEstadia,
+                                          BigDecimal costosAdicionales) {
+        long mult = aEscala(multiplicador, ESCALA_MULTIPLICADOR);
+        long precioPorLitro = aEscala(tarifaCombustible.precioPorLitro(), ESCALA_MONTO);
+        BigDecimal adicionalTramo = tarifaBase.costoAdicionalPorTramo() != null
+                ? tarifaBase.costoAdicionalPorTramo()
+                : BigDecimal.ZERO;
+        long adicional = aEscala(adicionalTramo, ESCALA_MONTO);
+
+        int n = tramos.size();
+        long[] costosPorKm = new long[n];
+        long[] combustibles = new long[n];
+        long[] totalesTramo = new long[n];
+        long costoTransporte = 0;
+        long costoCombustible = 0;
+        // Escalas que tendría cada resultado con BigDecimal (suma de escalas al multiplicar, máxima al sumar)
+        int escalaTransporte = 0;
+        int escalaCombustibleTramo = ESCALA_LITROS + tarifaCombustible.precioPorLitro().scale();
+
+        for (int i = 0; i < n; i++) {
+            CostoService.TramoInfo tramo = tramos.get(i);
+            long distancia = aEscala(tramo.getDistanciaKm(), ESCALA_DISTANCIA);
+            long costoBase = aEscala(tramo.getCostoBasePorKm(), ESCALA_MONTO);
+            long consumo = aEscala(tramo.getConsumoKmLitro(), ESCALA_CONSUMO);
+
+            long costoPorKm = Math.multiplyExact(costoBase, mult);
+            long transporte = Math.multiplyExact(costoPorKm, distancia);
+            long litros = litros(distancia, consumo);
+            long combustible = Math.multiplyExact(litros, precioPorLitro);
+
+            long totalTramo = Math.addExact(transporte, Math.addExact(
+                    reescalar(combustible, ESCALA_COMBUSTIBLE, ESCALA_TRANSPORTE),
+                    reescalar(adicional, ESCALA_MONTO, ESCALA_TRANSPORTE)));
+
+            costosPorKm[i] = costoPorKm;
+            combustibles[i] = combustible;
+            totalesTramo[i] = reescalar(totalTramo, ESCALA_TRANSPORTE, ESCALA_RESULTADO);
+            costoTransporte = Math.addExact(costoTransporte, transporte);
+            costoCombustible = Math.addExact(costoCombustible, combustible);
+
+            escalaTransporte = Math.max(escalaTransporte, tramo.getCostoBasePorKm().scale()
+                    + multiplicador.scale() + tramo.getDistanciaKm().scale());
+        }
+
+        long total = Math.addExact(costoTransporte, Math.addExact(
+                reescalar(costoCombustible, ESCALA_COMBUSTIBLE, ESCALA_TRANSPORTE),
+                Math.addExact(
+                        reescalar(aEscala(tarifaBase.costoFijoGestion(), ESCALA_MONTO), ESCALA_MONTO, ESCALA_TRANSPORTE),
+                        Math.addExact(
+                                reescalar(aEscala(costoEstadia, ESCALA_MONTO), ESCALA_MONTO, ESCALA_TRANSPORTE),
+                                reescalar(aEscala(costosAdicionales, ESCALA_MONTO), ESCALA_MONTO, ESCALA_TRANSPORTE)))));
+
+        // Conversión a BigDecimal solo en la salida, con la misma escala que daría el cálculo original
+        List<LineaTramo> lineas = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int escalaPorKm = tramos.get(i).getCostoBasePorKm().scale() + multiplicador.scale();
+            lineas.add(new LineaTramo(
+                    aDecimal(costosPorKm[i], ESCALA_COSTO_POR_KM, escalaPorKm),
+                    aDecimal(combustibles[i], ESCALA_COMBUSTIBLE, escalaCombustibleTramo),
+                    BigDecimal.valueOf(totalesTramo[i], ESCALA_RESULTADO)));
+        }
+
+        return new Desglose(
+                lineas,
+                aDecimal(costoTransporte, ESCALA_TRANSPORTE, escalaTransporte),
+                aDecimal(costoCombustible, ESCALA_COMBUSTIBLE, n == 0 ? 0 : Math.max(0, escalaCombustibleTramo)),
+                BigDecimal.valueOf(reescalar(total, ESCALA_TRANSPORTE, ESCALA_RESULTADO), ESCALA_RESULTADO));
+    }
+
+    // ============= ARITMÉTICA EN PUNTO FIJO =============
+
+    /**
+     * Litros necesarios en ESCALA_LITROS, redondeados HALF_UP
+     */
+    static long litros(long distancia, long consumo) {
+        return AJUSTE_LITROS >= 0
+                ? dividirRedondeando(Math.multiplyExact(distancia, POTENCIAS_10[AJUSTE_LITROS]), consumo)
+                : dividirRedondeando(distancia, Math.multiplyExact(consumo, POTENCIAS_10[-AJUSTE_LITROS]));
+    }
+
+    /**
+     * Cambia la escala de un valor; al reducirla redondea HALF_UP
+     */
+    static long reescalar(long valor, int escalaOrigen, int escalaDestino) {
+        if (escalaDestino >= escalaOrigen) {
+            return Math.multiplyExact(valor, POTENCIAS_10[escalaDestino - escalaOrigen]);
+        }
+        return dividirRedondeando(valor, POTENCIAS_10[escalaOrigen - escalaDestino]);
+    }
+
+    /**
+     * División entera con redondeo HALF_UP (empates lejos del cero), igual que RoundingMode.HALF_UP
+     */
+    static long dividirRedondeando(long dividendo, long divisor) {
+        long cociente = dividendo / divisor;
+        long resto = dividendo % divisor;
+        if (resto == 0) {
+            return cociente;
+        }
+        long restoAbs = Math.absExact(resto);
+        long divisorAbs = Math.absExact(divisor);
+        // 2 * |resto| >= |divisor|, sin riesgo de desbordamiento
+        if (restoAbs >= divisorAbs - restoAbs) {
+            return (dividendo < 0) == (divisor < 0) ? cociente + 1 : cociente - 1;
+        }
+        return cociente;
+    }
+
+    /**
+     * Valor entero en la escala indicada; ArithmeticException si tiene más decimales o no entra en un long
+     */
+    static long aEscala(BigDecimal valor, int escala) {
+        return valor.movePointRight(escala).longValueExact();
+    }
+
+    private static BigDecimal aDecimal(long valor, int escala, int escalaResultado) {
+        // El valor es exacto en escalaResultado (las entradas entraron sin redondeo), así que no redondea
+        return BigDecimal.valueOf(valor, escala).setScale(escalaResultado, RoundingMode.UNNECESSARY);
+    }
+}
@@ -0,0 +1,80 @@
+package com.transportes.billing.service;
+
+import com.transportes.billing.repository.TarifaBaseRepository;
+import com.transportes.billing.repository.TarifaCombustibleRepository;
+import com.transportes.billing.repository.TarifaEstadiaRepository;
+import com.transportes.billing.repository.TarifaPesoVolumenRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Mantiene en memoria la foto de tarifas vigentes. Se recarga al arrancar, después de cada
+ * alta/modificación/baja en los controladores de tarifas y periódicamente (para recoger
+ * cambios hechos por otras instancias o directamente en la base de datos).
+ * Las recargas se serializan y leen las cuatro tablas en una sola transacción de solo lectura,
+ * así una recarga lenta no pisa con datos viejos la foto que dejó otra más reciente.
+ */
+@Slf4j
+@Component
+public class CatalogoTarifas {
+
+    private final TarifaBaseRepository tarifaBaseRepository;
+    private final TarifaCombustibleRepository tarifaCombustibleRepository;
+    private final TarifaEstadiaRepository tarifaEstadiaRepository;
+    private final TarifaPesoVolumenRepository tarifaPesoVolumenRepository;
+    private final TransactionTemplate lectura;
+
+    private final AtomicReference<TarifasVigentes> vigentes = new AtomicReference<>();
+
+    public CatalogoTarifas(TarifaBaseRepository tarifaBaseRepository,
+                           TarifaCombustibleRepository tarifaCombustibleRepository,
+                           TarifaEstadiaRepository tarifaEstadiaRepository,
+                           TarifaPesoVolumenRepository tarifaPesoVolumenRepository,
+                           PlatformTransactionManager transactionManager) {
+        this.tarifaBaseRepository = tarifaBaseRepository;
+        this.tarifaCombustibleRepository = tarifaCombustibleRepository;
+        this.tarifaEstadiaRepository = tarifaEstadiaRepository;
+        this.tarifaPesoVolumenRepository = tarifaPesoVolumenRepository;
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${tarifas.refresco-ms:60000}",
+               fixedDelayString = "${tarifas.refresco-ms:60000}")
+    public synchronized void recargar() {
+        TarifasVigentes nuevas = lectura.execute(estado -> leerVigentes());
+        vigentes.set(nuevas);
+        log.debug("Tarifas vigentes recargadas ({} tarifas de peso/volumen)", nuevas.pesoVolumen().cantidad());
+    }
+
+    private TarifasVigentes leerVigentes() {
+        return new TarifasVigentes(
+                tarifaBaseRepository.findFirstByActivaTrueOrderByFechaVigenciaDesdeDesc()
+                        .map(TarifasVigentes.Base::de).orElse(null),
+                tarifaCombustibleRepository.findFirstByActivaTrueOrderByFechaVigenciaDesdeDesc()
+                        .map(TarifasVigentes.Combustible::de).orElse(null),
+                tarifaEstadiaRepository.findFirstByActivaTrueOrderByFechaVigenciaDesdeDesc()
+                        .map(TarifasVigentes.Estadia::de).orElse(null),
+                new IndicePesoVolumen(tarifaPesoVolumenRepository.findByActivaTrueOrderByFechaVigenciaDesdeDesc().stream()
+                        .map(TarifasVigentes.PesoVolumen::de).toList()),
+                LocalDateTime.now());
+    }
+
+    public TarifasVigentes obtener() {
+        TarifasVigentes actuales = vigentes.get();
+        if (actuales == null) {
+            recargar();
+            actuales = vigentes.get();
+        }
+        return actuales;
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.ArrayList;
 import java.util.List;
 
 @Slf4j
@@ -18,9 +19,9 @@ public class CostoService {
     private final TarifaBaseRepository tarifaBaseRepository;
     private final TarifaCombustibleRepository tarifaCombustibleRepository;
     private final TarifaEstadiaRepository tarifaEstadiaRepository;
-    private final TarifaPesoVolumenRepository tarifaPesoVolumenRepository;
     private final CostoSolicitudRepository costoSolicitudRepository;
     private final CostoTramoRepository costoTramoRepository;
+    private final CatalogoTarifas catalogoTarifas;
 
     /**
      * Calcula el costo estimado de una solicitud y lo PERSISTE en la base de datos
@@ -35,69 +36,110 @@ public class CostoService {
 
         log.info("Calculando costo ESTIMADO para solicitud {}", solicitudId);
 
-        // Obtener tarifas vigentes
-        TarifaBase tarifaBase = obtenerTarifaBaseVigente();
-        TarifaCombustible tarifaCombustible = obtenerTarifaCombustibleVigente();
-        TarifaEstadia tarifaEstadia = obtenerTarifaEstadiaVigente();
+        // Obtener tarifas vigentes (de la foto en memoria, sin consultar la base de datos)
+        TarifasVigentes tarifas = catalogoTarifas.obtener();
+        TarifasVigentes.Base tarifaBase = obtenerTarifaBaseVigente(tarifas);
+        TarifasVigentes.Combustible tarifaCombustible = obtenerTarifaCombustibleVigente(tarifas);
+        TarifasVigentes.Estadia tarifaEstadia = obtenerTarifaEstadiaVigente(tarifas);
 
         // Obtener multiplicador por peso y volumen
-        BigDecimal multiplicador = obtenerMultiplicadorPesoVolumen(pesoTotalKg, volumenTotalM3);
+        BigDecimal multiplicador = tarifas.multiplicadorPesoVolumen(pesoTotalKg, volumenTotalM3);
 
-        // Crear entidad CostoSolicitud
-        CostoSolicitud costoSolicitud = CostoSolicitud.builder()
-                .solicitudId(solicitudId)
-                .tipo(CostoSolicitud.TipoCosto.ESTIMADO)
-                .tarifaBase(tarifaBase)
-                .tarifaCombustible(tarifaCombustible)
-                .tarifaEstadia(tarifaEstadia)
-                .build();
+        CostoSolicitud costoSolicitud = construirCostoEstimado(
+                solicitudId, tramos, diasEstadiaEstimados,
+                tarifaBase, tarifaCombustible, tarifaEstadia, multiplicador);
+
+        // PERSISTIR en base de datos
+        CostoSolicitud costoGuardado = costoSolicitudRepository.save(costoSolicitud);
+
+        log.info("Costo ESTIMADO guardado con ID: {} para solicitud {}", costoGuardado.getId(), solicitudId);
+
+        return costoGuardado;
+    }
 
-        // Calcular costo de gestión
-        BigDecimal costoGestion = tarifaBase.getCostoFijoGestion();
-
-        // Calcular costos de tramos
-        BigDecimal costoTransporte = BigDecimal.ZERO;
-        BigDecimal costoCombustible = BigDecimal.ZERO;
-
-        for (TramoInfo tramoInfo : tramos) {
-            CostoTramo costoTramo = calcularCostoTramo(
-                    tramoInfo,
-                    tarifaBase,
-                    tarifaCombustible,
-                    multiplicador,
-                    CostoTramo.TipoCostoTramo.ESTIMADO
-            );
-
-            costoSolicitud.agregarCostoTramo(costoTramo);
-            costoTransporte = costoTransporte.add(costoTramo.getCostoPorKm().multiply(costoTramo.getDistanciaKm()));
-            costoCombustible = costoCombustible.add(costoTramo.getCostoCombustible());
+    /**
+     * Cotiza el costo estimado de una solicitud SIN persistirlo (solo lectura).
+     * Devuelve el mismo desglose que calcularCostoEstimado, con la entidad sin guardar.
+     */
+    @Transactional(readOnly = true)
+    public CostoSolicitud cotizarCostoEstimado(
+            Long solicitudId,
+            List<TramoInfo> tramos,
+            BigDecimal pesoTotalKg,
+            BigDecimal volumenTotalM3,
+            Integer diasEstadiaEstimados) {
+
+        return cotizarCostosEstimados(solicitudId,
+                List.of(new AlternativaInfo(tramos, diasEstadiaEstimados)),
+                pesoTotalKg, volumenTotalM3).get(0);
+    }
+
+    /**
+     * Cotiza el costo estimado de varias alternativas de ruta de una misma solicitud SIN persistirlo.
+     * Las tarifas vigentes y el multiplicador por peso/volumen se obtienen una sola vez.
+     */
+    @Transactional(readOnly = true)
+    public List<CostoSolicitud> cotizarCostosEstimados(
+            Long solicitudId,
+            List<AlternativaInfo> alternativas,
+            BigDecimal pesoTotalKg,
+            BigDecimal volumenTotalM3) {
+
+        log.debug("Cotizando costo ESTIMADO de {} alternativas para solicitud {}", alternativas.size(), solicitudId);
+
+        // Obtener tarifas vigentes (una sola vez para todo el lote, sin consultar la base de datos)
+        TarifasVigentes tarifas = catalogoTarifas.obtener();
+        TarifasVigentes.Base tarifaBase = obtenerTarifaBaseVigente(tarifas);
+        TarifasVigentes.Combustible tarifaCombustible = obtenerTarifaCombustibleVigente(tarifas);
+        TarifasVigentes.Estadia tarifaEstadia = obtenerTarifaEstadiaVigente(tarifas);
+        BigDecimal multiplicador = tarifas.multiplicadorPesoVolumen(pesoTotalKg, volumenTotalM3);
+
+        List<CostoSolicitud> costos = new ArrayList<>();
+        for (AlternativaInfo alternativa : alternativas) {
+            costos.add(construirCostoEstimado(
+                    solicitudId, alternativa.getTramos(), alternativa.getDiasEstadiaEstimados(),
+                    tarifaBase, tarifaCombustible, tarifaEstadia, multiplicador));
         }
+        return costos;
+    }
 
-        // Calcular costo de estadía
-        BigDecimal costoEstadia = calcularCostoEstadia(diasEstadiaEstimados, tarifaEstadia);
+    /**
+     * Calcula el costo estimado de varias alternativas de ruta de una misma solicitud y los PERSISTE.
+     * Todos los tramos deben tener ID.
+     */
+    @Transactional
+    public List<CostoSolicitud> calcularCostosEstimadosLote(
+            Long solicitudId,
+            List<AlternativaInfo> alternativas,
+            BigDecimal pesoTotalKg,
+            BigDecimal volumenTotalM3) {
 
-        // Asignar costos desglosados
-        costoSolicitud.setCostoGestion(costoGestion);
-        costoSolicitud.setCostoTransporte(costoTransporte);
-        costoSolicitud.setCostoCombustible(costoCombustible);
-        costoSolicitud.setCostoEstadia(costoEstadia);
-        costoSolicitud.setCostoAdicionales(BigDecimal.ZERO);
+        log.info("Calculando costo ESTIMADO de {} alternativas para solicitud {}", alternativas.size(), solicitudId);
 
-        // Calcular costo total
-        BigDecimal costoTotal = costoGestion
-                .add(costoTransporte)
-                .add(costoCombustible)
-                .add(costoEstadia)
-                .setScale(2, RoundingMode.HALF_UP);
+        if (alternativas.stream().flatMap(a -> a.getTramos().stream()).anyMatch(t -> t.getTramoId() == null)) {
+            throw new RuntimeException("Para persistir el costo estimado todos los tramos deben tener ID");
+        }
 
-        costoSolicitud.setCostoTotal(costoTotal);
+        // Obtener tarifas vigentes (una sola vez para todo el lote, sin consultar la base de datos)
+        TarifasVigentes tarifas = catalogoTarifas.obtener();
+        TarifasVigentes.Base tarifaBase = obtenerTarifaBaseVigente(tarifas);
+        TarifasVigentes.Combustible tarifaCombustible = obtenerTarifaCombustibleVigente(tarifas);
+        TarifasVigentes.Estadia tarifaEstadia = obtenerTarifaEstadiaVigente(tarifas);
+        BigDecimal multiplicador = tarifas.multiplicadorPesoVolumen(pesoTotalKg, volumenTotalM3);
+
+        List<CostoSolicitud> costos = new ArrayList<>();
+        for (AlternativaInfo alternativa : alternativas) {
+            costos.add(construirCostoEstimado(
+                    solicitudId, alternativa.getTramos(), alternativa.getDiasEstadiaEstimados(),
+                    tarifaBase, tarifaCombustible, tarifaEstadia, multiplicador));
+        }
 
         // PERSISTIR en base de datos
-        CostoSolicitud costoGuardado = costoSolicitudRepository.save(costoSolicitud);
+        List<CostoSolicitud> costosGuardados = costoSolicitudRepository.saveAll(costos);
 
-        log.info("Costo ESTIMADO guardado con ID: {} para solicitud {}", costoGuardado.getId(), solicitudId);
+        log.info("Se guardaron {} costos ESTIMADOS para solicitud {}", costosGuardados.size(), solicitudId);
 
-        return costoGuardado;
+        return costosGuardados;
     }
 
     /**
@@ -114,68 +156,36 @@ public class CostoService {
 
         log.info("Calculando costo REAL/FINAL para solicitud {}", solicitudId);
 
-        // Obtener tarifas vigentes
-        TarifaBase tarifaBase = obtenerTarifaBaseVigente();
-        TarifaCombustible tarifaCombustible = obtenerTarifaCombustibleVigente();
-        TarifaEstadia tarifaEstadia = obtenerTarifaEstadiaVigente();
+        // Obtener tarifas vigentes (de la foto en memoria, sin consultar la base de datos)
+        TarifasVigentes tarifas = catalogoTarifas.obtener();
+        TarifasVigentes.Base tarifaBase = obtenerTarifaBaseVigente(tarifas);
+        TarifasVigentes.Combustible tarifaCombustible = obtenerTarifaCombustibleVigente(tarifas);
+        TarifasVigentes.Estadia tarifaEstadia = obtenerTarifaEstadiaVigente(tarifas);
 
         // Obtener multiplicador por peso y volumen
-        BigDecimal multiplicador = obtenerMultiplicadorPesoVolumen(pesoRealKg, volumenRealM3);
+        BigDecimal multiplicador = tarifas.multiplicadorPesoVolumen(pesoRealKg, volumenRealM3);
 
         // Crear entidad CostoSolicitud FINAL
         CostoSolicitud costoSolicitud = CostoSolicitud.builder()
                 .solicitudId(solicitudId)
                 .tipo(CostoSolicitud.TipoCosto.FINAL)
-                .tarifaBase(tarifaBase)
-                .tarifaCombustible(tarifaCombustible)
-                .tarifaEstadia(tarifaEstadia)
+                .tarifaBase(tarifaBaseRepository.getReferenceById(tarifaBase.id()))
+                .tarifaCombustible(tarifaCombustibleRepository.getReferenceById(tarifaCombustible.id()))
+                .tarifaEstadia(tarifaEstadiaRepository.getReferenceById(tarifaEstadia.id()))
                 .build();
 
-        // Calcular costo de gestión
-        BigDecimal costoGestion = tarifaBase.getCostoFijoGestion();
-
-        // Calcular costos de tramos REALES
-        BigDecimal costoTransporte = BigDecimal.ZERO;
-        BigDecimal costoCombustible = BigDecimal.ZERO;
-
-        for (TramoInfo tramoInfo : tramosReales) {
-            CostoTramo costoTramo = calcularCostoTramo(
-                    tramoInfo,
-                    tarifaBase,
-                    tarifaCombustible,
-                    multiplicador,
-                    CostoTramo.TipoCostoTramo.REAL
-            );
-
-            costoSolicitud.agregarCostoTramo(costoTramo);
-            costoTransporte = costoTransporte.add(costoTramo.getCostoPorKm().multiply(costoTramo.getDistanciaKm()));
-            costoCombustible = costoCombustible.add(costoTramo.getCostoCombustible());
-        }
-
         // Calcular costo de estadía REAL basado en horas
         BigDecimal costoEstadia = BigDecimal.ZERO;
         if (horasEstadiaTotales != null && horasEstadiaTotales.compareTo(BigDecimal.ZERO) > 0) {
-            costoEstadia = tarifaEstadia.getCostoPorHora()
+            costoEstadia = tarifaEstadia.costoPorHora()
                     .multiply(horasEstadiaTotales)
                     .setScale(2, RoundingMode.HALF_UP);
         }
 
-        // Asignar costos desglosados
-        costoSolicitud.setCostoGestion(costoGestion);
-        costoSolicitud.setCostoTransporte(costoTransporte);
-        costoSolicitud.setCostoCombustible(costoCombustible);
-        costoSolicitud.setCostoEstadia(costoEstadia);
-        costoSolicitud.setCostoAdicionales(costosAdicionales != null ? costosAdicionales : BigDecimal.ZERO);
-
-        // Calcular costo total
-        BigDecimal costoTotal = costoGestion
-                .add(costoTransporte)
-                .add(costoCombustible)
-                .add(costoEstadia)
-                .add(costoSolicitud.getCostoAdicionales())
-                .setScale(2, RoundingMode.HALF_UP);
-
-        costoSolicitud.setCostoTotal(costoTotal);
+        // Calcular costos de tramos REALES y totales
+        completarDesglose(costoSolicitud, tramosReales, tarifaBase, tarifaCombustible, multiplicador,
+                CostoTramo.TipoCostoTramo.REAL, costoEstadia,
+                costosAdicionales != null ? costosAdicionales : BigDecimal.ZERO);
 
         // PERSISTIR en base de datos
         CostoSolicitud costoGuardado = costoSolicitudRepository.save(costoSolicitud);
@@ -185,6 +195,28 @@ public class CostoService {
         return costoGuardado;
     }
 
+    /**
+     * Como calcularCostoReal, pero si la solicitud ya tiene costo FINAL lo devuelve sin recalcularlo:
+     * la solicitud hace de clave de idempotencia para los reintentos de logistics-service
+     */
+    @Transactional
+    public CostoSolicitud calcularCostoRealSiNoExiste(
+            Long solicitudId,
+            List<TramoInfo> tramosReales,
+            BigDecimal pesoRealKg,
+            BigDecimal volumenRealM3,
+            BigDecimal horasEstadiaTotales,
+            BigDecimal costosAdicionales) {
+
+        return costoSolicitudRepository.findBySolicitudIdAndTipo(solicitudId, CostoSolicitud.TipoCosto.FINAL)
+                .map(existente -> {
+                    log.info("La solicitud {} ya tiene costo FINAL (ID {}), no se recalcula", solicitudId, existente.getId());
+                    return existente;
+                })
+                .orElseGet(() -> calcularCostoReal(solicitudId, tramosReales, pesoRealKg, volumenRealM3,
+                        horasEstadiaTotales, costosAdicionales));
+    }
+
     /**
      * Obtiene el costo estimado de una solicitud
      */
@@ -210,80 +242,107 @@ public class CostoService {
 
     // ============= METODOS PRIVADOS AUXILIARES =============
 
-    private CostoTramo calcularCostoTramo(
-            TramoInfo tramoInfo,
-            TarifaBase tarifaBase,
-            TarifaCombustible tarifaCombustible,
-            BigDecimal multiplicador,
-            CostoTramo.TipoCostoTramo tipo) {
+    private CostoSolicitud construirCostoEstimado(
+            Long solicitudId,
+            List<TramoInfo> tramos,
+            Integer diasEstadiaEstimados,
+            TarifasVigentes.Base tarifaBase,
+            TarifasVigentes.Combustible tarifaCombustible,
+            TarifasVigentes.Estadia tarifaEstadia,
+            BigDecimal multiplicador) {
 
-        // Calcular costo por km del tramo (con multiplicador)
-        BigDecimal costoPorKm = tramoInfo.getCostoBasePorKm().multiply(multiplicador);
+        // Crear entidad CostoSolicitud
+        CostoSolicitud costoSolicitud = CostoSolicitud.builder()
+                .solicitudId(solicitudId)
+                .tipo(CostoSolicitud.TipoCosto.ESTIMADO)
+                .tarifaBase(tarifaBaseRepository.getReferenceById(tarifaBase.id()))
+                .tarifaCombustible(tarifaCombustibleRepository.getReferenceById(tarifaCombustible.id()))
+                .tarifaEstadia(tarifaEstadiaRepository.getReferenceById(tarifaEstadia.id()))
+                .build();
 
-        // Calcular costo de combustible del tramo
-        BigDecimal litrosNecesarios = tramoInfo.getDistanciaKm()
-                .divide(tramoInfo.getConsumoKmLitro(), 2, RoundingMode.HALF_UP);
-        BigDecimal costoCombustible = litrosNecesarios.multiply(tarifaCombustible.getPrecioPorLitro());
+        // Calcular costo de estadía
+        BigDecimal costoEstadia = calcularCostoEstadia(diasEstadiaEstimados, tarifaEstadia);
 
-        // Calcular costo adicional por tramo
-        BigDecimal costoAdicionalTramo = tarifaBase.getCostoAdicionalPorTramo() != null
-                ? tarifaBase.getCostoAdicionalPorTramo()
-                : BigDecimal.ZERO;
+        // Calcular costos de tramos y totales
+        completarDesglose(costoSolicitud, tramos, tarifaBase, tarifaCombustible, multiplicador,
+                CostoTramo.TipoCostoTramo.ESTIMADO, costoEstadia, BigDecimal.ZERO);
 
-        // Calcular costo total del tramo
-        BigDecimal costoTotalTramo = costoPorKm.multiply(tramoInfo.getDistanciaKm())
-                .add(costoCombustible)
-                .add(costoAdicionalTramo)
-                .setScale(2, RoundingMode.HALF_UP);
+        return costoSolicitud;
+    }
 
-        return CostoTramo.builder()
-                .tramoId(tramoInfo.getTramoId())
-                .tipo(tipo)
-                .distanciaKm(tramoInfo.getDistanciaKm())
-                .costoPorKm(costoPorKm)
-                .costoCombustible(costoCombustible)
-                .costoEstadia(BigDecimal.ZERO)
-                .horasEstadia(BigDecimal.ZERO)
-                .costoTotalTramo(costoTotalTramo)
-                .build();
+    /**
+     * Agrega los costos de cada tramo y asigna el desglose y el total a la solicitud.
+     * El cálculo se hace en punto fijo (ver CalculadoraCostos); BigDecimal solo en la entrada y la salida.
+     */
+    private void completarDesglose(
+            CostoSolicitud costoSolicitud,
+            List<TramoInfo> tramos,
+            TarifasVigentes.Base tarifaBase,
+            TarifasVigentes.Combustible tarifaCombustible,
+            BigDecimal multiplicador,
+            CostoTramo.TipoCostoTramo tipo,
+            BigDecimal costoEstadia,
+            BigDecimal costosAdicionales) {
+
+        CalculadoraCostos.Desglose desglose = CalculadoraCostos.desglosar(
+                tramos, tarifaBase, tarifaCombustible, multiplicador, costoEstadia, costosAdicionales);
+
+        for (int i = 0; i < tramos.size(); i++) {
+            TramoInfo tramoInfo = tramos.get(i);
+            CalculadoraCostos.LineaTramo linea = desglose.tramos().get(i);
+            costoSolicitud.agregarCostoTramo(CostoTramo.builder()
+                    .tramoId(tramoInfo.getTramoId())
+                    .tipo(tipo)
+                    .distanciaKm(tramoInfo.getDistanciaKm())
+                    .costoPorKm(linea.costoPorKm())
+                    .costoCombustible(linea.costoCombustible())
+                    .costoEstadia(BigDecimal.ZERO)
+                    .horasEstadia(BigDecimal.ZERO)
+                    .costoTotalTramo(linea.costoTotalTramo())
+                    .build());
+        }
+
+        // Asignar costos desglosados
+        costoSolicitud.setCostoGestion(tarifaBase.costoFijoGestion());
+        costoSolicitud.setCostoTransporte(desglose.costoTransporte());
+        costoSolicitud.setCostoCombustible(desglose.costoCombustible());
+        costoSolicitud.setCostoEstadia(costoEstadia);
+        costoSolicitud.setCostoAdicionales(costosAdicionales);
+        costoSolicitud.setCostoTotal(desglose.costoTotal());
     }
 
-    private BigDecimal calcularCostoEstadia(Integer diasEstimados, TarifaEstadia tarifaEstadia) {
+    private BigDecimal calcularCostoEstadia(Integer diasEstimados, TarifasVigentes.Estadia tarifaEstadia) {
         if (diasEstimados == null || diasEstimados <= 0) {
             return BigDecimal.ZERO;
         }
 
-        return tarifaEstadia.getCostoPorDia()
+        return tarifaEstadia.costoPorDia()
                 .multiply(BigDecimal.valueOf(diasEstimados))
                 .setScale(2, RoundingMode.HALF_UP);
     }
 
-    private BigDecimal obtenerMultiplicadorPesoVolumen(BigDecimal peso, BigDecimal volumen) {
-        if (peso == null || volumen == null) {
-            return BigDecimal.ONE;
+    private TarifasVigentes.Base obtenerTarifaBaseVigente(TarifasVigentes tarifas) {
+        if (tarifas.base() == null) {
+            throw new RuntimeException("No hay tarifa base vigente");
         }
-
-        return tarifaPesoVolumenRepository.findByPesoYVolumen(peso, volumen)
-                .map(TarifaPesoVolumen::getMultiplicadorCosto)
-                .orElse(BigDecimal.ONE);
-    }
-
-    private TarifaBase obtenerTarifaBaseVigente() {
-        return tarifaBaseRepository.findFirstByActivaTrueOrderByFechaVigenciaDesdeDesc()
-                .orElseThrow(() -> new RuntimeException("No hay tarifa base vigente"));
+        return tarifas.base();
     }
 
-    private TarifaCombustible obtenerTarifaCombustibleVigente() {
-        return tarifaCombustibleRepository.findFirstByActivaTrueOrderByFechaVigenciaDesdeDesc()
-                .orElseThrow(() -> new RuntimeException("No hay tarifa de combustible vigente"));
+    private TarifasVigentes.Combustible obtenerTarifaCombustibleVigente(TarifasVigentes tarifas) {
+        if (tarifas.combustible() == null) {
+            throw new RuntimeException("No hay tarifa de combustible vigente");
+        }
+        return tarifas.combustible();
     }
 
-    private TarifaEstadia obtenerTarifaEstadiaVigente() {
-        return tarifaEstadiaRepository.findFirstByActivaTrueOrderByFechaVigenciaDesdeDesc()
-                .orElseThrow(() -> new RuntimeException("No hay tarifa de estadía vigente"));
+    private TarifasVigentes.Estadia obtenerTarifaEstadiaVigente(TarifasVigentes tarifas) {
+        if (tarifas.estadia() == null) {
+            throw new RuntimeException("No hay tarifa de estadía vigente");
+        }
+        return tarifas.estadia();
     }
 
-    // ============= CLASE AUXILIAR =============
+    // ============= CLASES AUXILIARES =============
 
     /**
      * Información de un tramo para calcular su costo
@@ -317,4 +376,25 @@ public class CostoService {
             return consumoKmLitro;
         }
     }
+
+    /**
+     * Información de una alternativa de ruta para calcular su costo estimado
+     */
+    public static class AlternativaInfo {
+        private List<TramoInfo> tramos;
+        private Integer diasEstadiaEstimados;
+
+        public AlternativaInfo(List<TramoInfo> tramos, Integer diasEstadiaEstimados) {
+            this.tramos = tramos;
+            this.diasEstadiaEstimados = diasEstadiaEstimados;
+        }
+
+        public List<TramoInfo> getTramos() {
+            return tramos;
+        }
+
+        public Integer getDiasEstadiaEstimados() {
+            return diasEstadiaEstimados;
+        }
+    }
 }
@@ -0,0 +1,129 @@
+package com.transportes.billing.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Índice inmutable de las tarifas de peso/volumen activas, como grilla de intervalos elementales.
+ * Los límites de todas las bandas dividen cada eje en "ranuras": una por cada valor límite
+ * (los rangos son cerrados) y una por cada intervalo abierto entre dos límites consecutivos.
+ * Cada celda peso x volumen guarda la banda que la cubre, de modo que una búsqueda son dos
+ * búsquedas binarias y un acceso al arreglo, sin crear objetos.
+ * Si varias bandas se solapan gana la de fecha de vigencia más reciente (como la consulta
+ * original ordenada por fechaVigenciaDesde DESC), y el solapamiento se informa al construir.
+ */
+@Slf4j
+public final class IndicePesoVolumen {
+
+    private static final int SIN_TARIFA = -1;
+
+    private final List<TarifasVigentes.PesoVolumen> tarifas;
+    private final BigDecimal[] limitesPeso;
+    private final BigDecimal[] limitesVolumen;
+    private final int ranurasVolumen;
+    private final int[] celdas; // índice en tarifas de la banda de cada celda, o SIN_TARIFA
+
+    /**
+     * @param tarifas tarifas activas, de la más reciente a la más antigua
+     */
+    public IndicePesoVolumen(List<TarifasVigentes.PesoVolumen> tarifas) {
+        this.tarifas = List.copyOf(tarifas);
+        this.limitesPeso = limites(tarifas, true);
+        this.limitesVolumen = limites(tarifas, false);
+        int ranurasPeso = ranuras(limitesPeso);
+        this.ranurasVolumen = ranuras(limitesVolumen);
+        this.celdas = new int[ranurasPeso * ranurasVolumen];
+        Arrays.fill(celdas, SIN_TARIFA);
+
+        for (int t = 0; t < this.tarifas.size(); t++) {
+            TarifasVigentes.PesoVolumen tarifa = this.tarifas.get(t);
+            if (tarifa.pesoMinimoKg().compareTo(tarifa.pesoMaximoKg()) > 0
+                    || tarifa.volumenMinimoM3().compareTo(tarifa.volumenMaximoM3()) > 0) {
+                log.warn("Tarifa de peso/volumen {} con rango vacío, se ignora", tarifa.id());
+                continue;
+            }
+            int pesoDesde = ranura(limitesPeso, tarifa.pesoMinimoKg());
+            int pesoHasta = ranura(limitesPeso, tarifa.pesoMaximoKg());
+            int volumenDesde = ranura(limitesVolumen, tarifa.volumenMinimoM3());
+            int volumenHasta = ranura(limitesVolumen, tarifa.volumenMaximoM3());
+
+            int solapada = SIN_TARIFA;
+            for (int p = pesoDesde; p <= pesoHasta; p++) {
+                for (int v = volumenDesde; v <= volumenHasta; v++) {
+                    int celda = p * ranurasVolumen + v;
+                    if (celdas[celda] == SIN_TARIFA) {
+                        celdas[celda] = t;
+                    } else if (solapada == SIN_TARIFA) {
+                        solapada = celdas[celda];
+                    }
+                }
+            }
+            if (solapada != SIN_TARIFA) {
+                log.warn("La tarifa de peso/volumen {} se solapa con la {}; en la zona común se aplica la {} (vigente desde {})",
+                        tarifa.id(), this.tarifas.get(solapada).id(),
+                        this.tarifas.get(solapada).id(), this.tarifas.get(solapada).fechaVigenciaDesde());
+            }
+        }
+    }
+
+    public int cantidad() {
+        return tarifas.size();
+    }
+
+    /**
+     * Tarifa que incluye el peso y el volumen, o null si ninguna los incluye
+     */
+    public TarifasVigentes.PesoVolumen buscar(BigDecimal peso, BigDecimal volumen) {
+        int p = ranuraExistente(limitesPeso, peso);
+        int v = ranuraExistente(limitesVolumen, volumen);
+        if (p < 0 || v < 0) {
+            return null;
+        }
+        int tarifa = celdas[p * ranurasVolumen + v];
+        return tarifa == SIN_TARIFA ? null : tarifas.get(tarifa);
+    }
+
+    private static BigDecimal[] limites(List<TarifasVigentes.PesoVolumen> tarifas, boolean peso) {
+        // compareTo (no equals) para que 10 y 10.00 sean el mismo límite
+        TreeSet<BigDecimal> limites = new TreeSet<>();
+        for (TarifasVigentes.PesoVolumen tarifa : tarifas) {
+            limites.add(peso ? tarifa.pesoMinimoKg() : tarifa.volumenMinimoM3());
+            limites.add(peso ? tarifa.pesoMaximoKg() : tarifa.volumenMaximoM3());
+        }
+        return limites.toArray(new BigDecimal[0]);
+    }
+
+    /**
+     * Ranuras de un eje con n límites: n puntos y n - 1 intervalos abiertos entre ellos
+     */
+    private static int ranuras(BigDecimal[] limites) {
+        return Math.max(0, 2 * limites.length - 1);
+    }
+
+    /**
+     * Ranura de un valor que es uno de los límites del eje
+     */
+    private static int ranura(BigDecimal[] limites, BigDecimal valor) {
+        return 2 * Arrays.binarySearch(limites, valor);
+    }
+
+    /**
+     * Ranura de un valor cualquiera: 2i si coincide con el límite i, 2i - 1 si está entre el
+     * límite i - 1 y el i, o -1 si queda fuera de todos los límites
+     */
+    private static int ranuraExistente(BigDecimal[] limites, BigDecimal valor) {
+        int posicion = Arrays.binarySearch(limites, valor);
+        if (posicion >= 0) {
+            return 2 * posicion;
+        }
+        int insercion = -posicion - 1;
+        if (insercion == 0 || insercion == limites.length) {
+            return -1;
+        }
+        return 2 * insercion - 1;
+    }
+}
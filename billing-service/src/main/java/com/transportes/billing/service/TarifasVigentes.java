@@ -0,0 +1,68 @@
+package com.transportes.billing.service;
+
+import com.transportes.billing.entity.TarifaBase;
+import com.transportes.billing.entity.TarifaCombustible;
+import com.transportes.billing.entity.TarifaEstadia;
+import com.transportes.billing.entity.TarifaPesoVolumen;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Foto inmutable de las tarifas vigentes, usada por CostoService para calcular costos sin
+ * consultar la base de datos. Cada tarifa puede ser null si no hay una activa.
+ */
+public record TarifasVigentes(
+        Base base,
+        Combustible combustible,
+        Estadia estadia,
+        IndicePesoVolumen pesoVolumen,
+        LocalDateTime fechaCarga) {
+
+    public record Base(Long id, BigDecimal costoFijoGestion, BigDecimal costoAdicionalPorTramo) {
+
+        static Base de(TarifaBase tarifa) {
+            return new Base(tarifa.getId(), tarifa.getCostoFijoGestion(), tarifa.getCostoAdicionalPorTramo());
+        }
+    }
+
+    public record Combustible(Long id, BigDecimal precioPorLitro) {
+
+        static Combustible de(TarifaCombustible tarifa) {
+            return new Combustible(tarifa.getId(), tarifa.getPrecioPorLitro());
+        }
+    }
+
+    public record Estadia(Long id, BigDecimal costoPorDia, BigDecimal costoPorHora) {
+
+        static Estadia de(TarifaEstadia tarifa) {
+            return new Estadia(tarifa.getId(), tarifa.getCostoPorDia(), tarifa.getCostoPorHora());
+        }
+    }
+
+    public record PesoVolumen(Long id,
+                              BigDecimal pesoMinimoKg, BigDecimal pesoMaximoKg,
+                              BigDecimal volumenMinimoM3, BigDecimal volumenMaximoM3,
+                              BigDecimal multiplicadorCosto,
+                              LocalDate fechaVigenciaDesde) {
+
+        static PesoVolumen de(TarifaPesoVolumen tarifa) {
+            return new PesoVolumen(tarifa.getId(),
+                    tarifa.getPesoMinimoKg(), tarifa.getPesoMaximoKg(),
+                    tarifa.getVolumenMinimoM3(), tarifa.getVolumenMaximoM3(),
+                    tarifa.getMultiplicadorCosto(), tarifa.getFechaVigenciaDesde());
+        }
+    }
+
+    /**
+     * Multiplicador de la tarifa de peso/volumen más reciente que incluye ambos valores, o 1 si no hay ninguna
+     */
+    public BigDecimal multiplicadorPesoVolumen(BigDecimal peso, BigDecimal volumen) {
+        if (peso == null || volumen == null) {
+            return BigDecimal.ONE;
+        }
+        PesoVolumen tarifa = pesoVolumen.buscar(peso, volumen);
+        return tarifa != null && tarifa.multiplicadorCosto() != null ? tarifa.multiplicadorCosto() : BigDecimal.ONE;
+    }
+}
@@ -3,10 +3,11 @@ package com.transportes.clients;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.openfeign.EnableFeignClients;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import com.transportes.clients.config.FeignClientConfig;
 
 @SpringBootApplication
-
+@EnableScheduling
 @EnableFeignClients(defaultConfiguration = FeignClientConfig.class)
 public class ClientsServiceApplication {
 
@@ -1,6 +1,8 @@
 package com.transportes.clients.client;
 
+import feign.Response;
 import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
@@ -12,6 +14,18 @@ public interface LogisticsClient {
     @GetMapping("/api/rutas/alternativas/{solicitudId}")
     List<RutaDTO> generarRutasAlternativas(@PathVariable("solicitudId") Long solicitudId);
 
+    /**
+     * Server-Sent Events sin decodificar: quien llama lee el cuerpo a medida que llega y debe cerrarlo
+     */
+    @GetMapping(value = "/api/rutas/alternativas/{solicitudId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    Response generarRutasAlternativasStream(@PathVariable("solicitudId") Long solicitudId);
+
+    /**
+     * Pide calcular en segundo plano las alternativas de una solicitud nueva; responde 202 sin esperar
+     */
+    @PostMapping("/api/rutas/internal/solicitudes/{solicitudId}/precalcular")
+    void precalcularAlternativas(@PathVariable("solicitudId") Long solicitudId);
+
     record RutaDTO(
         Long id,
         Long solicitudId,
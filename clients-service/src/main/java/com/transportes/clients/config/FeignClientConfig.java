@@ -9,8 +9,12 @@ import org.springframework.web.context.request.ServletRequestAttributes;
 
 @Configuration
 public class FeignClientConfig {
+    /**
+     * Reenvía el token de la petición en curso. Fuera de una petición (outbox) usa el token de la
+     * cuenta de servicio
+     */
     @Bean
-    public RequestInterceptor requestInterceptor() {
+    public RequestInterceptor requestInterceptor(TokenServicio tokenServicio) {
         return template -> {
             ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
             if (attributes != null) {
@@ -18,6 +22,8 @@ public class FeignClientConfig {
                 if (authHeader != null) {
                     template.header(HttpHeaders.AUTHORIZATION, authHeader);
                 }
+            } else {
+                template.header(HttpHeaders.AUTHORIZATION, "Bearer " + tokenServicio.obtener());
             }
         };
     }
@@ -3,6 +3,7 @@ package com.transportes.clients.config;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -40,8 +41,10 @@ public class SecurityConfig {
                         .requestMatchers("/swagger-ui/**", "/v3/api-docs/**").permitAll()
                         // Permitir crear solicitudes sin autenticación
                         .requestMatchers("POST", "/api/solicitudes").permitAll()
-                        // Endpoints internos para comunicación entre microservicios
-                        .requestMatchers("/api/solicitudes/internal/**").permitAll()
+                        // Endpoints internos para comunicación entre microservicios: los que modifican
+                        // datos solo con el token de una cuenta de servicio
+                        .requestMatchers(HttpMethod.PUT, "/api/solicitudes/internal/**").hasRole("SERVICIO")
+                        .requestMatchers("/api/solicitudes/internal/**").authenticated()
                         // Todos los demás requieren autenticación
                         .anyRequest().authenticated()
                 )
@@ -0,0 +1,75 @@
+package com.transportes.clients.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestClient;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Token de la cuenta de servicio de clients-service (grant client_credentials de Keycloak).
+ * Lo usan las llamadas a otros servicios que no nacen de una petición de usuario, como las
+ * entregas del outbox a logistics-service. Se reutiliza hasta poco antes de vencer.
+ */
+@Slf4j
+@Component
+public class TokenServicio {
+
+    private static final Duration MARGEN_VENCIMIENTO = Duration.ofSeconds(30);
+
+    private final RestClient restClient;
+    private final String clientId;
+    private final String clientSecret;
+
+    private String token;
+    private Instant vence = Instant.MIN;
+
+    public TokenServicio(@Value("${keycloak.auth-server-url}") String authServerUrl,
+                         @Value("${keycloak.realm}") String realm,
+                         @Value("${keycloak.servicio.client-id:clients-service}") String clientId,
+                         @Value("${keycloak.servicio.client-secret}") String clientSecret,
+                         @Value("${keycloak.servicio.timeout:5s}") Duration timeout) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout((int) timeout.toMillis());
+        requestFactory.setReadTimeout((int) timeout.toMillis());
+        this.restClient = RestClient.builder()
+                .baseUrl(authServerUrl + "/realms/" + realm + "/protocol/openid-connect/token")
+                .requestFactory(requestFactory)
+                .build();
+        this.clientId = clientId;
+        this.clientSecret = clientSecret;
+    }
+
+    public synchronized String obtener() {
+        Instant ahora = Instant.now();
+        if (token == null || ahora.isAfter(vence)) {
+            MultiValueMap<String, String> formulario = new LinkedMultiValueMap<>();
+            formulario.add("grant_type", "client_credentials");
+            formulario.add("client_id", clientId);
+            formulario.add("client_secret", clientSecret);
+
+            RespuestaToken respuesta = restClient.post()
+                    .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                    .body(formulario)
+                    .retrieve()
+                    .body(RespuestaToken.class);
+            if (respuesta == null || respuesta.accessToken() == null) {
+                throw new IllegalStateException("Keycloak no devolvió un token para " + clientId);
+            }
+            token = respuesta.accessToken();
+            vence = ahora.plusSeconds(respuesta.expiresIn()).minus(MARGEN_VENCIMIENTO);
+            log.debug("Token de servicio de {} renovado (vence en {} s)", clientId, respuesta.expiresIn());
+        }
+        return token;
+    }
+
+    private record RespuestaToken(@JsonProperty("access_token") String accessToken,
+                                  @JsonProperty("expires_in") long expiresIn) {}
+}
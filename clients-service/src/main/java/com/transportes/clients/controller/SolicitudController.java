@@ -10,15 +10,20 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import feign.Response;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.util.List;
+import java.util.stream.Collectors;
 
 @Tag(name = "Solicitudes", description = "API para gestión de solicitudes de transporte")
 @RestController
@@ -81,6 +86,13 @@ public class SolicitudController {
         return ResponseEntity.ok(solicitud);
     }
 
+    @Operation(summary = "Obtener varias solicitudes por ID (uso interno)",
+               description = "Las solicitudes inexistentes se omiten de la respuesta")
+    @PostMapping("/internal/lote")
+    public ResponseEntity<List<SolicitudDTO>> obtenerSolicitudesInternal(@RequestBody List<Long> ids) {
+        return ResponseEntity.ok(solicitudService.obtenerPorIdsInternal(ids));
+    }
+
 
     @Operation(summary = "Obtener mis solicitudes")
     @PreAuthorize("hasRole('CLIENTE')")
@@ -139,6 +151,32 @@ public class SolicitudController {
         return ResponseEntity.ok(logisticsClient.generarRutasAlternativas(id));
     }
 
+    @GetMapping(value = "/{id}/rutas-alternativas/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAnyRole('CLIENTE', 'OPERADOR')")
+    @Operation(summary = "Obtener rutas alternativas para solicitud (streaming)",
+               description = "Reenvía los Server-Sent Events de logistics-service a medida que llegan")
+    public ResponseEntity<StreamingResponseBody> obtenerRutasAlternativasStream(@PathVariable("id") Long id) {
+        Response respuesta = logisticsClient.generarRutasAlternativasStream(id);
+        StreamingResponseBody cuerpo = salida -> {
+            try (respuesta) {
+                if (respuesta.body() == null) {
+                    return;
+                }
+                InputStream entrada = respuesta.body().asInputStream();
+                byte[] buffer = new byte[8192];
+                int leidos;
+                while ((leidos = entrada.read(buffer)) != -1) {
+                    salida.write(buffer, 0, leidos);
+                    salida.flush();
+                }
+            }
+        };
+        // Los errores de logistics (403, 400...) se devuelven con su estado y su cuerpo JSON
+        MediaType tipo = respuesta.status() == HttpStatus.OK.value()
+                ? MediaType.TEXT_EVENT_STREAM : MediaType.APPLICATION_JSON;
+        return ResponseEntity.status(respuesta.status()).contentType(tipo).body(cuerpo);
+    }
+
     @PutMapping("/{id}/estado")
     @PreAuthorize("hasRole('OPERADOR')")
     @Operation(summary = "Actualizar estado de solicitud")
@@ -153,5 +191,19 @@ public class SolicitudController {
         return ResponseEntity.ok().build();
     }
 
+    @PutMapping("/internal/estados")
+    @Operation(summary = "Actualizar el estado de varias solicitudes (uso interno)",
+               description = "Aplica los cambios en orden, en una sola transacción. Idempotente: se omiten "
+                       + "los cambios a un estado en el que la solicitud ya está")
+    public ResponseEntity<Void> actualizarEstadosInternal(@RequestBody List<CambioEstadoRequest> cambios) {
+        solicitudService.actualizarEstados(cambios.stream()
+                .map(c -> new SolicitudService.CambioEstado(
+                        c.solicitudId(), Solicitud.EstadoSolicitud.valueOf(c.estado()), c.observacion()))
+                .collect(Collectors.toList()), "logistics-service");
+        return ResponseEntity.ok().build();
+    }
+
     record ActualizarEstadoRequest(String estado, String observacion) {}
+
+    record CambioEstadoRequest(Long solicitudId, String estado, String observacion) {}
 }
\ No newline at end of file
@@ -0,0 +1,76 @@
+package com.transportes.clients.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * Evento pendiente de publicar hacia otros servicios. Se guarda en la misma transacción que el
+ * cambio que lo origina y lo entrega en segundo plano PublicadorEventos, así el evento no se
+ * pierde si el otro servicio no está disponible ni se publica si la transacción se revierte.
+ */
+@Entity
+@Table(name = "evento_outbox")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EventoOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 50)
+    @Enumerated(EnumType.STRING)
+    private TipoEvento tipo;
+
+    @Column(name = "agregado_id", nullable = false)
+    private Long agregadoId;
+
+    @Column(nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    private EstadoEvento estado;
+
+    @Column(nullable = false)
+    private Integer intentos;
+
+    @Column(name = "fecha_creacion")
+    private LocalDateTime fechaCreacion;
+
+    @Column(name = "proximo_intento", nullable = false)
+    private LocalDateTime proximoIntento;
+
+    @Column(name = "fecha_procesado")
+    private LocalDateTime fechaProcesado;
+
+    @Column(name = "ultimo_error", columnDefinition = "TEXT")
+    private String ultimoError;
+
+    @PrePersist
+    protected void onCreate() {
+        if (fechaCreacion == null) {
+            fechaCreacion = LocalDateTime.now();
+        }
+        if (proximoIntento == null) {
+            proximoIntento = fechaCreacion;
+        }
+        if (estado == null) {
+            estado = EstadoEvento.PENDIENTE;
+        }
+        if (intentos == null) {
+            intentos = 0;
+        }
+    }
+
+    public enum TipoEvento {
+        SOLICITUD_CREADA
+    }
+
+    public enum EstadoEvento {
+        PENDIENTE,
+        ENVIADO,
+        DESCARTADO
+    }
+}
@@ -0,0 +1,22 @@
+package com.transportes.clients.repository;
+
+import com.transportes.clients.entity.EventoOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EventoOutboxRepository extends JpaRepository<EventoOutbox, Long> {
+
+    @Query("SELECT e FROM EventoOutbox e WHERE e.estado = 'PENDIENTE' AND e.proximoIntento <= :ahora ORDER BY e.id")
+    List<EventoOutbox> findPendientes(@Param("ahora") LocalDateTime ahora, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM EventoOutbox e WHERE e.estado <> 'PENDIENTE' AND e.fechaProcesado < :limite")
+    int eliminarProcesadosAntesDe(@Param("limite") LocalDateTime limite);
+}
@@ -5,6 +5,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,4 +28,8 @@ public interface SolicitudRepository extends JpaRepository<Solicitud, Long> {
 
     @Query("SELECT s FROM Solicitud s WHERE s.estado <> 'ENTREGADA' AND s.estado <> 'CANCELADA' ORDER BY s.fechaCreacion DESC")
     List<Solicitud> findPendientes();
+
+    @Query("SELECT s FROM Solicitud s JOIN FETCH s.contenedor JOIN FETCH s.cliente "
+            + "JOIN FETCH s.ubicacionOrigen JOIN FETCH s.ubicacionDestino WHERE s.id IN :ids")
+    List<Solicitud> findAllConDetalleByIdIn(@Param("ids") Collection<Long> ids);
 }
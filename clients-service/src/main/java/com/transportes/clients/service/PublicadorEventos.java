@@ -0,0 +1,114 @@
+package com.transportes.clients.service;
+
+import com.transportes.clients.client.LogisticsClient;
+import com.transportes.clients.entity.EventoOutbox;
+import com.transportes.clients.repository.EventoOutboxRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Entrega los eventos de la tabla evento_outbox. Lee los pendientes en lotes, los publica fuera de
+ * toda transacción y registra el resultado: si la entrega falla se reintenta con espera creciente
+ * hasta un máximo de intentos, después el evento queda descartado. La entrega es al menos una vez:
+ * quien recibe el evento debe tolerar duplicados. Pensado para una sola instancia de clients-service.
+ */
+@Slf4j
+@Component
+public class PublicadorEventos {
+
+    private final EventoOutboxRepository eventoOutboxRepository;
+    private final LogisticsClient logisticsClient;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${eventos.outbox.habilitado:true}")
+    private boolean habilitado;
+
+    @Value("${eventos.outbox.lote:50}")
+    private int tamanioLote;
+
+    @Value("${eventos.outbox.max-intentos:10}")
+    private int maxIntentos;
+
+    @Value("${eventos.outbox.espera-reintento:5s}")
+    private Duration esperaReintento;
+
+    @Value("${eventos.outbox.espera-maxima:10m}")
+    private Duration esperaMaxima;
+
+    @Value("${eventos.outbox.retencion:7d}")
+    private Duration retencion;
+
+    public PublicadorEventos(EventoOutboxRepository eventoOutboxRepository,
+                             LogisticsClient logisticsClient,
+                             PlatformTransactionManager transactionManager) {
+        this.eventoOutboxRepository = eventoOutboxRepository;
+        this.logisticsClient = logisticsClient;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${eventos.outbox.intervalo-ms:1000}")
+    public void publicarPendientes() {
+        if (!habilitado) {
+            return;
+        }
+        List<EventoOutbox> pendientes = eventoOutboxRepository.findPendientes(
+                LocalDateTime.now(), PageRequest.of(0, tamanioLote));
+        if (pendientes.isEmpty()) {
+            return;
+        }
+
+        for (EventoOutbox evento : pendientes) {
+            LocalDateTime ahora = LocalDateTime.now();
+            try {
+                publicar(evento);
+                evento.setEstado(EventoOutbox.EstadoEvento.ENVIADO);
+                evento.setFechaProcesado(ahora);
+                evento.setUltimoError(null);
+            } catch (Exception e) {
+                int intentos = evento.getIntentos() + 1;
+                evento.setIntentos(intentos);
+                evento.setUltimoError(e.getMessage());
+                if (intentos >= maxIntentos) {
+                    evento.setEstado(EventoOutbox.EstadoEvento.DESCARTADO);
+                    evento.setFechaProcesado(ahora);
+                    log.error("Evento {} {} de {} descartado tras {} intentos: {}",
+                            evento.getId(), evento.getTipo(), evento.getAgregadoId(), intentos, e.getMessage());
+                } else {
+                    evento.setProximoIntento(ahora.plus(espera(intentos)));
+                    log.warn("No se pudo publicar el evento {} {} de {} (intento {}): {}",
+                            evento.getId(), evento.getTipo(), evento.getAgregadoId(), intentos, e.getMessage());
+                }
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> eventoOutboxRepository.saveAll(pendientes));
+        log.debug("Procesados {} eventos de evento_outbox", pendientes.size());
+    }
+
+    @Scheduled(cron = "${eventos.outbox.purga-cron:0 30 3 * * *}")
+    public void purgarProcesados() {
+        LocalDateTime limite = LocalDateTime.now().minus(retencion);
+        Integer eliminados = transactionTemplate.execute(status ->
+                eventoOutboxRepository.eliminarProcesadosAntesDe(limite));
+        log.info("Purgados {} eventos de evento_outbox procesados antes de {}", eliminados, limite);
+    }
+
+    private void publicar(EventoOutbox evento) {
+        switch (evento.getTipo()) {
+            case SOLICITUD_CREADA -> logisticsClient.precalcularAlternativas(evento.getAgregadoId());
+        }
+    }
+
+    private Duration espera(int intentos) {
+        Duration espera = esperaReintento.multipliedBy(1L << Math.min(intentos - 1, 20));
+        return espera.compareTo(esperaMaxima) > 0 ? esperaMaxima : espera;
+    }
+}
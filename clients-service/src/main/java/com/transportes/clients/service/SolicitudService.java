@@ -8,6 +8,7 @@ import com.transportes.clients.mapper.SolicitudMapper;
 import com.transportes.clients.mapper.UbicacionMapper;
 import com.transportes.clients.repository.ContenedorRepository;
 import com.transportes.clients.repository.EstadoSolicitudHistorialRepository;
+import com.transportes.clients.repository.EventoOutboxRepository;
 import com.transportes.clients.repository.SolicitudRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -15,6 +16,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -25,6 +28,7 @@ public class SolicitudService {
     private final SolicitudRepository solicitudRepository;
     private final ContenedorRepository contenedorRepository;
     private final EstadoSolicitudHistorialRepository historialRepository;
+    private final EventoOutboxRepository eventoOutboxRepository;
     private final ClienteService clienteService;
     private final SolicitudMapper solicitudMapper;
     private final UbicacionMapper ubicacionMapper;
@@ -97,6 +101,12 @@ public class SolicitudService {
         Solicitud solicitudGuardada = solicitudRepository.save(solicitud);
         log.info("Solicitud creada con número: {}", solicitudGuardada.getNumeroSolicitud());
 
+        // En la misma transacción: logistics-service precalcula las rutas alternativas en segundo plano
+        eventoOutboxRepository.save(EventoOutbox.builder()
+                .tipo(EventoOutbox.TipoEvento.SOLICITUD_CREADA)
+                .agregadoId(solicitudGuardada.getId())
+                .build());
+
         return solicitudMapper.toDTO(solicitudGuardada);
     }
 
@@ -236,10 +246,53 @@ public class SolicitudService {
         log.info("Estado de solicitud {} actualizado a {}", solicitudId, nuevoEstado);
     }
 
+    /**
+     * Aplica en orden varios cambios de estado. Un cambio al estado en el que la solicitud ya está
+     * se omite, así los reenvíos de logistics-service no duplican el historial
+     */
+    @Transactional
+    public void actualizarEstados(List<CambioEstado> cambios, String usuario) {
+        Map<Long, Solicitud> porId = solicitudRepository.findAllById(cambios.stream()
+                        .map(CambioEstado::solicitudId)
+                        .collect(Collectors.toSet())).stream()
+                .collect(Collectors.toMap(Solicitud::getId, s -> s));
+
+        for (CambioEstado cambio : cambios) {
+            Solicitud solicitud = porId.get(cambio.solicitudId());
+            if (solicitud == null) {
+                log.warn("Solicitud {} no encontrada, se omite el cambio a {}", cambio.solicitudId(), cambio.estado());
+            } else if (solicitud.getEstado() == cambio.estado()) {
+                log.debug("Solicitud {} ya está en estado {}", cambio.solicitudId(), cambio.estado());
+            } else {
+                solicitud.agregarEstadoHistorial(cambio.estado(), cambio.observacion(), usuario);
+                log.info("Estado de solicitud {} actualizado a {}", cambio.solicitudId(), cambio.estado());
+            }
+        }
+        solicitudRepository.saveAll(porId.values());
+    }
+
+    public record CambioEstado(Long solicitudId, Solicitud.EstadoSolicitud estado, String observacion) {}
+
     @Transactional(readOnly = true)
     public SolicitudDTO obtenerPorIdInternal(Long id) {
         Solicitud solicitud = solicitudRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Solicitud no encontrada con ID: " + id));
         return solicitudMapper.toDTO(solicitud);
     }
+
+    /**
+     * Varias solicitudes en una sola consulta (con contenedor, cliente y ubicaciones).
+     * Las que no existen se omiten; el orden es el de los IDs recibidos.
+     */
+    @Transactional(readOnly = true)
+    public List<SolicitudDTO> obtenerPorIdsInternal(List<Long> ids) {
+        Map<Long, Solicitud> porId = solicitudRepository.findAllConDetalleByIdIn(ids).stream()
+                .collect(Collectors.toMap(Solicitud::getId, s -> s));
+        return ids.stream()
+                .distinct()
+                .map(porId::get)
+                .filter(Objects::nonNull)
+                .map(solicitudMapper::toDTO)
+                .collect(Collectors.toList());
+    }
 }
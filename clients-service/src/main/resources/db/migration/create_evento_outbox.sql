@@ -0,0 +1,21 @@
+-- Crear tabla evento_outbox (eventos a publicar hacia otros servicios, p. ej. SOLICITUD_CREADA)
+-- Este script debe ejecutarse manualmente en la base de datos clients_db
+-- (clients-service arranca con ddl-auto: validate y no crea la tabla)
+
+CREATE TABLE IF NOT EXISTS evento_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    tipo VARCHAR(50) NOT NULL,
+    agregado_id BIGINT NOT NULL,
+    estado VARCHAR(20) NOT NULL DEFAULT 'PENDIENTE',
+    intentos INTEGER NOT NULL DEFAULT 0,
+    fecha_creacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    proximo_intento TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    fecha_procesado TIMESTAMP,
+    ultimo_error TEXT,
+    CONSTRAINT chk_evento_outbox_estado CHECK (estado IN ('PENDIENTE', 'ENVIADO', 'DESCARTADO'))
+);
+
+-- Solo las filas pendientes, en el orden en que las lee PublicadorEventos
+CREATE INDEX IF NOT EXISTS idx_evento_outbox_pendientes ON evento_outbox(proximo_intento, id) WHERE estado = 'PENDIENTE';
+
+COMMENT ON TABLE evento_outbox IS 'Eventos escritos en la misma transacción que la solicitud y entregados por PublicadorEventos';
@@ -24,6 +24,8 @@ public class SecurityConfig {
                         .pathMatchers("/api/clientes/registro").permitAll()
                         .pathMatchers("/actuator/**").permitAll()
                         .pathMatchers(org.springframework.http.HttpMethod.POST, "/api/solicitudes").permitAll()
+                        // Los endpoints internos solo se llaman entre servicios, nunca desde afuera
+                        .pathMatchers("/api/*/internal/**").denyAll()
                         .anyExchange().authenticated()
                 )
                 .oauth2ResourceServer(oauth2 -> oauth2
@@ -78,6 +78,20 @@ CREATE TABLE IF NOT EXISTS estado_solicitud (
     CONSTRAINT fk_estado_solicitud FOREIGN KEY (solicitud_id) REFERENCES solicitud(id) ON DELETE CASCADE
 );
 
+-- Tabla: evento_outbox (eventos a publicar hacia otros servicios)
+CREATE TABLE IF NOT EXISTS evento_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    tipo VARCHAR(50) NOT NULL,
+    agregado_id BIGINT NOT NULL,
+    estado VARCHAR(20) NOT NULL DEFAULT 'PENDIENTE',
+    intentos INTEGER NOT NULL DEFAULT 0,
+    fecha_creacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    proximo_intento TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    fecha_procesado TIMESTAMP,
+    ultimo_error TEXT,
+    CONSTRAINT chk_evento_outbox_estado CHECK (estado IN ('PENDIENTE', 'ENVIADO', 'DESCARTADO'))
+);
+
 -- Índices
 CREATE INDEX IF NOT EXISTS idx_contenedor_cliente ON contenedor(cliente_id);
 CREATE INDEX IF NOT EXISTS idx_contenedor_codigo ON contenedor(codigo);
@@ -90,6 +104,7 @@ CREATE INDEX IF NOT EXISTS idx_solicitud_fecha_creacion ON solicitud(fecha_creac
 CREATE INDEX IF NOT EXISTS idx_estado_solicitud_solicitud ON estado_solicitud(solicitud_id);
 CREATE INDEX IF NOT EXISTS idx_estado_solicitud_fecha ON estado_solicitud(fecha_hora);
 CREATE INDEX IF NOT EXISTS idx_estado_solicitud_comp ON estado_solicitud(solicitud_id, fecha_hora DESC);
+CREATE INDEX IF NOT EXISTS idx_evento_outbox_pendientes ON evento_outbox(proximo_intento, id) WHERE estado = 'PENDIENTE';
 
 -- Datos de prueba (opcional)
 -- INSERT INTO cliente (nombre, apellido, email, telefono, direccion) 
@@ -86,6 +86,7 @@ CREATE TABLE IF NOT EXISTS tramo (
     
     -- Datos del tramo
     distancia_km DECIMAL(10, 2) NOT NULL,
+    distancia_estimada BOOLEAN DEFAULT FALSE,
     estado VARCHAR(20) DEFAULT 'ESTIMADO',
     camion_id BIGINT,
     
@@ -111,6 +112,39 @@ CREATE TABLE IF NOT EXISTS tramo (
     CONSTRAINT chk_tramo_estado CHECK (estado IN ('ESTIMADO', 'ASIGNADO', 'INICIADO', 'FINALIZADO'))
 );
 
+-- Tabla: tramo_distancia_cache
+CREATE TABLE IF NOT EXISTS tramo_distancia_cache (
+    id BIGSERIAL PRIMARY KEY,
+    origen_lat BIGINT NOT NULL,
+    origen_lon BIGINT NOT NULL,
+    destino_lat BIGINT NOT NULL,
+    destino_lon BIGINT NOT NULL,
+    precision_decimales INTEGER NOT NULL,
+    distancia_metros DOUBLE PRECISION NOT NULL,
+    duracion_segundos INTEGER NOT NULL,
+    fecha_calculo TIMESTAMP NOT NULL,
+    CONSTRAINT uk_tramo_distancia_cache_puntos
+        UNIQUE (origen_lat, origen_lon, destino_lat, destino_lon, precision_decimales)
+);
+
+-- Tabla: evento_outbox (efectos pendientes sobre clients-service y billing-service)
+CREATE TABLE IF NOT EXISTS evento_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    tipo VARCHAR(50) NOT NULL,
+    solicitud_id BIGINT NOT NULL,
+    ruta_id BIGINT,
+    estado_solicitud VARCHAR(30),
+    observacion VARCHAR(255),
+    estado VARCHAR(20) NOT NULL DEFAULT 'PENDIENTE',
+    intentos INTEGER NOT NULL DEFAULT 0,
+    fecha_creacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    proximo_intento TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    fecha_procesado TIMESTAMP,
+    ultimo_error TEXT,
+    CONSTRAINT chk_evento_outbox_tipo CHECK (tipo IN ('ESTADO_SOLICITUD', 'COSTO_REAL_RUTA')),
+    CONSTRAINT chk_evento_outbox_estado CHECK (estado IN ('PENDIENTE', 'ENVIADO', 'DESCARTADO'))
+);
+
 -- Índices
 CREATE INDEX IF NOT EXISTS idx_deposito_codigo ON deposito(codigo);
 CREATE INDEX IF NOT EXISTS idx_deposito_coords ON deposito(latitud, longitud);
@@ -122,10 +156,12 @@ CREATE INDEX IF NOT EXISTS idx_camion_capacidad ON camion(capacidad_peso_kg, cap
 CREATE INDEX IF NOT EXISTS idx_ruta_solicitud ON ruta(solicitud_id);
 CREATE INDEX IF NOT EXISTS idx_ruta_tipo ON ruta(tipo);
 CREATE INDEX IF NOT EXISTS idx_tramo_ruta ON tramo(ruta_id);
-CREATE INDEX IF NOT EXISTS idx_tramo_camion ON tramo(camion_id);
+CREATE INDEX IF NOT EXISTS idx_tramo_camion_estado ON tramo(camion_id, estado);
 CREATE INDEX IF NOT EXISTS idx_tramo_estado ON tramo(estado);
 CREATE INDEX IF NOT EXISTS idx_tramo_orden ON tramo(ruta_id, numero_orden);
 CREATE INDEX IF NOT EXISTS idx_tramo_fechas ON tramo(fecha_hora_inicio_real, fecha_hora_fin_real);
+CREATE INDEX IF NOT EXISTS idx_tramo_distancia_cache_fecha ON tramo_distancia_cache(fecha_calculo);
+CREATE INDEX IF NOT EXISTS idx_evento_outbox_pendientes ON evento_outbox(solicitud_id, id) WHERE estado = 'PENDIENTE';
 
 -- Datos de prueba
 -- Depósitos de ejemplo
@@ -158,3 +194,4 @@ COMMENT ON TABLE transportista IS 'Conductores de los camiones';
 COMMENT ON TABLE camion IS 'Flota de camiones con capacidades y costos';
 COMMENT ON TABLE ruta IS 'Rutas de transporte con múltiples tramos';
 COMMENT ON TABLE tramo IS 'Segmentos individuales de una ruta entre ubicaciones';
+COMMENT ON TABLE tramo_distancia_cache IS 'Distancias por ruta calculadas por OSRM, con coordenadas redondeadas';
@@ -0,0 +1,180 @@
+package com.transportes.carga;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+/**
+ * Cliente HTTP de la prueba: cada llamada se mide y se registra en {@link Metricas} bajo la
+ * etiqueta del endpoint (por ejemplo "POST /api/solicitudes"), no bajo la URL concreta.
+ */
+class ClienteApi {
+
+    record Respuesta(int estado, JsonNode cuerpo) {
+
+        boolean exitosa() {
+            return estado >= 200 && estado < 300;
+        }
+    }
+
+    private final HttpClient http;
+    private final Metricas metricas;
+    private final Duration timeout;
+
+    ClienteApi(Metricas metricas, Duration timeout, int usuarios) {
+        this.metricas = metricas;
+        this.timeout = timeout;
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newFixedThreadPool(Math.max(2, usuarios), Http.hilosDaemon("cliente-http")))
+                .build();
+    }
+
+    Respuesta get(String endpoint, String url, String token) {
+        return enviar(endpoint, "GET", url, null, token);
+    }
+
+    Respuesta post(String endpoint, String url, Object cuerpo, String token) {
+        return enviar(endpoint, "POST", url, cuerpo, token);
+    }
+
+    /**
+     * GET de Server-Sent Events: registra bajo endpointPrimerEvento el tiempo hasta el primer evento
+     * "ruta" y bajo endpoint el tiempo hasta el fin del stream. El cuerpo es el arreglo con los datos
+     * de los eventos "ruta"; un evento "error" se informa como estado 500.
+     */
+    Respuesta stream(String endpoint, String endpointPrimerEvento, String url, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                .timeout(timeout)
+                .header("Accept", "text/event-stream");
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+
+        long inicio = System.nanoTime();
+        int estado;
+        ArrayNode rutas = Http.JSON.createArrayNode();
+        JsonNode error = null;
+        try {
+            HttpResponse<Stream<String>> response = http.send(builder.GET().build(), HttpResponse.BodyHandlers.ofLines());
+            estado = response.statusCode();
+            String evento = null;
+            Iterator<String> lineas = response.body().iterator();
+            while (lineas.hasNext()) {
+                String linea = lineas.next();
+                if (linea.startsWith("event:")) {
+                    evento = linea.substring(6).trim();
+                } else if (linea.startsWith("data:")) {
+                    JsonNode datos = cuerpo(linea.substring(5));
+                    if ("ruta".equals(evento)) {
+                        if (rutas.isEmpty()) {
+                            metricas.registrar(endpointPrimerEvento, System.nanoTime() - inicio, estado);
+                        }
+                        rutas.add(datos);
+                    } else if ("error".equals(evento)) {
+                        error = datos;
+                    } else if (estado != 200) {
+                        error = cuerpo(linea);
+                    }
+                } else if (estado != 200 && !linea.isBlank()) {
+                    error = cuerpo(linea);
+                }
+            }
+        } catch (IOException e) {
+            estado = 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            estado = 0;
+        }
+        if (estado == 200 && error != null) {
+            estado = 500;
+        }
+        metricas.registrar(endpoint, System.nanoTime() - inicio, estado);
+        if (estado != 200) {
+            metricas.registrarError(endpoint, estado, error != null ? error.toString() : "");
+        }
+        return new Respuesta(estado, error != null ? error : rutas);
+    }
+
+    /**
+     * Formulario application/x-www-form-urlencoded, sin medir (solo para obtener tokens)
+     */
+    Respuesta formulario(String url, String cuerpo) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(timeout)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(cuerpo))
+                .build();
+        return ejecutar(request).respuesta();
+    }
+
+    private Respuesta enviar(String endpoint, String metodo, String url, Object cuerpo, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                .timeout(timeout)
+                .header("Accept", "application/json");
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        if (cuerpo != null) {
+            builder.header("Content-Type", "application/json");
+            builder.method(metodo, HttpRequest.BodyPublishers.ofString(json(cuerpo)));
+        } else {
+            builder.method(metodo, HttpRequest.BodyPublishers.noBody());
+        }
+
+        Medicion medicion = ejecutar(builder.build());
+        metricas.registrar(endpoint, medicion.nanos(), medicion.respuesta().estado());
+        if (!medicion.respuesta().exitosa()) {
+            metricas.registrarError(endpoint, medicion.respuesta().estado(), medicion.respuesta().cuerpo().toString());
+        }
+        return medicion.respuesta();
+    }
+
+    private record Medicion(Respuesta respuesta, long nanos) {
+    }
+
+    private Medicion ejecutar(HttpRequest request) {
+        long inicio = System.nanoTime();
+        Respuesta respuesta;
+        try {
+            HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+            respuesta = new Respuesta(response.statusCode(), cuerpo(response.body()));
+        } catch (IOException e) {
+            respuesta = new Respuesta(0, MissingNode.getInstance());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            respuesta = new Respuesta(0, MissingNode.getInstance());
+        }
+        return new Medicion(respuesta, System.nanoTime() - inicio);
+    }
+
+    private static JsonNode cuerpo(String texto) {
+        if (texto == null || texto.isBlank()) {
+            return MissingNode.getInstance();
+        }
+        try {
+            return Http.JSON.readTree(texto);
+        } catch (IOException e) {
+            return MissingNode.getInstance();
+        }
+    }
+
+    private static String json(Object cuerpo) {
+        try {
+            return Http.JSON.writeValueAsString(cuerpo);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("No se pudo serializar el cuerpo", e);
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package com.transportes.carga;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Datos iniciales y escenarios de la prueba. Cada usuario virtual tiene su propio transportista
+ * y camión, de modo que los flujos completos no compiten por el mismo camión.
+ */
+class FlujoCarga {
+
+    private static final String CLIENTE_TOKEN = "public-app";
+    private static final long RENOVAR_TOKEN_NANOS = 30L * 60 * 1_000_000_000;
+    private static final int SOLICITUDES_POR_LOTE = 10;
+
+    /**
+     * Estado de un usuario virtual; solo lo usa su propio hilo
+     */
+    static class UsuarioVirtual {
+        final int numero;
+        final Random random;
+        Token transportista;
+        long transportistaId;
+        long camionId;
+        long iteraciones;
+
+        UsuarioVirtual(int numero, long semilla) {
+            this.numero = numero;
+            this.random = new Random(semilla * 31 + numero);
+        }
+    }
+
+    private final class Token {
+        private final String usuario;
+        private final String password;
+        private String valor;
+        private long obtenido;
+
+        Token(String usuario, String password) {
+            this.usuario = usuario;
+            this.password = password;
+        }
+
+        synchronized String valor() {
+            if (valor == null || System.nanoTime() - obtenido > RENOVAR_TOKEN_NANOS) {
+                ClienteApi.Respuesta respuesta = api.formulario(urlToken, "grant_type=password&client_id=" + CLIENTE_TOKEN
+                        + "&username=" + URLEncoder.encode(usuario, StandardCharsets.UTF_8)
+                        + "&password=" + URLEncoder.encode(password, StandardCharsets.UTF_8));
+                if (!respuesta.exitosa()) {
+                    throw new IllegalStateException("No se pudo obtener el token de " + usuario + " (" + respuesta.estado() + ")");
+                }
+                valor = respuesta.cuerpo().path("access_token").asText();
+                obtenido = System.nanoTime();
+            }
+            return valor;
+        }
+    }
+
+    private final Opciones opciones;
+    private final ClienteApi api;
+    private final String urlToken;
+    private final Token operador;
+    // Distingue los datos de esta ejecución si los servicios ya estaban levantados
+    private final String corrida = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong secuencia = new AtomicLong();
+    private volatile boolean directo;
+
+    FlujoCarga(Opciones opciones, ClienteApi api, String urlKeycloak) {
+        this.opciones = opciones;
+        this.api = api;
+        this.urlToken = urlKeycloak + "/realms/" + StubKeycloak.REALM + "/protocol/openid-connect/token";
+        this.operador = new Token("operador1@example.com", "Operador123!");
+    }
+
+    /**
+     * Carga tarifas y depósitos. No se mide: corre antes del precalentamiento
+     */
+    void prepararDatos() {
+        Random random = new Random(opciones.semilla());
+        String hoy = LocalDate.now().minusDays(1).toString();
+
+        exigir(api.post("preparar", urlDirecta("/api/tarifas/base"), Map.of(
+                "nombre", "Tarifa carga " + corrida,
+                "costoFijoGestion", 5000,
+                "costoAdicionalPorTramo", 1500,
+                "fechaVigenciaDesde", hoy), operador.valor()), "tarifa base");
+        exigir(api.post("preparar", urlDirecta("/api/tarifas/combustible"), Map.of(
+                "precioPorLitro", 1200,
+                "fechaVigenciaDesde", hoy), operador.valor()), "tarifa de combustible");
+        exigir(api.post("preparar", urlDirecta("/api/tarifas/estadia"), Map.of(
+                "costoPorDia", 20000,
+                "costoPorHora", 1000,
+                "fechaVigenciaDesde", hoy), operador.valor()), "tarifa de estadía");
+        exigir(api.post("preparar", urlDirecta("/api/tarifas/peso-volumen"), Map.of(
+                "pesoMinimoKg", 1, "pesoMaximoKg", 10000,
+                "volumenMinimoM3", 1, "volumenMaximoM3", 100,
+                "multiplicadorCosto", 1,
+                "fechaVigenciaDesde", hoy), operador.valor()), "tarifa de peso/volumen");
+        exigir(api.post("preparar", urlDirecta("/api/tarifas/peso-volumen"), Map.of(
+                "pesoMinimoKg", 10000.01, "pesoMaximoKg", 30000,
+                "volumenMinimoM3", 1, "volumenMaximoM3", 100,
+                "multiplicadorCosto", 1.35,
+                "fechaVigenciaDesde", hoy), operador.valor()), "tarifa de peso/volumen");
+
+        for (int i = 0; i < opciones.depositos(); i++) {
+            exigir(api.post("preparar", urlDirecta("/api/depositos"), Map.of(
+                    "nombre", "Depósito carga " + corrida + "-" + i,
+                    "direccion", "Ruta " + (i + 1),
+                    "latitud", latitud(random),
+                    "longitud", longitud(random),
+                    "capacidadMaxima", 500), operador.valor()), "depósito");
+        }
+    }
+
+    /**
+     * Crea el transportista y el camión del usuario virtual (solo para el escenario completo)
+     */
+    void prepararUsuario(UsuarioVirtual usuario) {
+        if (!"completo".equals(opciones.escenario())) {
+            return;
+        }
+        long n = secuencia.incrementAndGet();
+        String email = "transportista-" + corrida + "-" + n + "@carga.example.com";
+        Map<String, Object> transportista = new LinkedHashMap<>();
+        transportista.put("nombre", "Transportista");
+        transportista.put("apellido", "Carga " + n);
+        transportista.put("dni", String.valueOf(40_000_000 + Math.floorMod(corrida.hashCode() * 1000L + n, 50_000_000L)));
+        transportista.put("telefono", "11" + String.format("%08d", n));
+        transportista.put("email", email);
+        transportista.put("licenciaConducir", "LIC-" + corrida + "-" + n);
+        transportista.put("password", "Carga123!");
+        JsonNode creado = exigir(api.post("preparar", urlDirecta("/api/transportista"), transportista, operador.valor()), "transportista");
+
+        usuario.transportista = new Token(email, "Carga123!");
+        usuario.transportista.valor();
+        usuario.transportistaId = creado.path("id").asLong();
+        usuario.camionId = crearCamion(usuario.transportistaId);
+    }
+
+    /**
+     * Ejecuta una iteración del escenario. Devuelve el estado HTTP del primer paso que falló, o 200
+     */
+    int iterar(UsuarioVirtual usuario) {
+        usuario.iteraciones++;
+        if ("lote".equals(opciones.escenario())) {
+            return iterarLote(usuario);
+        }
+        ClienteApi.Respuesta solicitud = api.post("POST /api/solicitudes", url("/api/solicitudes"),
+                nuevaSolicitud(usuario), null);
+        if (!solicitud.exitosa() || "solicitudes".equals(opciones.escenario())) {
+            return solicitud.estado();
+        }
+        long solicitudId = solicitud.cuerpo().path("id").asLong();
+        esperarOperador();
+
+        if ("alternativas-stream".equals(opciones.escenario())) {
+            return api.stream("GET /api/rutas/alternativas/{id}/stream", "SSE primera alternativa",
+                    url("/api/rutas/alternativas/" + solicitudId + "/stream"), operador.valor()).estado();
+        }
+        ClienteApi.Respuesta alternativas = api.get("GET /api/rutas/alternativas/{id}",
+                url("/api/rutas/alternativas/" + solicitudId), operador.valor());
+        if (!alternativas.exitosa() || "alternativas".equals(opciones.escenario())) {
+            return alternativas.estado();
+        }
+        JsonNode rutas = alternativas.cuerpo();
+        if (!rutas.isArray() || rutas.isEmpty()) {
+            return 0;
+        }
+
+        int indice = (int) (usuario.iteraciones % rutas.size());
+        String version = rutas.get(indice).path("version").asText("");
+        ClienteApi.Respuesta asignada = api.post("POST /api/rutas/{id}/asignar/{indice}",
+                url("/api/rutas/" + solicitudId + "/asignar/" + indice
+                        + (version.isEmpty() ? "" : "?version=" + URLEncoder.encode(version, StandardCharsets.UTF_8))),
+                null, operador.valor());
+        if (!asignada.exitosa()) {
+            return asignada.estado();
+        }
+
+        List<JsonNode> tramos = new ArrayList<>();
+        asignada.cuerpo().path("tramos").forEach(tramos::add);
+        tramos.sort(Comparator.comparingInt(t -> t.path("numeroOrden").asInt()));
+        for (JsonNode tramo : tramos) {
+            long tramoId = tramo.path("id").asLong();
+            int estado = recorrerTramo(usuario, tramoId);
+            if (estado != 200) {
+                // El camión pudo quedar ocupado: el usuario sigue con uno nuevo
+                usuario.camionId = crearCamion(usuario.transportistaId);
+                return estado;
+            }
+        }
+        return 200;
+    }
+
+    /**
+     * Crea varias solicitudes y genera sus alternativas con una sola llamada al endpoint de lote
+     */
+    private int iterarLote(UsuarioVirtual usuario) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < SOLICITUDES_POR_LOTE; i++) {
+            ClienteApi.Respuesta solicitud = api.post("POST /api/solicitudes", url("/api/solicitudes"),
+                    nuevaSolicitud(usuario), null);
+            if (!solicitud.exitosa()) {
+                return solicitud.estado();
+            }
+            ids.add(solicitud.cuerpo().path("id").asLong());
+        }
+        esperarOperador();
+        ClienteApi.Respuesta lote = api.post("POST /api/rutas/alternativas/lote",
+                url("/api/rutas/alternativas/lote"), ids, operador.valor());
+        if (!lote.exitosa()) {
+            return lote.estado();
+        }
+        for (JsonNode resultado : lote.cuerpo()) {
+            if (!resultado.path("error").isMissingNode() && !resultado.path("error").isNull()) {
+                return 0;
+            }
+        }
+        return 200;
+    }
+
+    private void esperarOperador() {
+        if (opciones.esperaOperadorMs() > 0) {
+            try {
+                Thread.sleep(opciones.esperaOperadorMs());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private int recorrerTramo(UsuarioVirtual usuario, long tramoId) {
+        ClienteApi.Respuesta respuesta = api.post("POST /api/tramos/{id}/asignar-camion",
+                url("/api/tramos/" + tramoId + "/asignar-camion?camionId=" + usuario.camionId), null, operador.valor());
+        if (!respuesta.exitosa()) {
+            return respuesta.estado();
+        }
+        respuesta = api.post("POST /api/transportista/tramos/{id}/iniciar",
+                url("/api/transportista/tramos/" + tramoId + "/iniciar"), null, usuario.transportista.valor());
+        if (!respuesta.exitosa()) {
+            return respuesta.estado();
+        }
+        respuesta = api.post("POST /api/transportista/tramos/{id}/finalizar",
+                url("/api/transportista/tramos/" + tramoId + "/finalizar"), null, usuario.transportista.valor());
+        return respuesta.exitosa() ? 200 : respuesta.estado();
+    }
+
+    private long crearCamion(long transportistaId) {
+        long n = secuencia.incrementAndGet();
+        Map<String, Object> camion = new LinkedHashMap<>();
+        camion.put("dominio", dominio(Math.floorMod(corrida.hashCode(), 10_000) * 100_000L + n));
+        camion.put("marca", "Carga");
+        camion.put("modelo", "Prueba");
+        camion.put("anio", 2022);
+        camion.put("capacidadPesoKg", 30000);
+        camion.put("capacidadVolumenM3", 100);
+        camion.put("consumoCombustibleKmLitro", 2.5);
+        camion.put("costoBasePorKm", 850);
+        camion.put("transportistaId", transportistaId);
+        return exigir(api.post("POST /api/camiones", urlDirecta("/api/camiones"), camion, operador.valor()), "camión").path("id").asLong();
+    }
+
+    private Map<String, Object> nuevaSolicitud(UsuarioVirtual usuario) {
+        Random random = usuario.random;
+        long n = secuencia.incrementAndGet();
+        Map<String, Object> solicitud = new LinkedHashMap<>();
+        solicitud.put("nombre", "Cliente");
+        solicitud.put("apellido", "Carga " + n);
+        solicitud.put("email", "cliente-" + corrida + "-" + n + "@carga.example.com");
+        solicitud.put("password", "Carga123!");
+        solicitud.put("telefono", "11" + String.format("%08d", n));
+        solicitud.put("contenedor", Map.of(
+                "pesoKg", decimal(500 + random.nextDouble() * 19_500),
+                "volumenM3", decimal(5 + random.nextDouble() * 55),
+                "descripcion", "Contenedor de prueba"));
+        solicitud.put("origen", Map.of("direccion", "Origen " + n, "latitud", latitud(random), "longitud", longitud(random)));
+        solicitud.put("destino", Map.of("direccion", "Destino " + n, "latitud", latitud(random), "longitud", longitud(random)));
+        return solicitud;
+    }
+
+    /**
+     * Saltea el gateway aunque la prueba sea vía gateway (se usa al inicio del precalentamiento)
+     */
+    void usarDirecto(boolean directo) {
+        this.directo = directo;
+    }
+
+    /**
+     * URL del endpoint, vía gateway o directo al servicio dueño del path
+     */
+    private String url(String path) {
+        return opciones.viaGateway() && !directo ? Servicios.Servicio.GATEWAY.url() + path : urlDirecta(path);
+    }
+
+    // Los datos iniciales no se miden y van directo: el circuit breaker del gateway corta a 1 s
+    // y las primeras llamadas a un servicio recién levantado pueden superarlo
+    private static String urlDirecta(String path) {
+        if (path.startsWith("/api/solicitudes") || path.startsWith("/api/clientes") || path.startsWith("/api/contenedores")) {
+            return Servicios.Servicio.CLIENTS.url() + path;
+        }
+        if (path.startsWith("/api/tarifas") || path.startsWith("/api/costos")) {
+            return Servicios.Servicio.BILLING.url() + path;
+        }
+        return Servicios.Servicio.LOGISTICS.url() + path;
+    }
+
+    private static JsonNode exigir(ClienteApi.Respuesta respuesta, String que) {
+        if (!respuesta.exitosa()) {
+            throw new IllegalStateException("No se pudo crear " + que + " (" + respuesta.estado() + "): " + respuesta.cuerpo());
+        }
+        return respuesta.cuerpo();
+    }
+
+    // Patente con el formato validado por CamionDTO: 2 letras, 3 dígitos, 2 letras
+    static String dominio(long n) {
+        char[] letras = new char[4];
+        long resto = n / 1000;
+        for (int i = 3; i >= 0; i--) {
+            letras[i] = (char) ('A' + resto % 26);
+            resto /= 26;
+        }
+        return "" + letras[0] + letras[1] + String.format("%03d", n % 1000) + letras[2] + letras[3];
+    }
+
+    // Coordenadas dentro de Argentina continental
+    private static BigDecimal latitud(Random random) {
+        return BigDecimal.valueOf(-55 + random.nextDouble() * 33).setScale(6, RoundingMode.HALF_UP);
+    }
+
+    private static BigDecimal longitud(Random random) {
+        return BigDecimal.valueOf(-73 + random.nextDouble() * 20).setScale(6, RoundingMode.HALF_UP);
+    }
+
+    private static BigDecimal decimal(double valor) {
+        return BigDecimal.valueOf(valor).setScale(2, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,82 @@
+package com.transportes.carga;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Utilidades compartidas por los stubs HTTP y el cliente de carga
+ */
+final class Http {
+
+    static final ObjectMapper JSON = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private Http() {
+    }
+
+    /**
+     * Hilos daemon, para que la JVM termine aunque quede algún servidor o cliente abierto
+     */
+    static ThreadFactory hilosDaemon(String nombre) {
+        AtomicInteger contador = new AtomicInteger();
+        return tarea -> {
+            Thread hilo = new Thread(tarea, nombre + "-" + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        };
+    }
+
+    static void enviarJson(HttpExchange intercambio, int estado, Object cuerpo) throws IOException {
+        intercambio.getResponseHeaders().set("Content-Type", "application/json");
+        enviar(intercambio, estado, JSON.writeValueAsString(cuerpo));
+    }
+
+    static void enviar(HttpExchange intercambio, int estado, String cuerpo) throws IOException {
+        byte[] bytes = cuerpo.getBytes(StandardCharsets.UTF_8);
+        intercambio.sendResponseHeaders(estado, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream salida = intercambio.getResponseBody()) {
+                salida.write(bytes);
+            }
+        }
+        intercambio.close();
+    }
+
+    static String leer(HttpExchange intercambio) throws IOException {
+        try (InputStream entrada = intercambio.getRequestBody()) {
+            return new String(entrada.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Parámetros de una query string o de un formulario application/x-www-form-urlencoded
+     */
+    static Map<String, String> parametros(String texto) {
+        Map<String, String> parametros = new LinkedHashMap<>();
+        if (texto == null || texto.isEmpty()) {
+            return parametros;
+        }
+        for (String par : texto.split("&")) {
+            int igual = par.indexOf('=');
+            String clave = igual < 0 ? par : par.substring(0, igual);
+            String valor = igual < 0 ? "" : par.substring(igual + 1);
+            parametros.put(URLDecoder.decode(clave, StandardCharsets.UTF_8), URLDecoder.decode(valor, StandardCharsets.UTF_8));
+        }
+        return parametros;
+    }
+}
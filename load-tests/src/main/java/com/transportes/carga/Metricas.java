@@ -0,0 +1,139 @@
+package com.transportes.carga;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registro de latencias por endpoint. Solo se guardan las muestras tomadas después de
+ * {@link #comenzarMedicion()}, para que el precalentamiento no afecte los percentiles.
+ */
+class Metricas {
+
+    record Resultado(
+            String endpoint,
+            long solicitudes,
+            long errores,
+            double porSegundo,
+            double p50Ms,
+            double p99Ms,
+            double p999Ms,
+            double maxMs,
+            Map<Integer, Long> estados) {
+    }
+
+    private static class Serie {
+        private long[] latencias = new long[1024];
+        private int cantidad;
+        private long errores;
+        private final Map<Integer, Long> estados = new TreeMap<>();
+
+        synchronized void registrar(long nanos, int estado) {
+            if (cantidad == latencias.length) {
+                latencias = Arrays.copyOf(latencias, cantidad * 2);
+            }
+            latencias[cantidad++] = nanos;
+            if (estado < 200 || estado >= 300) {
+                errores++;
+            }
+            estados.merge(estado, 1L, Long::sum);
+        }
+
+        synchronized Resultado resultado(String endpoint, double segundos) {
+            long[] ordenadas = Arrays.copyOf(latencias, cantidad);
+            Arrays.sort(ordenadas);
+            return new Resultado(endpoint, cantidad, errores, cantidad / segundos,
+                    percentil(ordenadas, 0.50), percentil(ordenadas, 0.99), percentil(ordenadas, 0.999),
+                    cantidad == 0 ? 0 : ordenadas[cantidad - 1] / 1e6, new TreeMap<>(estados));
+        }
+    }
+
+    private final Map<String, Serie> series = new ConcurrentHashMap<>();
+    // Primer cuerpo de error por endpoint y estado, para diagnosticar sin revisar los logs
+    private final Map<String, String> ejemplosError = new ConcurrentHashMap<>();
+    private volatile boolean midiendo;
+    private volatile long inicio;
+    private volatile long fin;
+
+    void comenzarMedicion() {
+        inicio = System.nanoTime();
+        midiendo = true;
+    }
+
+    void terminarMedicion() {
+        midiendo = false;
+        fin = System.nanoTime();
+    }
+
+    /**
+     * Estado 0 significa que la solicitud no obtuvo respuesta (timeout, conexión rechazada, etc.)
+     */
+    void registrar(String endpoint, long nanos, int estado) {
+        if (midiendo) {
+            series.computeIfAbsent(endpoint, e -> new Serie()).registrar(nanos, estado);
+        }
+    }
+
+    void registrarError(String endpoint, int estado, String cuerpo) {
+        if (midiendo) {
+            ejemplosError.putIfAbsent(endpoint + " -> " + estado, cuerpo.length() > 300 ? cuerpo.substring(0, 300) + "..." : cuerpo);
+        }
+    }
+
+    double segundosMedidos() {
+        return (fin - inicio) / 1e9;
+    }
+
+    List<Resultado> resultados() {
+        double segundos = segundosMedidos();
+        List<Resultado> resultados = new ArrayList<>();
+        new TreeMap<>(series).forEach((endpoint, serie) -> resultados.add(serie.resultado(endpoint, segundos)));
+        return resultados;
+    }
+
+    void imprimir() {
+        List<Resultado> resultados = resultados();
+        int ancho = resultados.stream().mapToInt(r -> r.endpoint().length()).max().orElse(10);
+        String formato = "%-" + ancho + "s %9s %8s %9s %9s %9s %9s %9s  %s%n";
+        System.out.printf("%nResultados (%.1f s medidos)%n", segundosMedidos());
+        System.out.printf(formato, "Endpoint", "Total", "Errores", "req/s", "p50 ms", "p99 ms", "p999 ms", "máx ms", "Estados");
+        for (Resultado r : resultados) {
+            System.out.printf(formato, r.endpoint(), r.solicitudes(), r.errores(),
+                    String.format("%.1f", r.porSegundo()), String.format("%.1f", r.p50Ms()),
+                    String.format("%.1f", r.p99Ms()), String.format("%.1f", r.p999Ms()),
+                    String.format("%.1f", r.maxMs()), r.estados());
+        }
+        if (!ejemplosError.isEmpty()) {
+            System.out.printf("%nPrimer error de cada endpoint%n");
+            new TreeMap<>(ejemplosError).forEach((clave, cuerpo) -> System.out.println(clave + ": " + cuerpo));
+        }
+    }
+
+    void guardar(Path archivo, Opciones opciones) throws IOException {
+        Map<String, Object> reporte = new LinkedHashMap<>();
+        reporte.put("opciones", opciones.toString());
+        reporte.put("segundosMedidos", segundosMedidos());
+        reporte.put("endpoints", resultados());
+        reporte.put("ejemplosError", new TreeMap<>(ejemplosError));
+        if (archivo.getParent() != null) {
+            Files.createDirectories(archivo.getParent());
+        }
+        Http.JSON.writerWithDefaultPrettyPrinter().writeValue(archivo.toFile(), reporte);
+    }
+
+    // Percentil por rango más cercano
+    private static double percentil(long[] ordenadas, double p) {
+        if (ordenadas.length == 0) {
+            return 0;
+        }
+        int rango = (int) Math.ceil(p * ordenadas.length);
+        return ordenadas[Math.max(0, rango - 1)] / 1e6;
+    }
+}
@@ -0,0 +1,116 @@
+package com.transportes.carga;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Opciones de la prueba de carga, en formato --clave=valor
+ */
+record Opciones(
+        String escenario,
+        int usuarios,
+        int duracionS,
+        int precalentamientoS,
+        int depositos,
+        long osrmLatenciaMs,
+        long osrmJitterMs,
+        int puertoOsrm,
+        int puertoKeycloak,
+        boolean iniciarServicios,
+        boolean viaGateway,
+        String jvmServicios,
+        int timeoutS,
+        long esperaOperadorMs,
+        long semilla,
+        Path raiz,
+        Path salida) {
+
+    static final Set<String> ESCENARIOS = Set.of("completo", "alternativas", "alternativas-stream", "lote", "solicitudes");
+
+    static final String AYUDA = """
+            Uso: java -jar load-tests/target/load-tests-1.0.0.jar [opciones]
+
+              --escenario=completo        completo (crear solicitud, alternativas, asignar ruta,
+                                          asignar camión, iniciar y finalizar cada tramo),
+                                          alternativas (crear solicitud y alternativas),
+                                          alternativas-stream (igual, por Server-Sent Events),
+                                          lote (crear 10 solicitudes y sus alternativas en una llamada)
+                                          o solicitudes
+              --usuarios=8                usuarios virtuales concurrentes
+              --duracion=60               segundos de medición
+              --precalentamiento=10       segundos previos a la medición (no se reportan)
+              --depositos=30              depósitos a crear al preparar los datos
+              --osrm-latencia-ms=20       latencia fija del OSRM simulado
+              --osrm-jitter-ms=10         latencia extra máxima (determinista por consulta)
+              --puerto-osrm=5000
+              --puerto-keycloak=8180
+              --iniciar-servicios=true    false para usar servicios ya levantados (puertos 8080-8083)
+              --via-gateway=true          false para llamar directamente a cada servicio
+              --jvm-servicios=-Xmx512m    opciones de JVM de cada servicio
+              --timeout=30                timeout de cada request, en segundos
+              --espera-operador-ms=0      pausa entre crear la solicitud y pedir sus alternativas
+                                          (da tiempo al precálculo en segundo plano; cuenta en FLUJO)
+              --semilla=42                semilla de los datos aleatorios
+              --raiz=.                    raíz del proyecto (donde están los JAR de los servicios)
+              --salida=<archivo.json>     guarda el reporte en JSON
+            """;
+
+    static Opciones de(String[] args) {
+        Map<String, String> valores = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Opción inválida: " + arg);
+            }
+            int igual = arg.indexOf('=');
+            valores.put(igual < 0 ? arg.substring(2) : arg.substring(2, igual), igual < 0 ? "true" : arg.substring(igual + 1));
+        }
+
+        Opciones opciones = new Opciones(
+                texto(valores, "escenario", "completo"),
+                entero(valores, "usuarios", 8),
+                entero(valores, "duracion", 60),
+                entero(valores, "precalentamiento", 10),
+                entero(valores, "depositos", 30),
+                entero(valores, "osrm-latencia-ms", 20),
+                entero(valores, "osrm-jitter-ms", 10),
+                entero(valores, "puerto-osrm", 5000),
+                entero(valores, "puerto-keycloak", 8180),
+                Boolean.parseBoolean(texto(valores, "iniciar-servicios", "true")),
+                Boolean.parseBoolean(texto(valores, "via-gateway", "true")),
+                texto(valores, "jvm-servicios", "-Xmx512m"),
+                entero(valores, "timeout", 30),
+                entero(valores, "espera-operador-ms", 0),
+                entero(valores, "semilla", 42),
+                Path.of(texto(valores, "raiz", ".")).toAbsolutePath().normalize(),
+                valores.containsKey("salida") ? Path.of(valores.remove("salida")) : null);
+
+        valores.keySet().removeAll(Set.of("escenario", "usuarios", "duracion", "precalentamiento", "depositos",
+                "osrm-latencia-ms", "osrm-jitter-ms", "puerto-osrm", "puerto-keycloak", "iniciar-servicios",
+                "via-gateway", "jvm-servicios", "timeout", "espera-operador-ms", "semilla", "raiz", "ayuda"));
+        if (!valores.isEmpty()) {
+            throw new IllegalArgumentException("Opciones desconocidas: " + valores.keySet());
+        }
+        if (!ESCENARIOS.contains(opciones.escenario())) {
+            throw new IllegalArgumentException("Escenario desconocido: " + opciones.escenario());
+        }
+        if (opciones.usuarios() < 1 || opciones.duracionS() < 1) {
+            throw new IllegalArgumentException("Se necesita al menos un usuario y un segundo de medición");
+        }
+        return opciones;
+    }
+
+    private static String texto(Map<String, String> valores, String clave, String porDefecto) {
+        return valores.getOrDefault(clave, porDefecto);
+    }
+
+    private static int entero(Map<String, String> valores, String clave, int porDefecto) {
+        String valor = valores.get(clave);
+        try {
+            return valor != null ? Integer.parseInt(valor) : porDefecto;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + clave + " debe ser un número entero: " + valor);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.transportes.carga;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Prueba de carga de punta a punta: levanta OSRM y Keycloak simulados, los cuatro servicios con H2,
+ * carga datos iniciales y ejecuta el escenario elegido con N usuarios virtuales concurrentes.
+ * Reporta solicitudes por segundo y percentiles p50/p99/p999 por endpoint.
+ */
+public class PruebaCarga {
+
+    public static void main(String[] args) throws Exception {
+        Opciones opciones;
+        try {
+            opciones = Opciones.de(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(Opciones.AYUDA);
+            System.exit(2);
+            return;
+        }
+        if (List.of(args).contains("--ayuda")) {
+            System.out.println(Opciones.AYUDA);
+            return;
+        }
+
+        StubOsrm osrm = null;
+        StubKeycloak keycloak = null;
+        Servicios servicios = null;
+        try {
+            if (opciones.iniciarServicios()) {
+                osrm = new StubOsrm(opciones.puertoOsrm(), opciones.osrmLatenciaMs(), opciones.osrmJitterMs());
+                osrm.iniciar();
+                keycloak = new StubKeycloak(opciones.puertoKeycloak());
+                keycloak.iniciar();
+                servicios = new Servicios(opciones, keycloak);
+                Servicios serviciosIniciados = servicios;
+                Runtime.getRuntime().addShutdownHook(new Thread(serviciosIniciados::detener));
+                servicios.iniciar();
+            }
+            ejecutar(opciones);
+        } finally {
+            if (servicios != null) {
+                servicios.detener();
+            }
+            if (keycloak != null) {
+                keycloak.detener();
+            }
+            if (osrm != null) {
+                osrm.detener();
+            }
+        }
+    }
+
+    private static void ejecutar(Opciones opciones) throws Exception {
+        Metricas metricas = new Metricas();
+        ClienteApi api = new ClienteApi(metricas, Duration.ofSeconds(opciones.timeoutS()), opciones.usuarios());
+        FlujoCarga flujo = new FlujoCarga(opciones, api, "http://localhost:" + opciones.puertoKeycloak());
+
+        System.out.println("Preparando datos (" + opciones.depositos() + " depósitos, "
+                + opciones.usuarios() + " usuarios)");
+        flujo.prepararDatos();
+        List<FlujoCarga.UsuarioVirtual> usuarios = new ArrayList<>();
+        for (int i = 0; i < opciones.usuarios(); i++) {
+            FlujoCarga.UsuarioVirtual usuario = new FlujoCarga.UsuarioVirtual(i, opciones.semilla());
+            flujo.prepararUsuario(usuario);
+            usuarios.add(usuario);
+        }
+
+        String etiquetaFlujo = "FLUJO " + opciones.escenario();
+        AtomicBoolean activo = new AtomicBoolean(true);
+        CountDownLatch terminados = new CountDownLatch(usuarios.size());
+        for (FlujoCarga.UsuarioVirtual usuario : usuarios) {
+            Thread hilo = new Thread(() -> {
+                try {
+                    while (activo.get()) {
+                        long inicio = System.nanoTime();
+                        int estado;
+                        try {
+                            estado = flujo.iterar(usuario);
+                        } catch (RuntimeException e) {
+                            estado = 0;
+                        }
+                        metricas.registrar(etiquetaFlujo, System.nanoTime() - inicio, estado);
+                    }
+                } finally {
+                    terminados.countDown();
+                }
+            }, "usuario-" + usuario.numero);
+            hilo.setDaemon(true);
+            hilo.start();
+        }
+
+        System.out.println("Precalentando " + opciones.precalentamientoS() + " s");
+        if (opciones.viaGateway()) {
+            // Con los servicios en frío las primeras respuestas superan el límite de 1 s del circuit
+            // breaker del gateway y lo abren; la primera mitad del precalentamiento va directo
+            flujo.usarDirecto(true);
+            Thread.sleep(opciones.precalentamientoS() * 500L);
+            flujo.usarDirecto(false);
+            Thread.sleep(opciones.precalentamientoS() * 500L);
+        } else {
+            Thread.sleep(opciones.precalentamientoS() * 1000L);
+        }
+        System.out.println("Midiendo " + opciones.duracionS() + " s con " + opciones.usuarios()
+                + " usuarios, escenario " + opciones.escenario());
+        metricas.comenzarMedicion();
+        Thread.sleep(opciones.duracionS() * 1000L);
+        metricas.terminarMedicion();
+        activo.set(false);
+        terminados.await();
+
+        metricas.imprimir();
+        if (opciones.salida() != null) {
+            metricas.guardar(opciones.salida(), opciones);
+            System.out.println("Reporte guardado en " + opciones.salida().toAbsolutePath());
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.transportes.carga;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Levanta los cuatro servicios como procesos separados a partir de sus JAR ejecutables, con H2 en
+ * memoria en lugar de PostgreSQL y apuntando al OSRM y al Keycloak simulados.
+ * La salida de cada servicio queda en load-tests/target/carga/&lt;servicio&gt;.log.
+ */
+class Servicios {
+
+    enum Servicio {
+        CLIENTS("clients-service", 8081, "clients"),
+        LOGISTICS("logistics-service", 8082, "logistics"),
+        BILLING("billing-service", 8083, "billing"),
+        GATEWAY("gateway-service", 8080, null);
+
+        final String nombre;
+        final int puerto;
+        final String baseDatos; // null si el servicio no usa base de datos
+
+        Servicio(String nombre, int puerto, String baseDatos) {
+            this.nombre = nombre;
+            this.puerto = puerto;
+            this.baseDatos = baseDatos;
+        }
+
+        String url() {
+            return "http://localhost:" + puerto;
+        }
+    }
+
+    private static final Duration ESPERA_MAXIMA = Duration.ofMinutes(3);
+    private static final String LANZADOR = "org.springframework.boot.loader.launch.PropertiesLauncher";
+
+    private final Opciones opciones;
+    private final StubKeycloak keycloak;
+    private final Map<Servicio, Process> procesos = new EnumMap<>(Servicio.class);
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+
+    Servicios(Opciones opciones, StubKeycloak keycloak) {
+        this.opciones = opciones;
+        this.keycloak = keycloak;
+    }
+
+    void iniciar() throws IOException, InterruptedException {
+        Path logs = opciones.raiz().resolve("load-tests/target/carga");
+        Files.createDirectories(logs);
+
+        // El gateway al final: sus rutas apuntan a los otros tres
+        for (Servicio servicio : List.of(Servicio.CLIENTS, Servicio.LOGISTICS, Servicio.BILLING)) {
+            lanzar(servicio, logs);
+        }
+        for (Servicio servicio : List.of(Servicio.CLIENTS, Servicio.LOGISTICS, Servicio.BILLING)) {
+            esperar(servicio, logs);
+        }
+        lanzar(Servicio.GATEWAY, logs);
+        esperar(Servicio.GATEWAY, logs);
+    }
+
+    void detener() {
+        for (Process proceso : procesos.values()) {
+            proceso.destroy();
+        }
+        for (Process proceso : procesos.values()) {
+            try {
+                if (!proceso.waitFor(20, TimeUnit.SECONDS)) {
+                    proceso.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                proceso.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+        procesos.clear();
+    }
+
+    private void lanzar(Servicio servicio, Path logs) throws IOException {
+        Path jar = opciones.raiz().resolve(servicio.nombre + "/target/" + servicio.nombre + "-" + version() + "-exec.jar");
+        if (!Files.isRegularFile(jar)) {
+            throw new IllegalStateException("No se encontró " + jar + " (ejecutar antes: mvn package -DskipTests)");
+        }
+
+        List<String> comando = new ArrayList<>();
+        comando.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        for (String opcion : opciones.jvmServicios().trim().split("\\s+")) {
+            if (!opcion.isEmpty()) {
+                comando.add(opcion);
+            }
+        }
+        if (servicio.baseDatos != null) {
+            // Los JAR de los servicios solo incluyen el driver de PostgreSQL
+            comando.add("-Dloader.path=" + jarH2());
+        }
+        comando.add("-cp");
+        comando.add(jar.toString());
+        comando.add(LANZADOR);
+        comando.addAll(argumentos(servicio));
+
+        System.out.println("Iniciando " + servicio.nombre + " en el puerto " + servicio.puerto);
+        Process proceso = new ProcessBuilder(comando)
+                .redirectErrorStream(true)
+                .redirectOutput(logs.resolve(servicio.nombre + ".log").toFile())
+                .start();
+        procesos.put(servicio, proceso);
+    }
+
+    private List<String> argumentos(Servicio servicio) {
+        List<String> argumentos = new ArrayList<>(List.of(
+                "--server.port=" + servicio.puerto,
+                "--spring.security.oauth2.resourceserver.jwt.jwk-set-uri=" + keycloak.jwkSetUri(),
+                "--logging.level.root=WARN",
+                "--logging.level.com.transportes=WARN",
+                "--logging.level.org.springframework.security=WARN",
+                "--logging.level.org.springframework.cloud.gateway=WARN",
+                "--logging.level.org.hibernate.SQL=WARN"));
+
+        if (servicio.baseDatos != null) {
+            argumentos.addAll(List.of(
+                    "--spring.datasource.url=jdbc:h2:mem:" + servicio.baseDatos
+                            + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+                    "--spring.datasource.driver-class-name=org.h2.Driver",
+                    "--spring.datasource.username=sa",
+                    "--spring.datasource.password=",
+                    "--spring.jpa.hibernate.ddl-auto=create",
+                    "--spring.jpa.show-sql=false",
+                    "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                    "--keycloak.auth-server-url=" + keycloak.url(),
+                    "--clients.service.url=" + Servicio.CLIENTS.url(),
+                    "--logistics.service.url=" + Servicio.LOGISTICS.url(),
+                    "--billing.service.url=" + Servicio.BILLING.url()));
+        }
+        if (servicio == Servicio.LOGISTICS) {
+            argumentos.addAll(List.of(
+                    "--osrm.service.url=http://localhost:" + opciones.puertoOsrm(),
+                    // La tabla de distancias persistida usa un upsert propio de PostgreSQL
+                    "--osrm.cache.persistencia.habilitada=false",
+                    "--depositos.matriz.archivo="
+                            + opciones.raiz().resolve("load-tests/target/carga/matriz-depositos.bin")));
+        }
+        return argumentos;
+    }
+
+    private void esperar(Servicio servicio, Path logs) throws InterruptedException {
+        Process proceso = procesos.get(servicio);
+        long limite = System.nanoTime() + ESPERA_MAXIMA.toNanos();
+        HttpRequest salud = HttpRequest.newBuilder(URI.create(servicio.url() + "/actuator/health"))
+                .timeout(Duration.ofSeconds(2))
+                .build();
+        while (System.nanoTime() < limite) {
+            if (!proceso.isAlive()) {
+                throw new IllegalStateException(servicio.nombre + " terminó al iniciar; ver "
+                        + logs.resolve(servicio.nombre + ".log"));
+            }
+            try {
+                if (http.send(salud, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    System.out.println(servicio.nombre + " listo");
+                    return;
+                }
+            } catch (IOException e) {
+                // Todavía no escucha
+            }
+            Thread.sleep(500);
+        }
+        throw new IllegalStateException(servicio.nombre + " no respondió en " + ESPERA_MAXIMA.toSeconds()
+                + " s; ver " + logs.resolve(servicio.nombre + ".log"));
+    }
+
+    private static String jarH2() {
+        try {
+            return Path.of(org.h2.Driver.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException("No se pudo ubicar el JAR de H2", e);
+        }
+    }
+
+    private static String version() {
+        String version = Servicios.class.getPackage().getImplementationVersion();
+        return version != null ? version : "1.0.0";
+    }
+}
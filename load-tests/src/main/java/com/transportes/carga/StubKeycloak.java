@@ -0,0 +1,386 @@
+package com.transportes.carga;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+
+/**
+ * Keycloak simulado, con lo que usan los servicios y la prueba de carga:
+ * <ul>
+ *   <li>JWKS del realm ({@code /realms/{realm}/protocol/openid-connect/certs})</li>
+ *   <li>emisión de tokens RS256 con grant password, refresh_token y client_credentials (cuentas de
+ *       servicio de los microservicios, con rol SERVICIO)</li>
+ *   <li>API de administración de usuarios que usa keycloak-admin-client (búsqueda, alta,
+ *       asignación de roles de realm y baja)</li>
+ * </ul>
+ * Los usuarios viven en memoria; se cargan los mismos usuarios de ejemplo que realm-export.json.
+ */
+class StubKeycloak {
+
+    static final String REALM = "transportes-realm";
+    private static final String REALM_ADMIN = "master";
+    private static final List<String> ROLES = List.of("CLIENTE", "OPERADOR", "TRANSPORTISTA", "SERVICIO");
+    // Clientes confidenciales con cuenta de servicio, con los mismos secretos que realm-export.json
+    private static final Map<String, String> SECRETOS_CLIENTES = Map.of(
+            "clients-service", "clients-service-secret",
+            "logistics-service", "logistics-service-secret",
+            "billing-service", "billing-service-secret");
+    private static final long DURACION_TOKEN_S = 3600;
+    private static final String KID = "carga";
+
+    private final HttpServer servidor;
+    private final int puerto;
+    private final KeyPair claves;
+
+    private final Map<String, Map<String, Usuario>> usuariosPorRealm = new ConcurrentHashMap<>();
+    private final Map<String, Usuario> refrescos = new ConcurrentHashMap<>();
+
+    record Usuario(String id, String realm, String username, String email, String nombre, String apellido,
+                   String password, Set<String> roles) {}
+
+    StubKeycloak(int puerto) throws IOException, GeneralSecurityException {
+        this.puerto = puerto;
+        KeyPairGenerator generador = KeyPairGenerator.getInstance("RSA");
+        generador.initialize(2048);
+        this.claves = generador.generateKeyPair();
+
+        registrar(REALM_ADMIN, "admin", "admin", "Admin", "Keycloak", "admin", Set.of());
+        registrar(REALM, "cliente1@example.com", "cliente1@example.com", "Cliente", "Uno", "Cliente123!", Set.of("CLIENTE"));
+        registrar(REALM, "operador1@example.com", "operador1@example.com", "Operador", "Uno", "Operador123!", Set.of("OPERADOR"));
+        registrar(REALM, "transportista1@example.com", "transportista1@example.com", "Transportista", "Uno",
+                "Transportista123!", Set.of("TRANSPORTISTA"));
+        SECRETOS_CLIENTES.keySet().forEach(clientId -> registrar(REALM, cuentaDeServicio(clientId), null,
+                null, null, null, Set.of("SERVICIO")));
+
+        this.servidor = HttpServer.create(new InetSocketAddress("localhost", puerto), 0);
+        servidor.setExecutor(Executors.newCachedThreadPool(Http.hilosDaemon("keycloak")));
+        servidor.createContext("/realms/", this::manejarRealm);
+        servidor.createContext("/admin/realms/", this::manejarAdmin);
+    }
+
+    void iniciar() {
+        servidor.start();
+    }
+
+    void detener() {
+        servidor.stop(0);
+    }
+
+    String url() {
+        return "http://localhost:" + puerto;
+    }
+
+    String jwkSetUri() {
+        return url() + "/realms/" + REALM + "/protocol/openid-connect/certs";
+    }
+
+    // ---------------------------------------------------------------- realm (JWKS y tokens)
+
+    private void manejarRealm(HttpExchange intercambio) throws IOException {
+        String[] partes = intercambio.getRequestURI().getPath().split("/");
+        // /realms/{realm}/protocol/openid-connect/{certs|token}
+        if (partes.length == 6 && "protocol".equals(partes[3]) && "openid-connect".equals(partes[4])) {
+            String realm = partes[2];
+            switch (partes[5]) {
+                case "certs" -> {
+                    Http.enviarJson(intercambio, 200, Map.of("keys", List.of(jwk())));
+                    return;
+                }
+                case "token" -> {
+                    if ("POST".equals(intercambio.getRequestMethod())) {
+                        emitirToken(intercambio, realm);
+                        return;
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        Http.enviarJson(intercambio, 404, Map.of("error", "not_found"));
+    }
+
+    private void emitirToken(HttpExchange intercambio, String realm) throws IOException {
+        Map<String, String> formulario = Http.parametros(Http.leer(intercambio));
+        Usuario usuario = switch (formulario.getOrDefault("grant_type", "")) {
+            case "password" -> {
+                Usuario encontrado = buscarPorUsername(realm, formulario.get("username"));
+                // Las cuentas de servicio no tienen contraseña: solo obtienen token con client_credentials
+                yield encontrado != null && encontrado.password() != null
+                        && encontrado.password().equals(formulario.get("password")) ? encontrado : null;
+            }
+            case "refresh_token" -> refrescos.get(formulario.getOrDefault("refresh_token", ""));
+            case "client_credentials" -> {
+                String clientId = formulario.getOrDefault("client_id", "");
+                String secreto = SECRETOS_CLIENTES.get(clientId);
+                yield secreto != null && secreto.equals(formulario.get("client_secret"))
+                        ? buscarPorUsername(realm, cuentaDeServicio(clientId)) : null;
+            }
+            default -> null;
+        };
+        if (usuario == null || !usuario.realm().equals(realm)) {
+            Http.enviarJson(intercambio, 401, Map.of("error", "invalid_grant",
+                    "error_description", "Invalid user credentials"));
+            return;
+        }
+
+        String refresco = UUID.randomUUID().toString();
+        refrescos.put(refresco, usuario);
+        Map<String, Object> respuesta = new LinkedHashMap<>();
+        respuesta.put("access_token", token(usuario, formulario.getOrDefault("client_id", "public-app")));
+        respuesta.put("expires_in", DURACION_TOKEN_S);
+        respuesta.put("refresh_expires_in", DURACION_TOKEN_S);
+        respuesta.put("refresh_token", refresco);
+        respuesta.put("token_type", "Bearer");
+        respuesta.put("scope", "openid email profile");
+        Http.enviarJson(intercambio, 200, respuesta);
+    }
+
+    /**
+     * Token de acceso firmado para un usuario del realm (sin pasar por HTTP)
+     */
+    String token(Usuario usuario, String clientId) {
+        long ahora = Instant.now().getEpochSecond();
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("exp", ahora + DURACION_TOKEN_S);
+        claims.put("iat", ahora);
+        claims.put("jti", UUID.randomUUID().toString());
+        claims.put("iss", url() + "/realms/" + usuario.realm());
+        claims.put("sub", usuario.id());
+        claims.put("typ", "Bearer");
+        claims.put("azp", clientId);
+        claims.put("realm_access", Map.of("roles", List.copyOf(usuario.roles())));
+        claims.put("preferred_username", usuario.username());
+        claims.put("email", usuario.email());
+        claims.put("given_name", usuario.nombre());
+        claims.put("family_name", usuario.apellido());
+        return firmar(claims);
+    }
+
+    Usuario buscarPorUsername(String realm, String username) {
+        return username == null ? null : usuarios(realm).get(username.toLowerCase());
+    }
+
+    // ---------------------------------------------------------------- API de administración
+
+    private void manejarAdmin(HttpExchange intercambio) throws IOException {
+        if (!autorizadoComoAdmin(intercambio)) {
+            Http.enviarJson(intercambio, 401, Map.of("error", "HTTP 401 Unauthorized"));
+            return;
+        }
+        String metodo = intercambio.getRequestMethod();
+        String[] partes = intercambio.getRequestURI().getPath().split("/");
+        // /admin/realms/{realm}/...
+        if (partes.length < 5) {
+            Http.enviarJson(intercambio, 404, Map.of("error", "not_found"));
+            return;
+        }
+        String realm = partes[3];
+        String recurso = partes[4];
+
+        if ("users".equals(recurso) && partes.length == 5 && "GET".equals(metodo)) {
+            buscarUsuarios(intercambio, realm);
+        } else if ("users".equals(recurso) && partes.length == 5 && "POST".equals(metodo)) {
+            crearUsuario(intercambio, realm);
+        } else if ("users".equals(recurso) && partes.length == 6 && "GET".equals(metodo)) {
+            Usuario usuario = porId(realm, partes[5]);
+            Http.enviarJson(intercambio, usuario != null ? 200 : 404,
+                    usuario != null ? representacion(usuario) : Map.of("error", "User not found"));
+        } else if ("users".equals(recurso) && partes.length == 6 && "DELETE".equals(metodo)) {
+            Usuario usuario = porId(realm, partes[5]);
+            if (usuario != null) {
+                usuarios(realm).remove(usuario.username());
+            }
+            Http.enviar(intercambio, usuario != null ? 204 : 404, "");
+        } else if ("users".equals(recurso) && partes.length == 8 && "role-mappings".equals(partes[6])
+                && "realm".equals(partes[7]) && "POST".equals(metodo)) {
+            asignarRoles(intercambio, realm, partes[5]);
+        } else if ("roles".equals(recurso) && partes.length == 6 && "GET".equals(metodo)) {
+            String rol = partes[5];
+            Http.enviarJson(intercambio, ROLES.contains(rol) ? 200 : 404,
+                    ROLES.contains(rol) ? rol(realm, rol) : Map.of("error", "Could not find role"));
+        } else {
+            Http.enviarJson(intercambio, 404, Map.of("error", "not_found"));
+        }
+    }
+
+    private void buscarUsuarios(HttpExchange intercambio, String realm) throws IOException {
+        Map<String, String> parametros = Http.parametros(intercambio.getRequestURI().getRawQuery());
+        String username = parametros.get("username");
+        String busqueda = parametros.get("search");
+        boolean exacto = Boolean.parseBoolean(parametros.get("exact"));
+
+        List<Map<String, Object>> resultado = new ArrayList<>();
+        for (Usuario usuario : usuarios(realm).values()) {
+            boolean coincide;
+            if (username != null) {
+                coincide = exacto ? usuario.username().equalsIgnoreCase(username)
+                        : usuario.username().contains(username.toLowerCase());
+            } else if (busqueda != null && !busqueda.isEmpty()) {
+                String texto = busqueda.toLowerCase();
+                coincide = usuario.username().contains(texto)
+                        || (usuario.email() != null && usuario.email().toLowerCase().contains(texto));
+            } else {
+                coincide = true;
+            }
+            if (coincide) {
+                resultado.add(representacion(usuario));
+            }
+        }
+        Http.enviarJson(intercambio, 200, resultado);
+    }
+
+    private void crearUsuario(HttpExchange intercambio, String realm) throws IOException {
+        Map<String, Object> cuerpo = Http.JSON.readValue(Http.leer(intercambio), new TypeReference<>() {});
+        String username = String.valueOf(cuerpo.get("username"));
+        if (buscarPorUsername(realm, username) != null) {
+            Http.enviarJson(intercambio, 409, Map.of("errorMessage", "User exists with same username"));
+            return;
+        }
+        String password = null;
+        if (cuerpo.get("credentials") instanceof List<?> credenciales && !credenciales.isEmpty()
+                && credenciales.get(0) instanceof Map<?, ?> credencial) {
+            password = (String) credencial.get("value");
+        }
+        Usuario usuario = registrar(realm, username, (String) cuerpo.get("email"),
+                (String) cuerpo.get("firstName"), (String) cuerpo.get("lastName"), password, Set.of());
+        intercambio.getResponseHeaders().set("Location",
+                url() + "/admin/realms/" + realm + "/users/" + usuario.id());
+        Http.enviar(intercambio, 201, "");
+    }
+
+    private void asignarRoles(HttpExchange intercambio, String realm, String id) throws IOException {
+        Usuario usuario = porId(realm, id);
+        if (usuario == null) {
+            Http.enviarJson(intercambio, 404, Map.of("error", "User not found"));
+            return;
+        }
+        List<Map<String, Object>> roles = Http.JSON.readValue(Http.leer(intercambio), new TypeReference<>() {});
+        for (Map<String, Object> rol : roles) {
+            usuario.roles().add(String.valueOf(rol.get("name")));
+        }
+        Http.enviar(intercambio, 204, "");
+    }
+
+    private boolean autorizadoComoAdmin(HttpExchange intercambio) {
+        String autorizacion = intercambio.getRequestHeaders().getFirst("Authorization");
+        if (autorizacion == null || !autorizacion.startsWith("Bearer ")) {
+            return false;
+        }
+        try {
+            String[] partes = autorizacion.substring("Bearer ".length()).split("\\.");
+            Signature verificador = Signature.getInstance("SHA256withRSA");
+            verificador.initVerify(claves.getPublic());
+            verificador.update((partes[0] + "." + partes[1]).getBytes(StandardCharsets.US_ASCII));
+            if (!verificador.verify(Base64.getUrlDecoder().decode(partes[2]))) {
+                return false;
+            }
+            Map<String, Object> claims = Http.JSON.readValue(Base64.getUrlDecoder().decode(partes[1]), new TypeReference<>() {});
+            return String.valueOf(claims.get("iss")).endsWith("/realms/" + REALM_ADMIN);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    // ---------------------------------------------------------------- usuarios y firma
+
+    private Usuario registrar(String realm, String username, String email, String nombre, String apellido,
+                              String password, Set<String> roles) {
+        Usuario usuario = new Usuario(UUID.randomUUID().toString(), realm, username.toLowerCase(), email,
+                nombre, apellido, password, new CopyOnWriteArraySet<>(roles));
+        usuarios(realm).put(usuario.username(), usuario);
+        return usuario;
+    }
+
+    private static String cuentaDeServicio(String clientId) {
+        return "service-account-" + clientId;
+    }
+
+    private Map<String, Usuario> usuarios(String realm) {
+        return usuariosPorRealm.computeIfAbsent(realm, r -> new ConcurrentHashMap<>());
+    }
+
+    private Usuario porId(String realm, String id) {
+        return usuarios(realm).values().stream()
+                .filter(u -> u.id().equals(id))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static Map<String, Object> representacion(Usuario usuario) {
+        Map<String, Object> representacion = new LinkedHashMap<>();
+        representacion.put("id", usuario.id());
+        representacion.put("username", usuario.username());
+        representacion.put("email", usuario.email());
+        representacion.put("firstName", usuario.nombre());
+        representacion.put("lastName", usuario.apellido());
+        representacion.put("enabled", true);
+        representacion.put("emailVerified", true);
+        return representacion;
+    }
+
+    private static Map<String, Object> rol(String realm, String nombre) {
+        return Map.of("id", UUID.nameUUIDFromBytes((realm + "/" + nombre).getBytes(StandardCharsets.UTF_8)).toString(),
+                "name", nombre, "composite", false, "clientRole", false, "containerId", realm);
+    }
+
+    private Map<String, Object> jwk() {
+        RSAPublicKey publica = (RSAPublicKey) claves.getPublic();
+        Map<String, Object> jwk = new LinkedHashMap<>();
+        jwk.put("kid", KID);
+        jwk.put("kty", "RSA");
+        jwk.put("alg", "RS256");
+        jwk.put("use", "sig");
+        jwk.put("n", base64(sinSigno(publica.getModulus())));
+        jwk.put("e", base64(sinSigno(publica.getPublicExponent())));
+        return jwk;
+    }
+
+    private String firmar(Map<String, Object> claims) {
+        try {
+            String cabecera = base64(Http.JSON.writeValueAsBytes(Map.of("alg", "RS256", "typ", "JWT", "kid", KID)));
+            String cuerpo = base64(Http.JSON.writeValueAsBytes(claims));
+            Signature firma = Signature.getInstance("SHA256withRSA");
+            firma.initSign(claves.getPrivate());
+            firma.update((cabecera + "." + cuerpo).getBytes(StandardCharsets.US_ASCII));
+            return cabecera + "." + cuerpo + "." + base64(firma.sign());
+        } catch (IOException | GeneralSecurityException e) {
+            throw new IllegalStateException("No se pudo firmar el token", e);
+        }
+    }
+
+    private static String base64(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    // JWK usa enteros sin signo: se descarta el byte de signo que agrega BigInteger
+    private static byte[] sinSigno(BigInteger valor) {
+        byte[] bytes = valor.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            byte[] recortado = new byte[bytes.length - 1];
+            System.arraycopy(bytes, 1, recortado, 0, recortado.length);
+            return recortado;
+        }
+        return bytes;
+    }
+}
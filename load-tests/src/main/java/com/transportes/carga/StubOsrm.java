@@ -0,0 +1,156 @@
+package com.transportes.carga;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * OSRM simulado: responde /route y /table con distancias deterministas (Haversine por un factor
+ * de ruta) y duraciones a velocidad constante, con una latencia configurable. La demora extra
+ * ("jitter") se deriva de la URL, así que la misma consulta tarda siempre lo mismo.
+ */
+class StubOsrm {
+
+    private static final double RADIO_TIERRA_KM = 6371.0;
+    private static final double FACTOR_RUTA = 1.25;
+    private static final double VELOCIDAD_KMH = 70.0;
+
+    private final HttpServer servidor;
+    private final long latenciaMs;
+    private final long jitterMs;
+
+    StubOsrm(int puerto, long latenciaMs, long jitterMs) throws IOException {
+        this.latenciaMs = latenciaMs;
+        this.jitterMs = jitterMs;
+        this.servidor = HttpServer.create(new InetSocketAddress("localhost", puerto), 0);
+        servidor.setExecutor(Executors.newCachedThreadPool(Http.hilosDaemon("osrm")));
+        servidor.createContext("/route/v1/driving/", intercambio -> responder(intercambio, this::ruta));
+        servidor.createContext("/table/v1/driving/", intercambio -> responder(intercambio, this::tabla));
+        servidor.createContext("/health", intercambio -> Http.enviar(intercambio, 200, "{\"status\":\"ok\"}"));
+    }
+
+    void iniciar() {
+        servidor.start();
+    }
+
+    void detener() {
+        servidor.stop(0);
+    }
+
+    private interface Manejador {
+        Object manejar(URI uri);
+    }
+
+    private void responder(HttpExchange intercambio, Manejador manejador) throws IOException {
+        URI uri = intercambio.getRequestURI();
+        try {
+            demorar(uri);
+            Http.enviarJson(intercambio, 200, manejador.manejar(uri));
+        } catch (IllegalArgumentException e) {
+            Http.enviarJson(intercambio, 400, Map.of("code", "InvalidQuery", "message", e.getMessage()));
+        }
+    }
+
+    private Object ruta(URI uri) {
+        List<double[]> puntos = coordenadas(uri, "/route/v1/driving/");
+        if (puntos.size() < 2) {
+            throw new IllegalArgumentException("Se necesitan al menos dos coordenadas");
+        }
+        double metros = 0;
+        for (int i = 1; i < puntos.size(); i++) {
+            metros += distanciaMetros(puntos.get(i - 1), puntos.get(i));
+        }
+        Map<String, Object> ruta = new LinkedHashMap<>();
+        ruta.put("distance", metros);
+        ruta.put("duration", duracionSegundos(metros));
+        return Map.of("code", "Ok", "routes", List.of(ruta));
+    }
+
+    private Object tabla(URI uri) {
+        List<double[]> puntos = coordenadas(uri, "/table/v1/driving/");
+        Map<String, String> parametros = Http.parametros(uri.getRawQuery());
+        List<Integer> origenes = indices(parametros.get("sources"), puntos.size());
+        List<Integer> destinos = indices(parametros.get("destinations"), puntos.size());
+
+        List<List<Double>> distancias = new ArrayList<>();
+        List<List<Double>> duraciones = new ArrayList<>();
+        for (int o : origenes) {
+            List<Double> filaDistancias = new ArrayList<>();
+            List<Double> filaDuraciones = new ArrayList<>();
+            for (int d : destinos) {
+                double metros = distanciaMetros(puntos.get(o), puntos.get(d));
+                filaDistancias.add(metros);
+                filaDuraciones.add(duracionSegundos(metros));
+            }
+            distancias.add(filaDistancias);
+            duraciones.add(filaDuraciones);
+        }
+        return Map.of("code", "Ok", "distances", distancias, "durations", duraciones);
+    }
+
+    private void demorar(URI uri) {
+        long demora = latenciaMs + (jitterMs > 0 ? Math.floorMod(uri.toString().hashCode(), jitterMs + 1) : 0);
+        if (demora > 0) {
+            try {
+                Thread.sleep(demora);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // OSRM usa formato lon,lat separados por ';'
+    private static List<double[]> coordenadas(URI uri, String prefijo) {
+        String texto = uri.getPath().substring(prefijo.length());
+        List<double[]> puntos = new ArrayList<>();
+        for (String par : texto.split(";")) {
+            String[] partes = par.split(",");
+            if (partes.length != 2) {
+                throw new IllegalArgumentException("Coordenada inválida: " + par);
+            }
+            puntos.add(new double[]{Double.parseDouble(partes[1]), Double.parseDouble(partes[0])});
+        }
+        return puntos;
+    }
+
+    private static List<Integer> indices(String valor, int cantidad) {
+        List<Integer> indices = new ArrayList<>();
+        if (valor == null || valor.isBlank() || "all".equals(valor)) {
+            for (int i = 0; i < cantidad; i++) {
+                indices.add(i);
+            }
+            return indices;
+        }
+        for (String indice : valor.split(";")) {
+            int i = Integer.parseInt(indice);
+            if (i < 0 || i >= cantidad) {
+                throw new IllegalArgumentException("Índice fuera de rango: " + i);
+            }
+            indices.add(i);
+        }
+        return indices;
+    }
+
+    private static double distanciaMetros(double[] a, double[] b) {
+        double dLat = Math.toRadians(b[0] - a[0]);
+        double dLon = Math.toRadians(b[1] - a[1]);
+        double h = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(a[0])) * Math.cos(Math.toRadians(b[0]))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        double km = 2 * RADIO_TIERRA_KM * Math.atan2(Math.sqrt(h), Math.sqrt(1 - h));
+        // Redondeo a decímetros, como OSRM
+        return Math.round(km * FACTOR_RUTA * 10_000) / 10.0;
+    }
+
+    private static double duracionSegundos(double metros) {
+        return Math.round(metros / 1000.0 / VELOCIDAD_KMH * 36_000) / 10.0;
+    }
+}
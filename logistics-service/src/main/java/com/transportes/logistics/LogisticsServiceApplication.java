@@ -4,10 +4,12 @@ import com.transportes.logistics.config.FeignClientConfig; // <--- IMPORTAR
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.openfeign.EnableFeignClients;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 // AGREGAR: defaultConfiguration = FeignClientConfig.class
 @EnableFeignClients(defaultConfiguration = FeignClientConfig.class)
+@EnableScheduling
 public class LogisticsServiceApplication {
 
     public static void main(String[] args) {
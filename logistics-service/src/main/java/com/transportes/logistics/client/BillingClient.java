@@ -12,9 +12,16 @@ public interface BillingClient {
     @PostMapping("/api/costos/calcular-estimado")
     CostoEstimadoResponse calcularCostoEstimado(@RequestBody CalcularCostoRequest request);
 
+    @PostMapping("/api/costos/calcular-estimado/lote")
+    List<CostoEstimadoResponse> calcularCostosEstimadosLote(@RequestBody CalcularCostoLoteRequest request);
+
     @PostMapping("/api/costos/calcular-real")
     CostoEstimadoResponse calcularCostoReal(@RequestBody CalcularCostoRequest request);
 
+    // Sin token; si la solicitud ya tiene costo final lo devuelve sin recalcularlo
+    @PostMapping("/api/costos/internal/calcular-real")
+    CostoEstimadoResponse calcularCostoRealInterno(@RequestBody CalcularCostoRequest request);
+
     // DTOs internos (deben coincidir con billing-service)
     record CalcularCostoRequest(
         Long solicitudId,
@@ -26,6 +33,19 @@ public interface BillingClient {
         BigDecimal costosAdicionales
     ) {}
 
+    record CalcularCostoLoteRequest(
+        Long solicitudId,
+        List<AlternativaCostoRequest> alternativas,
+        BigDecimal pesoTotalKg,
+        BigDecimal volumenTotalM3,
+        Boolean persistir
+    ) {}
+
+    record AlternativaCostoRequest(
+        List<TramoRequest> tramos,
+        Integer diasEstadiaEstimados
+    ) {}
+
     record TramoRequest(
         Long tramoId,
         BigDecimal distanciaKm,
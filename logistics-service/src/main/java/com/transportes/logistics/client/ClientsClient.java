@@ -3,6 +3,8 @@ package com.transportes.logistics.client;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @FeignClient(name = "clients-service", url = "${clients.service.url}")
 public interface ClientsClient {
 
@@ -12,6 +14,20 @@ public interface ClientsClient {
     @GetMapping("/api/solicitudes/internal/{id}")
     SolicitudResponse obtenerSolicitud(@PathVariable("id") Long id);
 
+    // Omite las solicitudes inexistentes
+    @PostMapping("/api/solicitudes/internal/lote")
+    List<SolicitudResponse> obtenerSolicitudes(@RequestBody List<Long> ids);
+
+    // Aplica los cambios en orden; omite los que llevan la solicitud al estado en el que ya está
+    @PutMapping("/api/solicitudes/internal/estados")
+    void actualizarEstados(@RequestBody List<CambioEstadoRequest> cambios);
+
+    record CambioEstadoRequest(
+        Long solicitudId,
+        String estado,
+        String observacion
+    ) {}
+
     record ActualizarEstadoRequest(
         String estado,
         String observacion
@@ -0,0 +1,120 @@
+package com.transportes.logistics.client;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Circuit breaker de OSRM. Tras N fallas consecutivas (error o presupuesto vencido) se abre y las
+ * consultas pasan directo a la estimación por Haversine, sin esperar timeouts. Cumplida la espera
+ * deja pasar una única consulta de prueba (semiabierto): si responde se cierra, si falla se vuelve
+ * a abrir con el doble de espera, hasta un máximo.
+ */
+@Slf4j
+@Component
+public class OsrmCircuitBreaker {
+
+    public enum Estado { CERRADO, ABIERTO, SEMIABIERTO }
+
+    private final String circuito;
+    private final int fallasParaAbrir;
+    private final long esperaInicialNanos;
+    private final long esperaMaximaNanos;
+    private final MeterRegistry meterRegistry;
+
+    private Estado estado = Estado.CERRADO;
+    private int fallasConsecutivas;
+    private long esperaNanos;
+    private long abiertoHasta;
+
+    @Autowired
+    public OsrmCircuitBreaker(@Value("${osrm.breaker.fallas-consecutivas:5}") int fallasParaAbrir,
+                              @Value("${osrm.breaker.espera-abierto:10s}") Duration esperaAbierto,
+                              @Value("${osrm.breaker.espera-maxima:5m}") Duration esperaMaxima,
+                              MeterRegistry meterRegistry) {
+        this("usuarios", fallasParaAbrir, esperaAbierto, esperaMaxima, meterRegistry);
+    }
+
+    public OsrmCircuitBreaker(String circuito, int fallasParaAbrir, Duration esperaAbierto,
+                              Duration esperaMaxima, MeterRegistry meterRegistry) {
+        this.circuito = circuito;
+        this.fallasParaAbrir = fallasParaAbrir;
+        this.esperaInicialNanos = esperaAbierto.toNanos();
+        this.esperaMaximaNanos = Math.max(esperaMaxima.toNanos(), esperaInicialNanos);
+        this.esperaNanos = esperaInicialNanos;
+        this.meterRegistry = meterRegistry;
+
+        // 0 = cerrado, 1 = abierto, 2 = semiabierto
+        Gauge.builder("osrm.breaker.estado", this, breaker -> breaker.estado().ordinal())
+                .description("Estado del circuit breaker de OSRM (0 cerrado, 1 abierto, 2 semiabierto)")
+                .tag("circuito", circuito)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Circuito independiente con la misma configuración, para consultas en segundo plano cuyas
+     * fallas no deben cortar las consultas de los usuarios
+     */
+    public OsrmCircuitBreaker separado(String circuito) {
+        return new OsrmCircuitBreaker(circuito, fallasParaAbrir, Duration.ofNanos(esperaInicialNanos),
+                Duration.ofNanos(esperaMaximaNanos), meterRegistry);
+    }
+
+    /**
+     * Indica si la consulta puede ir a OSRM. Quien recibe true debe informar el resultado con
+     * {@link #registrarExito()} o {@link #registrarFalla()}
+     */
+    public synchronized boolean permitir() {
+        switch (estado) {
+            case CERRADO:
+                return true;
+            case ABIERTO:
+                if (System.nanoTime() - abiertoHasta >= 0) {
+                    estado = Estado.SEMIABIERTO;
+                    log.info("Circuito de OSRM ({}) semiabierto: se envía una consulta de prueba", circuito);
+                    return true;
+                }
+                return false;
+            default:
+                // Ya hay una consulta de prueba en curso
+                return false;
+        }
+    }
+
+    public synchronized void registrarExito() {
+        if (estado != Estado.CERRADO) {
+            log.info("OSRM respondió: circuito ({}) cerrado", circuito);
+        }
+        estado = Estado.CERRADO;
+        fallasConsecutivas = 0;
+        esperaNanos = esperaInicialNanos;
+    }
+
+    public synchronized void registrarFalla() {
+        if (estado == Estado.SEMIABIERTO) {
+            esperaNanos = Math.min(esperaNanos * 2, esperaMaximaNanos);
+            abrir();
+            return;
+        }
+        fallasConsecutivas++;
+        if (estado == Estado.CERRADO && fallasConsecutivas >= fallasParaAbrir) {
+            abrir();
+        }
+    }
+
+    public synchronized Estado estado() {
+        return estado;
+    }
+
+    private void abrir() {
+        estado = Estado.ABIERTO;
+        abiertoHasta = System.nanoTime() + esperaNanos;
+        log.warn("Circuito de OSRM ({}) abierto por {} ms: las distancias se estiman con Haversine",
+                circuito, Duration.ofNanos(esperaNanos).toMillis());
+    }
+}
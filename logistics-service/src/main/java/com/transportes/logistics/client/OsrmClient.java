@@ -5,22 +5,37 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class OsrmClient {
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final OsrmTramoCache osrmTramoCache;
+    private final OsrmTransporte osrmTransporte;
 
     @Value("${osrm.service.url:http://localhost:5000}")
     private String osrmUrl;
 
+    // Relación típica entre la distancia por ruta y la distancia en línea recta
+    @Value("${osrm.fallback.factor-ruta:1.3}")
+    private double factorRuta = 1.3;
+
+    @Value("${osrm.fallback.velocidad-kmh:60}")
+    private double velocidadKmh = 60;
+
     public RouteResponse calcularRuta(BigDecimal origenLat, BigDecimal origenLon,
                                       BigDecimal destinoLat, BigDecimal destinoLon) {
+        OsrmTramoCache.ClaveTramo clave = osrmTramoCache.clave(origenLat, origenLon, destinoLat, destinoLon);
+        RouteResponse enCache = osrmTramoCache.obtener(clave);
+        if (enCache != null) {
+            return enCache;
+        }
+
         try {
             // OSRM usa formato: lon,lat (invertido)
             String url = String.format("%s/route/v1/driving/%s,%s;%s,%s?overview=false",
@@ -30,50 +45,226 @@ public class OsrmClient {
 
             log.debug("Llamando a OSRM: {}", url);
 
-            OsrmResponse response = restTemplate.getForObject(url, OsrmResponse.class);
+            OsrmResponse response = osrmTransporte.obtener(url, OsrmResponse.class, OsrmTransporte.Operacion.RUTA);
 
             if (response != null && "Ok".equals(response.getCode()) && 
                 !response.getRoutes().isEmpty()) {
                 
                 OsrmRoute route = response.getRoutes().get(0);
                 
-                return RouteResponse.builder()
+                RouteResponse ruta = RouteResponse.builder()
                         .distanciaMetros(route.getDistance())
                         .distanciaKm(BigDecimal.valueOf(route.getDistance() / 1000.0))
                         .duracionSegundos(route.getDuration().intValue())
                         .duracionHoras((int) Math.ceil(route.getDuration() / 3600.0))
                         .build();
+
+                // Solo se cachean respuestas reales de OSRM, nunca las estimaciones de fallback
+                osrmTramoCache.guardar(clave, ruta);
+                return ruta;
             } else {
                 log.warn("OSRM no devolvió ruta válida");
+                osrmTransporte.registrarFallback(OsrmTransporte.Operacion.RUTA, OsrmTransporte.Motivo.SIN_RUTA);
                 return calcularRutaFallback(origenLat, origenLon, destinoLat, destinoLon);
             }
 
+        } catch (OsrmTransporte.OsrmNoDisponibleException e) {
+            registrarNoDisponible(e);
+            osrmTransporte.registrarFallback(OsrmTransporte.Operacion.RUTA, e.getMotivo());
+            return calcularRutaFallback(origenLat, origenLon, destinoLat, destinoLon);
         } catch (Exception e) {
             log.error("Error al consultar OSRM", e);
+            osrmTransporte.registrarFallback(OsrmTransporte.Operacion.RUTA, OsrmTransporte.Motivo.ERROR);
             return calcularRutaFallback(origenLat, origenLon, destinoLat, destinoLon);
         }
     }
 
-    private RouteResponse calcularRutaFallback(BigDecimal lat1, BigDecimal lon1,
+    /**
+     * Calcula distancias y duraciones por ruta de cada origen a cada destino con una sola llamada
+     * al servicio /table de OSRM. Las celdas que OSRM no pueda resolver (o todas, si OSRM falla)
+     * se estiman con Haversine. Si todas las celdas ya están en caché no se consulta OSRM; las que
+     * no estén en memoria se buscan en la tabla con una sola consulta.
+     * OSRM limita el tamaño de la matriz (max-table-size, 100 por defecto).
+     */
+    public RouteResponse[][] calcularMatriz(List<Coordenada> origenes, List<Coordenada> destinos) {
+        RouteResponse[][] matriz = new RouteResponse[origenes.size()][destinos.size()];
+        OsrmTramoCache.ClaveTramo[][] claves = new OsrmTramoCache.ClaveTramo[origenes.size()][destinos.size()];
+        List<OsrmTramoCache.ClaveTramo> todas = new ArrayList<>();
+        for (int i = 0; i < origenes.size(); i++) {
+            for (int j = 0; j < destinos.size(); j++) {
+                Coordenada o = origenes.get(i);
+                Coordenada d = destinos.get(j);
+                claves[i][j] = osrmTramoCache.clave(o.latitud(), o.longitud(), d.latitud(), d.longitud());
+                todas.add(claves[i][j]);
+            }
+        }
+
+        // Una sola búsqueda en la caché para todas las celdas (a la tabla van solo las que falten en memoria)
+        Map<OsrmTramoCache.ClaveTramo, RouteResponse> enCache = osrmTramoCache.obtenerTodos(todas);
+        boolean faltantes = false;
+        for (int i = 0; i < origenes.size(); i++) {
+            for (int j = 0; j < destinos.size(); j++) {
+                matriz[i][j] = enCache.get(claves[i][j]);
+                faltantes |= matriz[i][j] == null;
+            }
+        }
+
+        if (!faltantes) {
+            return matriz;
+        }
+
+        OsrmTransporte.Motivo motivo = OsrmTransporte.Motivo.SIN_RUTA;
+        try {
+            OsrmTableResponse response = consultarTabla(origenes, destinos, OsrmTransporte.Operacion.MATRIZ);
+
+            if (response != null && "Ok".equals(response.getCode())
+                    && response.getDistances() != null && response.getDurations() != null) {
+                for (int i = 0; i < origenes.size(); i++) {
+                    for (int j = 0; j < destinos.size(); j++) {
+                        Double distancia = response.getDistances().get(i).get(j);
+                        Double duracion = response.getDurations().get(i).get(j);
+                        if (matriz[i][j] == null && distancia != null && duracion != null) {
+                            matriz[i][j] = RouteResponse.builder()
+                                    .distanciaMetros(distancia)
+                                    .distanciaKm(BigDecimal.valueOf(distancia / 1000.0))
+                                    .duracionSegundos(duracion.intValue())
+                                    .duracionHoras((int) Math.ceil(duracion / 3600.0))
+                                    .build();
+                            osrmTramoCache.guardar(claves[i][j], matriz[i][j]);
+                        }
+                    }
+                }
+            } else {
+                log.warn("OSRM no devolvió una matriz válida");
+            }
+        } catch (OsrmTransporte.OsrmNoDisponibleException e) {
+            registrarNoDisponible(e);
+            motivo = e.getMotivo();
+        } catch (Exception e) {
+            log.error("Error al consultar matriz OSRM", e);
+            motivo = OsrmTransporte.Motivo.ERROR;
+        }
+
+        // Completar con Haversine las celdas sin respuesta de OSRM
+        boolean estimadas = false;
+        for (int i = 0; i < origenes.size(); i++) {
+            for (int j = 0; j < destinos.size(); j++) {
+                if (matriz[i][j] == null) {
+                    Coordenada o = origenes.get(i);
+                    Coordenada d = destinos.get(j);
+                    matriz[i][j] = calcularRutaFallback(o.latitud(), o.longitud(), d.latitud(), d.longitud());
+                    estimadas = true;
+                }
+            }
+        }
+        if (estimadas) {
+            osrmTransporte.registrarFallback(OsrmTransporte.Operacion.MATRIZ, motivo);
+        }
+
+        return matriz;
+    }
+
+    /**
+     * Matriz de OSRM sin caché ni estimación, para cálculos en segundo plano con muchas celdas
+     * (no llenan la caché de tramos). Usa el circuit breaker de fondo, así sus fallas no abren el
+     * de las consultas de los usuarios. Las celdas sin ruta quedan en null; devuelve null si OSRM
+     * no respondió.
+     */
+    public RouteResponse[][] consultarMatrizSinCache(List<Coordenada> origenes, List<Coordenada> destinos) {
+        OsrmTableResponse response;
+        try {
+            response = consultarTabla(origenes, destinos, OsrmTransporte.Operacion.MATRIZ_FONDO);
+        } catch (OsrmTransporte.OsrmNoDisponibleException e) {
+            registrarNoDisponible(e);
+            return null;
+        }
+        if (response == null || !"Ok".equals(response.getCode())
+                || response.getDistances() == null || response.getDurations() == null) {
+            return null;
+        }
+        RouteResponse[][] matriz = new RouteResponse[origenes.size()][destinos.size()];
+        for (int i = 0; i < origenes.size(); i++) {
+            for (int j = 0; j < destinos.size(); j++) {
+                Double distancia = response.getDistances().get(i).get(j);
+                Double duracion = response.getDurations().get(i).get(j);
+                if (distancia != null && duracion != null) {
+                    matriz[i][j] = RouteResponse.builder()
+                            .distanciaMetros(distancia)
+                            .distanciaKm(BigDecimal.valueOf(distancia / 1000.0))
+                            .duracionSegundos(duracion.intValue())
+                            .duracionHoras((int) Math.ceil(duracion / 3600.0))
+                            .build();
+                }
+            }
+        }
+        return matriz;
+    }
+
+    private OsrmTableResponse consultarTabla(List<Coordenada> origenes, List<Coordenada> destinos,
+                                             OsrmTransporte.Operacion operacion) {
+        // OSRM usa formato: lon,lat (invertido); primero los orígenes y luego los destinos
+        StringBuilder coordenadas = new StringBuilder();
+        for (Coordenada c : origenes) {
+            coordenadas.append(c.longitud()).append(',').append(c.latitud()).append(';');
+        }
+        for (Coordenada c : destinos) {
+            coordenadas.append(c.longitud()).append(',').append(c.latitud()).append(';');
+        }
+        coordenadas.setLength(coordenadas.length() - 1);
+
+        String url = String.format("%s/table/v1/driving/%s?sources=%s&destinations=%s&annotations=distance,duration",
+                osrmUrl, coordenadas,
+                indices(0, origenes.size()),
+                indices(origenes.size(), destinos.size()));
+
+        log.debug("Llamando a OSRM table: {}", url);
+
+        return osrmTransporte.obtener(url, OsrmTableResponse.class, operacion);
+    }
+
+    private String indices(int desde, int cantidad) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = desde; i < desde + cantidad; i++) {
+            if (sb.length() > 0) {
+                sb.append(';');
+            }
+            sb.append(i);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Estimación sin OSRM: distancia Haversine por el factor de ruta y duración a velocidad promedio.
+     * La respuesta queda marcada como estimada.
+     */
+    public RouteResponse calcularRutaFallback(BigDecimal lat1, BigDecimal lon1,
                                                BigDecimal lat2, BigDecimal lon2) {
-        // Cálculo aproximado usando fórmula de Haversine
         double distanciaKm = calcularDistanciaHaversine(
                 lat1.doubleValue(), lon1.doubleValue(),
-                lat2.doubleValue(), lon2.doubleValue());
+                lat2.doubleValue(), lon2.doubleValue()) * factorRuta;
 
-        // Estimación: 60 km/h promedio
-        int duracionHoras = (int) Math.ceil(distanciaKm / 60.0);
+        double duracionSegundos = distanciaKm / velocidadKmh * 3600;
 
-        log.warn("Usando cálculo fallback de distancia: {} km", distanciaKm);
+        log.debug("Usando cálculo fallback de distancia: {} km", distanciaKm);
 
         return RouteResponse.builder()
                 .distanciaKm(BigDecimal.valueOf(distanciaKm))
                 .distanciaMetros(distanciaKm * 1000)
-                .duracionHoras(duracionHoras)
-                .duracionSegundos(duracionHoras * 3600)
+                .duracionHoras((int) Math.ceil(duracionSegundos / 3600.0))
+                .duracionSegundos((int) Math.round(duracionSegundos))
+                .estimada(true)
                 .build();
     }
 
+    // Con el circuito abierto cada consulta cae al fallback; ya se avisó al abrirse
+    private void registrarNoDisponible(OsrmTransporte.OsrmNoDisponibleException e) {
+        if (e.getMotivo() == OsrmTransporte.Motivo.CIRCUITO_ABIERTO) {
+            log.debug(e.getMessage());
+        } else {
+            log.warn(e.getMessage());
+        }
+    }
+
     private double calcularDistanciaHaversine(double lat1, double lon1, double lat2, double lon2) {
         final double R = 6371; // Radio de la Tierra en km
 
@@ -101,6 +292,15 @@ public class OsrmClient {
         private Double duration; // en segundos
     }
 
+    @Data
+    public static class OsrmTableResponse {
+        private String code;
+        private List<List<Double>> distances; // en metros, null si no hay ruta
+        private List<List<Double>> durations; // en segundos, null si no hay ruta
+    }
+
+    public record Coordenada(BigDecimal latitud, BigDecimal longitud) {}
+
     @Data
     @lombok.Builder
     public static class RouteResponse {
@@ -108,5 +308,7 @@ public class OsrmClient {
         private Double distanciaMetros;
         private Integer duracionHoras;
         private Integer duracionSegundos;
+        // true si la distancia se estimó con Haversine porque OSRM no estuvo disponible
+        private boolean estimada;
     }
 }
@@ -0,0 +1,152 @@
+package com.transportes.logistics.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Caché en memoria de tramos calculados por OSRM.
+ * Las coordenadas se redondean a una precisión configurable para que puntos prácticamente
+ * iguales (ej: el mismo depósito) compartan la misma entrada.
+ */
+@Slf4j
+@Component
+public class OsrmTramoCache {
+
+    private final Cache<ClaveTramo, OsrmClient.RouteResponse> cache;
+    // Claves que no estaban en la tabla: no se vuelven a buscar hasta que venza la entrada o se calculen
+    private final Cache<ClaveTramo, Boolean> ausentes;
+    private final OsrmTramoPersistencia persistencia;
+    private final int precisionDecimales;
+    private final long maxEntradas;
+    private final Duration ttl;
+
+    public OsrmTramoCache(@Value("${osrm.cache.max-entradas:10000}") long maxEntradas,
+                          @Value("${osrm.cache.ttl:24h}") Duration ttl,
+                          @Value("${osrm.cache.precision-decimales:4}") int precisionDecimales,
+                          @Value("${osrm.cache.persistencia.ttl-ausentes:30s}") Duration ttlAusentes,
+                          OsrmTramoPersistencia persistencia,
+                          MeterRegistry meterRegistry) {
+        this.persistencia = persistencia;
+        this.maxEntradas = maxEntradas;
+        this.ttl = ttl;
+        this.precisionDecimales = precisionDecimales;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntradas)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.ausentes = Caffeine.newBuilder()
+                .maximumSize(maxEntradas)
+                .expireAfterWrite(ttlAusentes)
+                .build();
+
+        // Expone osrm.tramos en /actuator/metrics (cache.gets, cache.evictions, cache.size, ...)
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "osrm.tramos");
+    }
+
+    public ClaveTramo clave(BigDecimal origenLat, BigDecimal origenLon,
+                            BigDecimal destinoLat, BigDecimal destinoLon) {
+        return new ClaveTramo(
+                redondear(origenLat), redondear(origenLon),
+                redondear(destinoLat), redondear(destinoLon));
+    }
+
+    /**
+     * Busca el tramo en memoria y, si no está, en la tabla persistida (que además repuebla la memoria).
+     * Si la tabla tampoco lo tiene, la clave se recuerda como ausente por un rato
+     */
+    public OsrmClient.RouteResponse obtener(ClaveTramo clave) {
+        OsrmClient.RouteResponse ruta = cache.getIfPresent(clave);
+        if (ruta == null && ausentes.getIfPresent(clave) == null) {
+            ruta = persistencia.buscar(clave);
+            if (ruta != null) {
+                cache.put(clave, ruta);
+            } else {
+                ausentes.put(clave, Boolean.TRUE);
+            }
+        }
+        return ruta;
+    }
+
+    /**
+     * Igual que obtener para varias claves, pero las que no están en memoria se buscan en la tabla
+     * con una sola consulta. Devuelve solo las encontradas
+     */
+    public Map<ClaveTramo, OsrmClient.RouteResponse> obtenerTodos(Collection<ClaveTramo> claves) {
+        Map<ClaveTramo, OsrmClient.RouteResponse> encontradas = new HashMap<>();
+        List<ClaveTramo> aBuscar = new ArrayList<>();
+        for (ClaveTramo clave : claves) {
+            OsrmClient.RouteResponse ruta = cache.getIfPresent(clave);
+            if (ruta != null) {
+                encontradas.put(clave, ruta);
+            } else if (ausentes.getIfPresent(clave) == null) {
+                aBuscar.add(clave);
+            }
+        }
+        if (!aBuscar.isEmpty()) {
+            Map<ClaveTramo, OsrmClient.RouteResponse> persistidas = persistencia.buscarTodos(aBuscar);
+            for (ClaveTramo clave : aBuscar) {
+                OsrmClient.RouteResponse ruta = persistidas.get(clave);
+                if (ruta != null) {
+                    cache.put(clave, ruta);
+                    encontradas.put(clave, ruta);
+                } else {
+                    ausentes.put(clave, Boolean.TRUE);
+                }
+            }
+        }
+        return encontradas;
+    }
+
+    public void guardar(ClaveTramo clave, OsrmClient.RouteResponse ruta) {
+        cache.put(clave, ruta);
+        ausentes.invalidate(clave);
+        persistencia.encolar(clave, ruta);
+    }
+
+    public void invalidarTodo() {
+        cache.invalidateAll();
+        ausentes.invalidateAll();
+        log.info("Caché de tramos OSRM vaciada");
+    }
+
+    public Map<String, Object> estadisticas() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("entradas", cache.estimatedSize());
+        resultado.put("maxEntradas", maxEntradas);
+        resultado.put("ttl", ttl.toString());
+        resultado.put("precisionDecimales", precisionDecimales);
+        resultado.put("aciertos", stats.hitCount());
+        resultado.put("fallos", stats.missCount());
+        resultado.put("tasaAciertos", stats.hitRate());
+        resultado.put("desalojos", stats.evictionCount());
+        return resultado;
+    }
+
+    private long redondear(BigDecimal coordenada) {
+        return coordenada.setScale(precisionDecimales, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+
+    /**
+     * Coordenadas redondeadas de origen y destino, expresadas como enteros
+     * (grados x 10^precisionDecimales)
+     */
+    public record ClaveTramo(long origenLat, long origenLon, long destinoLat, long destinoLon) {}
+}
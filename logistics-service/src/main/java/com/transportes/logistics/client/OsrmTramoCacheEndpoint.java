@@ -0,0 +1,31 @@
+package com.transportes.logistics.client;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Vista de actuator de la caché de tramos: GET /actuator/osrmcache (estadísticas)
+ * y DELETE /actuator/osrmcache (vaciar)
+ */
+@Component
+@Endpoint(id = "osrmcache")
+@RequiredArgsConstructor
+public class OsrmTramoCacheEndpoint {
+
+    private final OsrmTramoCache osrmTramoCache;
+
+    @ReadOperation
+    public Map<String, Object> estadisticas() {
+        return osrmTramoCache.estadisticas();
+    }
+
+    @DeleteOperation
+    public void vaciar() {
+        osrmTramoCache.invalidarTodo();
+    }
+}
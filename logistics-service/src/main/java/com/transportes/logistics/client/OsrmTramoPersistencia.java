@@ -0,0 +1,176 @@
+package com.transportes.logistics.client;
+
+import com.transportes.logistics.entity.TramoDistanciaCache;
+import com.transportes.logistics.repository.TramoDistanciaCacheRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Segundo nivel de la caché de tramos: tabla tramo_distancia_cache.
+ * Se lee antes de consultar OSRM y se escribe en segundo plano, en lotes, para no
+ * agregar escrituras al camino de la petición.
+ */
+@Slf4j
+@Component
+public class OsrmTramoPersistencia {
+
+    private final TramoDistanciaCacheRepository tramoDistanciaCacheRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<OsrmTramoCache.ClaveTramo, OsrmClient.RouteResponse> pendientes = new ConcurrentHashMap<>();
+
+    @Value("${osrm.cache.persistencia.habilitada:true}")
+    private boolean habilitada;
+
+    @Value("${osrm.cache.persistencia.ttl:30d}")
+    private Duration ttl;
+
+    @Value("${osrm.cache.persistencia.max-pendientes:5000}")
+    private int maxPendientes;
+
+    @Value("${osrm.cache.precision-decimales:4}")
+    private int precisionDecimales;
+
+    public OsrmTramoPersistencia(TramoDistanciaCacheRepository tramoDistanciaCacheRepository,
+                                 PlatformTransactionManager transactionManager) {
+        this.tramoDistanciaCacheRepository = tramoDistanciaCacheRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Busca el tramo en la tabla. Devuelve null si no existe, está vencido o la BD no responde.
+     */
+    public OsrmClient.RouteResponse buscar(OsrmTramoCache.ClaveTramo clave) {
+        if (!habilitada) {
+            return null;
+        }
+        try {
+            return tramoDistanciaCacheRepository
+                    .findByOrigenLatAndOrigenLonAndDestinoLatAndDestinoLonAndPrecisionDecimales(
+                            clave.origenLat(), clave.origenLon(), clave.destinoLat(), clave.destinoLon(),
+                            precisionDecimales)
+                    .filter(t -> t.getFechaCalculo().isAfter(LocalDateTime.now().minus(ttl)))
+                    .map(this::aRuta)
+                    .orElse(null);
+        } catch (Exception e) {
+            log.warn("No se pudo leer tramo_distancia_cache: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Busca varios tramos con una sola consulta. Devuelve solo los encontrados y vigentes;
+     * si la BD no responde devuelve un mapa vacío.
+     */
+    public Map<OsrmTramoCache.ClaveTramo, OsrmClient.RouteResponse> buscarTodos(
+            Collection<OsrmTramoCache.ClaveTramo> claves) {
+        if (!habilitada || claves.isEmpty()) {
+            return Map.of();
+        }
+        Set<Long> origenLats = new HashSet<>();
+        Set<Long> origenLons = new HashSet<>();
+        Set<Long> destinoLats = new HashSet<>();
+        Set<Long> destinoLons = new HashSet<>();
+        for (OsrmTramoCache.ClaveTramo clave : claves) {
+            origenLats.add(clave.origenLat());
+            origenLons.add(clave.origenLon());
+            destinoLats.add(clave.destinoLat());
+            destinoLons.add(clave.destinoLon());
+        }
+        try {
+            Set<OsrmTramoCache.ClaveTramo> pedidas = new HashSet<>(claves);
+            LocalDateTime limite = LocalDateTime.now().minus(ttl);
+            Map<OsrmTramoCache.ClaveTramo, OsrmClient.RouteResponse> encontrados = new HashMap<>();
+            for (TramoDistanciaCache t : tramoDistanciaCacheRepository.findCandidatos(
+                    origenLats, origenLons, destinoLats, destinoLons, precisionDecimales)) {
+                OsrmTramoCache.ClaveTramo clave = new OsrmTramoCache.ClaveTramo(
+                        t.getOrigenLat(), t.getOrigenLon(), t.getDestinoLat(), t.getDestinoLon());
+                if (pedidas.contains(clave) && t.getFechaCalculo().isAfter(limite)) {
+                    encontrados.put(clave, aRuta(t));
+                }
+            }
+            return encontrados;
+        } catch (Exception e) {
+            log.warn("No se pudo leer tramo_distancia_cache: {}", e.getMessage());
+            return Map.of();
+        }
+    }
+
+    private OsrmClient.RouteResponse aRuta(TramoDistanciaCache t) {
+        return OsrmClient.RouteResponse.builder()
+                .distanciaMetros(t.getDistanciaMetros())
+                .distanciaKm(BigDecimal.valueOf(t.getDistanciaMetros() / 1000.0))
+                .duracionSegundos(t.getDuracionSegundos())
+                .duracionHoras((int) Math.ceil(t.getDuracionSegundos() / 3600.0))
+                .build();
+    }
+
+    /**
+     * Encola el tramo para persistirlo en el próximo volcado
+     */
+    public void encolar(OsrmTramoCache.ClaveTramo clave, OsrmClient.RouteResponse ruta) {
+        if (!habilitada) {
+            return;
+        }
+        if (pendientes.size() >= maxPendientes) {
+            log.warn("Cola de tramos a persistir llena ({}), se descarta el tramo", maxPendientes);
+            return;
+        }
+        pendientes.put(clave, ruta);
+    }
+
+    @Scheduled(fixedDelayString = "${osrm.cache.persistencia.flush-ms:5000}")
+    public void volcarPendientes() {
+        if (pendientes.isEmpty()) {
+            return;
+        }
+
+        List<Map.Entry<OsrmTramoCache.ClaveTramo, OsrmClient.RouteResponse>> lote = new ArrayList<>();
+        for (OsrmTramoCache.ClaveTramo clave : pendientes.keySet()) {
+            OsrmClient.RouteResponse ruta = pendientes.remove(clave);
+            if (ruta != null) {
+                lote.add(Map.entry(clave, ruta));
+            }
+        }
+
+        LocalDateTime ahora = LocalDateTime.now();
+        try {
+            transactionTemplate.executeWithoutResult(status -> lote.forEach(entrada -> {
+                OsrmTramoCache.ClaveTramo clave = entrada.getKey();
+                OsrmClient.RouteResponse ruta = entrada.getValue();
+                tramoDistanciaCacheRepository.upsert(
+                        clave.origenLat(), clave.origenLon(), clave.destinoLat(), clave.destinoLon(),
+                        precisionDecimales, ruta.getDistanciaMetros(), ruta.getDuracionSegundos(), ahora);
+            }));
+            log.debug("Persistidos {} tramos en tramo_distancia_cache", lote.size());
+        } catch (Exception e) {
+            log.warn("No se pudieron persistir {} tramos en tramo_distancia_cache: {}", lote.size(), e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${osrm.cache.persistencia.purga-cron:0 0 3 * * *}")
+    public void purgarVencidos() {
+        if (!habilitada) {
+            return;
+        }
+        LocalDateTime limite = LocalDateTime.now().minus(ttl);
+        Integer eliminados = transactionTemplate.execute(status ->
+                tramoDistanciaCacheRepository.eliminarAnterioresA(limite));
+        log.info("Purgados {} tramos de tramo_distancia_cache anteriores a {}", eliminados, limite);
+    }
+}
@@ -0,0 +1,267 @@
+package com.transportes.logistics.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Transporte HTTP hacia OSRM: un único HttpClient con conexiones keep-alive reutilizadas,
+ * timeouts de conexión y de respuesta, y un presupuesto de latencia por consulta. Si la respuesta
+ * no llega dentro del presupuesto se corta la espera y quien llama usa la estimación por Haversine.
+ * Opcionalmente envía una segunda solicitud (hedging) si la primera tarda más de cierta demora
+ * y se queda con la que responda primero. Cada consulta pasa antes por {@link OsrmCircuitBreaker}:
+ * con el circuito abierto falla de inmediato, sin tocar la red.
+ */
+@Slf4j
+@Component
+public class OsrmTransporte {
+
+    // MATRIZ_FONDO: matrices calculadas en segundo plano, con su propio circuit breaker
+    public enum Operacion { RUTA, MATRIZ, MATRIZ_FONDO }
+
+    public enum Motivo { TIMEOUT, ERROR, SIN_RUTA, CIRCUITO_ABIERTO }
+
+    private enum Resultado { EXITO, ERROR, TIMEOUT }
+
+    /**
+     * OSRM no respondió a tiempo o respondió con error; el motivo se usa en las métricas de fallback
+     */
+    public static class OsrmNoDisponibleException extends RuntimeException {
+        private final Motivo motivo;
+
+        public OsrmNoDisponibleException(Motivo motivo, String mensaje, Throwable causa) {
+            super(mensaje, causa);
+            this.motivo = motivo;
+        }
+
+        public Motivo getMotivo() {
+            return motivo;
+        }
+    }
+
+    private final HttpClient http;
+    private final ExecutorService executor;
+    private final ObjectMapper objectMapper;
+    private final OsrmCircuitBreaker circuitBreaker;
+    private final OsrmCircuitBreaker circuitBreakerFondo;
+    private final Duration readTimeout;
+    private final Map<Operacion, Duration> presupuestos = new EnumMap<>(Operacion.class);
+    private final boolean hedgingHabilitado;
+    private final long demoraHedgingMs;
+
+    private final Map<Operacion, Map<Resultado, Timer>> latencias = new EnumMap<>(Operacion.class);
+    private final Map<Operacion, Map<Motivo, Counter>> fallbacks = new EnumMap<>(Operacion.class);
+    private final Counter hedgingEnviados;
+    private final Counter hedgingGanadores;
+
+    public OsrmTransporte(@Value("${osrm.http.connect-timeout:1s}") Duration connectTimeout,
+                          @Value("${osrm.http.read-timeout:2s}") Duration readTimeout,
+                          @Value("${osrm.http.presupuesto-ruta:1500ms}") Duration presupuestoRuta,
+                          @Value("${osrm.http.presupuesto-matriz:3s}") Duration presupuestoMatriz,
+                          @Value("${osrm.http.hilos:8}") int hilos,
+                          @Value("${osrm.http.hedging.habilitado:false}") boolean hedgingHabilitado,
+                          @Value("${osrm.http.hedging.demora:150ms}") Duration demoraHedging,
+                          ObjectMapper objectMapper,
+                          OsrmCircuitBreaker circuitBreaker,
+                          MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.circuitBreaker = circuitBreaker;
+        this.circuitBreakerFondo = circuitBreaker.separado("fondo");
+        this.readTimeout = readTimeout;
+        this.presupuestos.put(Operacion.RUTA, presupuestoRuta);
+        this.presupuestos.put(Operacion.MATRIZ, presupuestoMatriz);
+        this.presupuestos.put(Operacion.MATRIZ_FONDO, presupuestoMatriz);
+        this.hedgingHabilitado = hedgingHabilitado;
+        this.demoraHedgingMs = demoraHedging.toMillis();
+
+        CustomizableThreadFactory hilosOsrm = new CustomizableThreadFactory("osrm-http-");
+        hilosOsrm.setDaemon(true);
+        this.executor = Executors.newFixedThreadPool(hilos, hilosOsrm);
+        // HTTP/1.1 explícito: OSRM no soporta HTTP/2 y así se evita el intento de upgrade.
+        // El cliente mantiene un pool de conexiones keep-alive por host
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(connectTimeout)
+                .executor(executor)
+                .build();
+
+        // Expone en /actuator/metrics: osrm.http.latencia (por operación y resultado),
+        // osrm.fallback (por operación y motivo) y osrm.http.hedging (enviados y ganadores)
+        for (Operacion operacion : Operacion.values()) {
+            String tagOperacion = operacion.name().toLowerCase(Locale.ROOT);
+            Map<Resultado, Timer> timers = new EnumMap<>(Resultado.class);
+            for (Resultado resultado : Resultado.values()) {
+                timers.put(resultado, Timer.builder("osrm.http.latencia")
+                        .description("Latencia de las consultas a OSRM, incluido el hedging")
+                        .tag("operacion", tagOperacion)
+                        .tag("resultado", resultado.name().toLowerCase(Locale.ROOT))
+                        .register(meterRegistry));
+            }
+            latencias.put(operacion, timers);
+
+            Map<Motivo, Counter> contadores = new EnumMap<>(Motivo.class);
+            for (Motivo motivo : Motivo.values()) {
+                contadores.put(motivo, Counter.builder("osrm.fallback")
+                        .description("Consultas resueltas con la estimación por Haversine")
+                        .tag("operacion", tagOperacion)
+                        .tag("motivo", motivo.name().toLowerCase(Locale.ROOT))
+                        .register(meterRegistry));
+            }
+            fallbacks.put(operacion, contadores);
+        }
+        this.hedgingEnviados = Counter.builder("osrm.http.hedging").tag("estado", "enviado").register(meterRegistry);
+        this.hedgingGanadores = Counter.builder("osrm.http.hedging").tag("estado", "ganador").register(meterRegistry);
+    }
+
+    /**
+     * GET a OSRM esperando como máximo el presupuesto de la operación
+     *
+     * @throws OsrmNoDisponibleException si no hay respuesta válida dentro del presupuesto
+     *                                   o si el circuito está abierto (el de fondo para MATRIZ_FONDO)
+     */
+    public <T> T obtener(String url, Class<T> tipo, Operacion operacion) {
+        Duration presupuesto = presupuestos.get(operacion);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(readTimeout)
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+        OsrmCircuitBreaker circuitBreaker = operacion == Operacion.MATRIZ_FONDO ? circuitBreakerFondo : this.circuitBreaker;
+        if (!circuitBreaker.permitir()) {
+            throw new OsrmNoDisponibleException(Motivo.CIRCUITO_ABIERTO, "Circuito de OSRM abierto", null);
+        }
+
+        long inicio = System.nanoTime();
+        CompletableFuture<String> cuerpo = enviar(request);
+        try {
+            String json = cuerpo.get(presupuesto.toMillis(), TimeUnit.MILLISECONDS);
+            T respuesta = objectMapper.readValue(json, tipo);
+            circuitBreaker.registrarExito();
+            registrar(operacion, Resultado.EXITO, inicio);
+            return respuesta;
+        } catch (TimeoutException e) {
+            cuerpo.cancel(true);
+            circuitBreaker.registrarFalla();
+            registrar(operacion, Resultado.TIMEOUT, inicio);
+            throw new OsrmNoDisponibleException(Motivo.TIMEOUT,
+                    "OSRM no respondió dentro de " + presupuesto.toMillis() + " ms", e);
+        } catch (ExecutionException | IOException e) {
+            circuitBreaker.registrarFalla();
+            registrar(operacion, Resultado.ERROR, inicio);
+            Throwable causa = e instanceof ExecutionException ? e.getCause() : e;
+            throw new OsrmNoDisponibleException(Motivo.ERROR, "Error al consultar OSRM: " + causa.getMessage(), causa);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cuerpo.cancel(true);
+            circuitBreaker.registrarFalla();
+            registrar(operacion, Resultado.ERROR, inicio);
+            throw new OsrmNoDisponibleException(Motivo.ERROR, "Consulta a OSRM interrumpida", e);
+        }
+    }
+
+    public void registrarFallback(Operacion operacion, Motivo motivo) {
+        fallbacks.get(operacion).get(motivo).increment();
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Envía la solicitud y, con hedging, una segunda copia si la primera no respondió tras la
+     * demora configurada (o apenas la primera falle). Gana la primera respuesta exitosa;
+     * la consulta falla solo si fallan todos los intentos enviados.
+     */
+    private CompletableFuture<String> enviar(HttpRequest request) {
+        CompletableFuture<String> resultado = new CompletableFuture<>();
+        List<CompletableFuture<?>> intentos = new CopyOnWriteArrayList<>();
+        AtomicInteger pendientes = new AtomicInteger(1);
+        AtomicBoolean hedgingUsado = new AtomicBoolean(!hedgingHabilitado);
+
+        Runnable hedging = () -> {
+            if (resultado.isDone()) {
+                return;
+            }
+            // Se cuenta antes de reclamar el hedging: si el intento original falla justo después
+            // del compareAndSet, pendientes no llega a 0 mientras la copia todavía no salió
+            pendientes.incrementAndGet();
+            if (!hedgingUsado.compareAndSet(false, true)) {
+                pendientes.decrementAndGet();
+                return;
+            }
+            hedgingEnviados.increment();
+            CompletableFuture<?> intento = intentar(request, resultado, pendientes, null, true);
+            intentos.add(intento);
+            if (resultado.isDone()) {
+                intento.cancel(true);
+            }
+        };
+
+        intentos.add(intentar(request, resultado, pendientes, hedging, false));
+        if (hedgingHabilitado) {
+            CompletableFuture.runAsync(hedging,
+                    CompletableFuture.delayedExecutor(demoraHedgingMs, TimeUnit.MILLISECONDS, executor));
+        }
+        // Al resolverse (o al vencer el presupuesto) se descartan los intentos que sigan en curso
+        resultado.whenComplete((cuerpo, error) -> intentos.forEach(intento -> intento.cancel(true)));
+        return resultado;
+    }
+
+    /**
+     * Devuelve el futuro de sendAsync (no la etapa que procesa la respuesta): cancelarlo aborta
+     * el intercambio HTTP en curso
+     */
+    private CompletableFuture<?> intentar(HttpRequest request, CompletableFuture<String> resultado,
+                                          AtomicInteger pendientes, Runnable alFallar, boolean esHedging) {
+        CompletableFuture<HttpResponse<String>> envio = http.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+        envio.whenComplete((response, error) -> {
+            // OSRM responde 400 con un código (NoRoute, InvalidQuery...) cuando no hay ruta:
+            // el servicio está disponible y quien llama revisa el código
+            if (error == null && (response.statusCode() == 200 || response.statusCode() == 400)) {
+                if (resultado.complete(response.body()) && esHedging) {
+                    hedgingGanadores.increment();
+                }
+                return;
+            }
+            if (alFallar != null) {
+                alFallar.run();
+            }
+            if (pendientes.decrementAndGet() == 0) {
+                resultado.completeExceptionally(error != null ? error
+                        : new IOException("OSRM respondió con estado " + response.statusCode()));
+            }
+        });
+        return envio;
+    }
+
+    private void registrar(Operacion operacion, Resultado resultado, long inicio) {
+        latencias.get(operacion).get(resultado).record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,80 @@
+package com.transportes.logistics.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class AsyncConfig {
+
+    @Value("${rutas.executor.pool-size:8}")
+    private int poolSize;
+
+    @Value("${rutas.executor.queue-capacity:200}")
+    private int queueCapacity;
+
+    @Value("${rutas.trayectos.pool-size:16}")
+    private int poolSizeTrayectos;
+
+    @Value("${rutas.trayectos.queue-capacity:500}")
+    private int queueCapacityTrayectos;
+
+    @Value("${rutas.precalculo.pool-size:2}")
+    private int poolSizePrecalculo;
+
+    @Value("${rutas.precalculo.queue-capacity:100}")
+    private int queueCapacityPrecalculo;
+
+    /**
+     * Pool acotado para calcular en paralelo los tramos de las rutas alternativas.
+     * Si la cola se llena, el hilo que llama ejecuta la tarea (degrada a secuencial en vez de fallar).
+     */
+    @Bean(name = "rutasExecutor")
+    public Executor rutasExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("rutas-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Pool de las consultas a OSRM de cada tramo. Si la cola se llena la consulta se rechaza y el
+     * tramo se estima con Haversine: nunca corre en el hilo que la pidió, que tiene su propio plazo.
+     */
+    @Bean(name = "trayectosExecutor")
+    public Executor trayectosExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSizeTrayectos);
+        executor.setMaxPoolSize(poolSizeTrayectos);
+        executor.setQueueCapacity(queueCapacityTrayectos);
+        executor.setThreadNamePrefix("trayectos-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Pool del precálculo de alternativas al crear una solicitud, separado de rutasExecutor para
+     * no competir con las consultas de los operadores. Si la cola se llena la tarea se rechaza
+     * (la solicitud queda sin precalcular), nunca se ejecuta en el hilo del request.
+     */
+    @Bean(name = "precalculoExecutor")
+    public Executor precalculoExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSizePrecalculo);
+        executor.setMaxPoolSize(poolSizePrecalculo);
+        executor.setQueueCapacity(queueCapacityPrecalculo);
+        executor.setThreadNamePrefix("precalculo-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
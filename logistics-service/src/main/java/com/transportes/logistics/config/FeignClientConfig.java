@@ -9,8 +9,12 @@ import org.springframework.web.context.request.ServletRequestAttributes;
 
 @Configuration
 public class FeignClientConfig {
+    /**
+     * Reenvía el token de la petición en curso. Fuera de una petición (outbox, tareas en segundo
+     * plano) usa el token de la cuenta de servicio
+     */
     @Bean
-    public RequestInterceptor requestInterceptor() {
+    public RequestInterceptor requestInterceptor(TokenServicio tokenServicio) {
         return template -> {
             ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
             if (attributes != null) {
@@ -18,7 +22,9 @@ public class FeignClientConfig {
                 if (authHeader != null) {
                     template.header(HttpHeaders.AUTHORIZATION, authHeader);
                 }
+            } else {
+                template.header(HttpHeaders.AUTHORIZATION, "Bearer " + tokenServicio.obtener());
             }
         };
     }
-}
\ No newline at end of file
+}
@@ -3,6 +3,8 @@ package com.transportes.logistics.controller;
 import com.transportes.logistics.dto.DepositoDTO;
 import com.transportes.logistics.entity.Deposito;
 import com.transportes.logistics.repository.DepositoRepository;
+import com.transportes.logistics.service.IndiceDepositos;
+import com.transportes.logistics.service.MatrizDepositos;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
@@ -23,6 +25,8 @@ import java.util.stream.Collectors;
 public class DepositoController {
 
     private final DepositoRepository depositoRepository;
+    private final IndiceDepositos indiceDepositos;
+    private final MatrizDepositos matrizDepositos;
 
     @GetMapping
     @Operation(summary = "Listar todos los depósitos")
@@ -56,6 +60,8 @@ public class DepositoController {
     public ResponseEntity<DepositoDTO> crear(@Valid @RequestBody DepositoDTO depositoDTO) {
         Deposito deposito = convertirAEntidad(depositoDTO);
         Deposito guardado = depositoRepository.save(deposito);
+        indiceDepositos.reconstruir();
+        matrizDepositos.actualizar();
         return ResponseEntity.created(URI.create("/api/depositos/" + guardado.getId()))
                 .body(convertirADTO(guardado));
     }
@@ -72,7 +78,10 @@ public class DepositoController {
                     deposito.setLongitud(depositoDTO.getLongitud());
                     deposito.setCapacidadMaximaContenedores(depositoDTO.getCapacidadMaxima());
                     deposito.setActivo(depositoDTO.getActivo());
-                    return ResponseEntity.ok(convertirADTO(depositoRepository.save(deposito)));
+                    Deposito actualizado = depositoRepository.save(deposito);
+                    indiceDepositos.reconstruir();
+                    matrizDepositos.actualizar();
+                    return ResponseEntity.ok(convertirADTO(actualizado));
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -84,6 +93,8 @@ public class DepositoController {
                 .map(deposito -> {
                     deposito.setActivo(false);
                     depositoRepository.save(deposito);
+                    indiceDepositos.reconstruir();
+                    matrizDepositos.actualizar();
                     return ResponseEntity.noContent().<Void>build();
                 })
                 .orElse(ResponseEntity.notFound().build());
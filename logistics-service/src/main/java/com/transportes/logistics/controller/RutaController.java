@@ -1,18 +1,28 @@
 package com.transportes.logistics.controller;
 
 import com.transportes.logistics.client.ClientsClient;
+import com.transportes.logistics.dto.AlternativasSolicitudDTO;
 import com.transportes.logistics.dto.RutaDTO;
 import com.transportes.logistics.service.RutaService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
 
+@Slf4j
 @Tag(name = "Rutas", description = "API para gestión de rutas de transporte")
 @RestController
 @RequestMapping("/api/rutas")
@@ -23,7 +33,12 @@ public class RutaController {
     private final RutaService rutaService;
     private final ClientsClient clientsClient;
 
-    @Operation(summary = "Generar rutas alternativas", description = "Genera múltiples opciones de ruta para una solicitud")
+    @Value("${rutas.alternativas.stream.timeout-ms:30000}")
+    private long timeoutStreamMs;
+
+    @Operation(summary = "Generar rutas alternativas", description = "Genera múltiples opciones de ruta para una solicitud: "
+                       + "el índice 0 es siempre la ruta directa y los siguientes, las alternativas con depósitos "
+                       + "ordenadas de menor a mayor costo")
     @PreAuthorize("hasRole('OPERADOR')")
     @GetMapping("/alternativas/{solicitudId}")
     public ResponseEntity<List<RutaDTO>> generarRutasAlternativas(@PathVariable("solicitudId") Long solicitudId) {
@@ -44,14 +59,71 @@ public class RutaController {
         return ResponseEntity.ok(rutas);
     }
 
+    @Operation(summary = "Generar rutas alternativas (streaming)",
+               description = "Server-Sent Events: un evento 'ruta' por alternativa apenas tiene su costo, "
+                       + "en el orden en que se completan (el campo indice identifica la alternativa), "
+                       + "y al final un evento 'fin' con la cantidad, o 'error' con el mensaje")
+    @PreAuthorize("hasRole('OPERADOR')")
+    @GetMapping(value = "/alternativas/{solicitudId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter generarRutasAlternativasStream(@PathVariable("solicitudId") Long solicitudId) {
+        SseEmitter emitter = new SseEmitter(timeoutStreamMs);
+        rutaService.generarRutasAlternativas(solicitudId, ruta -> enviar(emitter, "ruta", ruta))
+                .whenComplete((cantidad, error) -> {
+                    if (error == null) {
+                        enviar(emitter, "fin", Map.of("cantidad", cantidad));
+                    } else {
+                        Throwable causa = error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error;
+                        log.error("Error al generar rutas alternativas para solicitud {}: {}", solicitudId, causa.getMessage());
+                        enviar(emitter, "error", Map.of("error", "Error Interno", "message", String.valueOf(causa.getMessage())));
+                    }
+                    emitter.complete();
+                });
+        return emitter;
+    }
+
+    private void enviar(SseEmitter emitter, String evento, Object datos) {
+        try {
+            emitter.send(SseEmitter.event().name(evento).data(datos, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            // El cliente cerró la conexión: el resto de las alternativas se descarta
+            log.debug("No se pudo enviar el evento {}: {}", evento, e.getMessage());
+        }
+    }
+
+    @Operation(summary = "Generar rutas alternativas por lote",
+               description = "Genera las alternativas de varias solicitudes en una sola llamada. Los tramos "
+                       + "compartidos entre solicitudes se calculan una vez. El resultado de cada solicitud "
+                       + "trae sus rutas (con la versión para asignarlas) o el error, en el orden recibido")
+    @PreAuthorize("hasRole('OPERADOR')")
+    @PostMapping("/alternativas/lote")
+    public ResponseEntity<List<AlternativasSolicitudDTO>> generarRutasAlternativasLote(@RequestBody List<Long> solicitudIds) {
+        return ResponseEntity.ok(rutaService.generarRutasAlternativasLote(solicitudIds));
+    }
+
+    @Operation(summary = "Precalcular rutas alternativas (uso interno)",
+               description = "clients-service lo invoca al crear una solicitud, con el token de su cuenta "
+                       + "de servicio (rol SERVICIO). Responde sin esperar: las alternativas se calculan "
+                       + "en segundo plano y quedan en caché")
+    @PostMapping("/internal/solicitudes/{solicitudId}/precalcular")
+    public ResponseEntity<Void> precalcularAlternativas(@PathVariable("solicitudId") Long solicitudId) {
+        rutaService.precalcularAlternativas(solicitudId);
+        return ResponseEntity.accepted().build();
+    }
+
     @Operation(summary = "Asignar ruta a solicitud",
-               description = "Regenera y guarda la ruta seleccionada según su índice (0=directa, 1=1 depósito, 2=2 depósitos)")
+               description = "Guarda la ruta seleccionada según su índice en la lista de alternativas "
+                       + "(0 = ruta directa; 1 en adelante = alternativas con depósitos, de menor a mayor costo). "
+                       + "Si se envía la versión devuelta al generar las alternativas, se reutilizan sin recalcularlas; "
+                       + "si las alternativas cambiaron desde esa versión responde 409. Sin versión se recalculan "
+                       + "con los datos actuales de la solicitud")
     @PreAuthorize("hasRole('OPERADOR')")
     @PostMapping("/{solicitudId}/asignar/{indiceRuta}")
     public ResponseEntity<RutaDTO> asignarRuta(
             @PathVariable("solicitudId") Long solicitudId,
-            @PathVariable("indiceRuta") Integer indiceRuta) {
-        RutaDTO ruta = rutaService.asignarRuta(solicitudId, indiceRuta);
+            @PathVariable("indiceRuta") Integer indiceRuta,
+            @RequestParam(value = "version", required = false) String version) {
+        RutaDTO ruta = rutaService.asignarRuta(solicitudId, indiceRuta, version);
         return ResponseEntity.ok(ruta);
     }
 }
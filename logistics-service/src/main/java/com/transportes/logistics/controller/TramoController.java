@@ -23,7 +23,8 @@ public class TramoController {
     private final TramoService tramoService;
     private final CamionService camionService;
 
-    @Operation(summary = "Asignar camión a tramo")
+    @Operation(summary = "Asignar camión a tramo",
+            description = "Responde 409 si el camión ya fue reservado o el tramo ya tiene camión asignado")
     @PreAuthorize("hasRole('OPERADOR')")
     @PostMapping("/{tramoId}/asignar-camion")
     public ResponseEntity<Void> asignarCamion(
@@ -0,0 +1,18 @@
+package com.transportes.logistics.dto;
+
+import lombok.*;
+import java.util.List;
+
+/**
+ * Resultado de la planificación por lote para una solicitud: sus alternativas o el motivo del error
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AlternativasSolicitudDTO {
+    private Long solicitudId;
+    private String version;
+    private List<RutaDTO> rutas;
+    private String error; // null si las alternativas se generaron correctamente
+}
@@ -17,8 +17,10 @@ public class RutaDTO {
     private Integer cantidadTramos;
     private Integer cantidadDepositos;
     private BigDecimal distanciaTotalKm;
+    private Boolean distanciasEstimadas; // true si algún tramo se estimó sin OSRM
     private Integer tiempoEstimadoTotalHoras;
     private BigDecimal costoEstimadoTotal;
     private Boolean seleccionada;
     private List<TramoDTO> tramos;
+    private String version; // Versión de las alternativas generadas, para asignar sin recalcularlas
 }
@@ -26,6 +26,8 @@ public class TramoDTO {
     @Positive(message = "La distancia debe ser positiva")
     private BigDecimal distanciaKm;
 
+    private Boolean distanciaEstimada; // true si la distancia se estimó sin OSRM
+
     private Tramo.EstadoTramo estado;
     private Long camionId;
     private String camionDominio;
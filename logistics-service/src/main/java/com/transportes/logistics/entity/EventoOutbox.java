@@ -0,0 +1,87 @@
+package com.transportes.logistics.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * Efecto sobre otro servicio (cambio de estado de la solicitud, costo real) pendiente de entregar.
+ * Se guarda en la misma transacción que el cambio del tramo y lo entrega en segundo plano
+ * DespachadorEventos, así el transportista no espera a clients-service ni a billing-service.
+ */
+@Entity
+@Table(name = "evento_outbox")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EventoOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 50)
+    @Enumerated(EnumType.STRING)
+    private TipoEvento tipo;
+
+    @Column(name = "solicitud_id", nullable = false)
+    private Long solicitudId;
+
+    @Column(name = "ruta_id")
+    private Long rutaId;
+
+    // Para ESTADO_SOLICITUD: estado al que pasa la solicitud y observación del historial
+    @Column(name = "estado_solicitud", length = 30)
+    private String estadoSolicitud;
+
+    @Column(length = 255)
+    private String observacion;
+
+    @Column(nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    private EstadoEvento estado;
+
+    @Column(nullable = false)
+    private Integer intentos;
+
+    @Column(name = "fecha_creacion")
+    private LocalDateTime fechaCreacion;
+
+    @Column(name = "proximo_intento", nullable = false)
+    private LocalDateTime proximoIntento;
+
+    @Column(name = "fecha_procesado")
+    private LocalDateTime fechaProcesado;
+
+    @Column(name = "ultimo_error", columnDefinition = "TEXT")
+    private String ultimoError;
+
+    @PrePersist
+    protected void onCreate() {
+        if (fechaCreacion == null) {
+            fechaCreacion = LocalDateTime.now();
+        }
+        if (proximoIntento == null) {
+            proximoIntento = fechaCreacion;
+        }
+        if (estado == null) {
+            estado = EstadoEvento.PENDIENTE;
+        }
+        if (intentos == null) {
+            intentos = 0;
+        }
+    }
+
+    public enum TipoEvento {
+        ESTADO_SOLICITUD,   // Cambio de estado de la solicitud en clients-service
+        COSTO_REAL_RUTA     // Costo real en billing-service; al registrarlo, la solicitud pasa a ENTREGADA
+    }
+
+    public enum EstadoEvento {
+        PENDIENTE,
+        ENVIADO,
+        DESCARTADO
+    }
+}
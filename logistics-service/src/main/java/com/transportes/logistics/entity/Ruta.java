@@ -28,7 +28,7 @@ public class Ruta {
     private TipoRuta tipo = TipoRuta.PROPUESTA;
 
     @Column(name = "indice")
-    private Integer indice; // Índice de la ruta seleccionada (0, 1, 2)
+    private Integer indice; // Posición de la ruta seleccionada en el ranking de alternativas
 
     @Column(name = "descripcion", length = 255)
     private String descripcion; // Descripción de la ruta
@@ -65,6 +65,10 @@ public class Tramo {
     @Column(name = "distancia_km", nullable = false, precision = 10, scale = 2)
     private BigDecimal distanciaKm;
 
+    // Distancia estimada con Haversine porque OSRM no estuvo disponible
+    @Column(name = "distancia_estimada")
+    private Boolean distanciaEstimada;
+
     @Column(length = 20)
     @Enumerated(EnumType.STRING)
     private EstadoTramo estado = EstadoTramo.ESTIMADO;
@@ -105,6 +109,9 @@ public class Tramo {
         if (estado == null) {
             estado = EstadoTramo.ESTIMADO;
         }
+        if (distanciaEstimada == null) {
+            distanciaEstimada = false;
+        }
     }
 
     public enum TipoTramo {
@@ -120,4 +127,31 @@ public class Tramo {
         INICIADO,
         FINALIZADO
     }
+
+    /**
+     * Transiciones válidas del ciclo de vida de un tramo. Cada una se aplica con un UPDATE
+     * condicionado al estado de origen (ver TramoRepository), así dos pedidos simultáneos
+     * no pueden aplicar la misma transición.
+     */
+    public enum TransicionTramo {
+        ASIGNAR(EstadoTramo.ESTIMADO, EstadoTramo.ASIGNADO),
+        INICIAR(EstadoTramo.ASIGNADO, EstadoTramo.INICIADO),
+        FINALIZAR(EstadoTramo.INICIADO, EstadoTramo.FINALIZADO);
+
+        private final EstadoTramo desde;
+        private final EstadoTramo hacia;
+
+        TransicionTramo(EstadoTramo desde, EstadoTramo hacia) {
+            this.desde = desde;
+            this.hacia = hacia;
+        }
+
+        public EstadoTramo desde() {
+            return desde;
+        }
+
+        public EstadoTramo hacia() {
+            return hacia;
+        }
+    }
 }
@@ -0,0 +1,49 @@
+package com.transportes.logistics.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * Distancia por ruta entre dos puntos calculada por OSRM, persistida para no volver a consultarla
+ * tras un reinicio. Las coordenadas se guardan redondeadas (grados x 10^precisionDecimales).
+ */
+@Entity
+@Table(name = "tramo_distancia_cache",
+       uniqueConstraints = @UniqueConstraint(name = "uk_tramo_distancia_cache_puntos",
+               columnNames = {"origen_lat", "origen_lon", "destino_lat", "destino_lon", "precision_decimales"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TramoDistanciaCache {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "origen_lat", nullable = false)
+    private Long origenLat;
+
+    @Column(name = "origen_lon", nullable = false)
+    private Long origenLon;
+
+    @Column(name = "destino_lat", nullable = false)
+    private Long destinoLat;
+
+    @Column(name = "destino_lon", nullable = false)
+    private Long destinoLon;
+
+    @Column(name = "precision_decimales", nullable = false)
+    private Integer precisionDecimales;
+
+    @Column(name = "distancia_metros", nullable = false)
+    private Double distanciaMetros;
+
+    @Column(name = "duracion_segundos", nullable = false)
+    private Integer duracionSegundos;
+
+    @Column(name = "fecha_calculo", nullable = false)
+    private LocalDateTime fechaCalculo;
+}
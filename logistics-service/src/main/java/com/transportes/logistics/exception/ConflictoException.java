@@ -0,0 +1,13 @@
+package com.transportes.logistics.exception;
+
+/**
+ * La operación chocó con un cambio concurrente (por ejemplo, datos que cambiaron desde que se
+ * consultaron o un recurso que tomó otro pedido). Se responde con 409 para que quien llama vuelva
+ * a consultar o elija otro recurso en lugar de reintentar lo mismo
+ */
+public class ConflictoException extends RuntimeException {
+
+    public ConflictoException(String message) {
+        super(message);
+    }
+}
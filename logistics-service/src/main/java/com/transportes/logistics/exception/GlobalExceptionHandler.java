@@ -10,6 +10,14 @@ import java.util.Map;
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
+    @ExceptionHandler(ConflictoException.class)
+    public ResponseEntity<Map<String, String>> handleConflicto(ConflictoException ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "Conflicto");
+        error.put("message", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+    }
+
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<Map<String, String>> handleRuntimeException(RuntimeException ex) {
         Map<String, String> error = new HashMap<>();
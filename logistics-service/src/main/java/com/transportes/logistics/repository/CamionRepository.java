@@ -2,6 +2,7 @@ package com.transportes.logistics.repository;
 
 import com.transportes.logistics.entity.Camion;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -23,4 +24,21 @@ public interface CamionRepository extends JpaRepository<Camion, Long> {
             @Param("volumenRequerido") BigDecimal volumenRequerido);
     
     List<Camion> findByActivoTrue();
+
+    /**
+     * Reserva el camión solo si sigue DISPONIBLE. Dos operadores que reservan el mismo camión
+     * compiten por una única fila: uno actualiza y el otro recibe 0 filas, sin locks explícitos
+     */
+    @Modifying
+    @Query("UPDATE Camion c SET c.estado = 'OCUPADO' WHERE c.id = :id AND c.estado = 'DISPONIBLE'")
+    int reservar(@Param("id") Long id);
+
+    /**
+     * Libera el camión solo si no le quedan tramos ASIGNADO o INICIADO. El EXISTS usa el índice
+     * (camion_id, estado) de tramo, así el costo no depende del historial del camión
+     */
+    @Modifying
+    @Query("UPDATE Camion c SET c.estado = 'DISPONIBLE' WHERE c.id = :id AND c.estado = 'OCUPADO' " +
+           "AND NOT EXISTS (SELECT 1 FROM Tramo t WHERE t.camion.id = :id AND t.estado IN ('ASIGNADO', 'INICIADO'))")
+    int liberarSiNoTieneTramosActivos(@Param("id") Long id);
 }
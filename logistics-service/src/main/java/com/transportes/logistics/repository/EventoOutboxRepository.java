@@ -0,0 +1,30 @@
+package com.transportes.logistics.repository;
+
+import com.transportes.logistics.entity.EventoOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EventoOutboxRepository extends JpaRepository<EventoOutbox, Long> {
+
+    /**
+     * Eventos pendientes listos para enviar, en orden. Se excluyen los de una solicitud que tiene
+     * un evento anterior esperando reintento, para no entregar sus cambios fuera de orden.
+     */
+    @Query("SELECT e FROM EventoOutbox e WHERE e.estado = 'PENDIENTE' AND e.proximoIntento <= :ahora "
+            + "AND NOT EXISTS (SELECT p FROM EventoOutbox p WHERE p.estado = 'PENDIENTE' "
+            + "AND p.solicitudId = e.solicitudId AND p.id < e.id AND p.proximoIntento > :ahora) "
+            + "ORDER BY e.id")
+    List<EventoOutbox> findListos(@Param("ahora") LocalDateTime ahora, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM EventoOutbox e WHERE e.estado <> 'PENDIENTE' AND e.fechaProcesado < :limite")
+    int eliminarProcesadosAntesDe(@Param("limite") LocalDateTime limite);
+}
@@ -1,7 +1,11 @@
 package com.transportes.logistics.repository;
 
 import com.transportes.logistics.entity.Ruta;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.util.List;
 import java.util.Optional;
@@ -14,4 +18,9 @@ public interface RutaRepository extends JpaRepository<Ruta, Long> {
     Optional<Ruta> findBySolicitudIdAndSeleccionadaTrue(Long solicitudId);
     
     List<Ruta> findBySolicitudIdAndTipo(Long solicitudId, Ruta.TipoRuta tipo);
+
+    // SELECT ... FOR UPDATE: la fila queda bloqueada hasta el fin de la transacción
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Ruta r WHERE r.id = :id")
+    Optional<Ruta> findParaActualizarById(@Param("id") Long id);
 }
@@ -0,0 +1,55 @@
+package com.transportes.logistics.repository;
+
+import com.transportes.logistics.entity.TramoDistanciaCache;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface TramoDistanciaCacheRepository extends JpaRepository<TramoDistanciaCache, Long> {
+
+    Optional<TramoDistanciaCache> findByOrigenLatAndOrigenLonAndDestinoLatAndDestinoLonAndPrecisionDecimales(
+            Long origenLat, Long origenLon, Long destinoLat, Long destinoLon, Integer precisionDecimales);
+
+    /**
+     * Filas cuyas coordenadas están entre las pedidas. Para una matriz (orígenes x destinos) son
+     * sus celdas; en general es un superconjunto que quien llama filtra por clave completa
+     */
+    @Query("SELECT t FROM TramoDistanciaCache t WHERE t.precisionDecimales = :precision " +
+           "AND t.origenLat IN :origenLats AND t.origenLon IN :origenLons " +
+           "AND t.destinoLat IN :destinoLats AND t.destinoLon IN :destinoLons")
+    List<TramoDistanciaCache> findCandidatos(@Param("origenLats") Collection<Long> origenLats,
+                                             @Param("origenLons") Collection<Long> origenLons,
+                                             @Param("destinoLats") Collection<Long> destinoLats,
+                                             @Param("destinoLons") Collection<Long> destinoLons,
+                                             @Param("precision") Integer precision);
+
+    @Modifying
+    @Query(value = "INSERT INTO tramo_distancia_cache " +
+                   "(origen_lat, origen_lon, destino_lat, destino_lon, precision_decimales, " +
+                   "distancia_metros, duracion_segundos, fecha_calculo) " +
+                   "VALUES (:origenLat, :origenLon, :destinoLat, :destinoLon, :precision, " +
+                   ":distanciaMetros, :duracionSegundos, :fechaCalculo) " +
+                   "ON CONFLICT (origen_lat, origen_lon, destino_lat, destino_lon, precision_decimales) " +
+                   "DO UPDATE SET distancia_metros = EXCLUDED.distancia_metros, " +
+                   "duracion_segundos = EXCLUDED.duracion_segundos, fecha_calculo = EXCLUDED.fecha_calculo",
+           nativeQuery = true)
+    void upsert(@Param("origenLat") long origenLat,
+                @Param("origenLon") long origenLon,
+                @Param("destinoLat") long destinoLat,
+                @Param("destinoLon") long destinoLon,
+                @Param("precision") int precision,
+                @Param("distanciaMetros") double distanciaMetros,
+                @Param("duracionSegundos") int duracionSegundos,
+                @Param("fechaCalculo") LocalDateTime fechaCalculo);
+
+    @Modifying
+    @Query("DELETE FROM TramoDistanciaCache t WHERE t.fechaCalculo < :limite")
+    int eliminarAnterioresA(@Param("limite") LocalDateTime limite);
+}
@@ -1,11 +1,15 @@
 package com.transportes.logistics.repository;
 
+import com.transportes.logistics.entity.Camion;
 import com.transportes.logistics.entity.Tramo;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface TramoRepository extends JpaRepository<Tramo, Long> {
@@ -19,4 +23,42 @@ public interface TramoRepository extends JpaRepository<Tramo, Long> {
     List<Tramo> findTramosAsignadosPorTransportista(@Param("keycloakUserId") String keycloakUserId);
     
     List<Tramo> findByEstado(Tramo.EstadoTramo estado);
+
+    @Query("SELECT t FROM Tramo t LEFT JOIN FETCH t.camion LEFT JOIN FETCH t.ruta WHERE t.id = :id")
+    Optional<Tramo> findConCamionYRutaById(@Param("id") Long id);
+
+    /*
+     * Transiciones de estado en una sola sentencia, condicionadas al estado de origen
+     * (y al transportista del camión, cuando corresponde). Devuelven las filas actualizadas:
+     * 0 si el tramo no existe, no está en el estado esperado o no es del transportista.
+     */
+
+    @Modifying
+    @Query("UPDATE Tramo t SET t.estado = :hacia, t.camion = :camion WHERE t.id = :id AND t.estado = :desde")
+    int asignarCamion(@Param("id") Long id,
+                      @Param("desde") Tramo.EstadoTramo desde,
+                      @Param("hacia") Tramo.EstadoTramo hacia,
+                      @Param("camion") Camion camion);
+
+    @Modifying
+    @Query("UPDATE Tramo t SET t.estado = :hacia, t.fechaHoraInicioReal = :ahora " +
+           "WHERE t.id = :id AND t.estado = :desde " +
+           "AND t.camion.id IN (SELECT c.id FROM Camion c WHERE c.transportista.keycloakUserId = :keycloakUserId)")
+    int iniciar(@Param("id") Long id,
+                @Param("desde") Tramo.EstadoTramo desde,
+                @Param("hacia") Tramo.EstadoTramo hacia,
+                @Param("keycloakUserId") String keycloakUserId,
+                @Param("ahora") LocalDateTime ahora);
+
+    @Modifying
+    @Query("UPDATE Tramo t SET t.estado = :hacia, t.fechaHoraFinReal = :ahora " +
+           "WHERE t.id = :id AND t.estado = :desde " +
+           "AND t.camion.id IN (SELECT c.id FROM Camion c WHERE c.transportista.keycloakUserId = :keycloakUserId)")
+    int finalizar(@Param("id") Long id,
+                  @Param("desde") Tramo.EstadoTramo desde,
+                  @Param("hacia") Tramo.EstadoTramo hacia,
+                  @Param("keycloakUserId") String keycloakUserId,
+                  @Param("ahora") LocalDateTime ahora);
+
+    boolean existsByRutaIdAndEstadoNot(Long rutaId, Tramo.EstadoTramo estado);
 }
@@ -0,0 +1,62 @@
+package com.transportes.logistics.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.transportes.logistics.client.OsrmClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Caché de corta duración de las rutas alternativas generadas para cada solicitud,
+ * para que asignarRuta pueda persistir la propuesta elegida sin volver a consultar
+ * clients-service ni OSRM. Cada entrada lleva un token de versión: si el operador envía
+ * un token distinto al guardado, la entrada se considera vencida.
+ * No se guardan propuestas con tramos estimados por Haversine: se recalculan en la próxima consulta.
+ */
+@Slf4j
+@Component
+public class CacheAlternativas {
+
+    private final Cache<Long, RutaService.PropuestasSolicitud> cache;
+
+    public CacheAlternativas(@Value("${rutas.alternativas.cache.max-entradas:1000}") long maxEntradas,
+                             @Value("${rutas.alternativas.cache.ttl:10m}") Duration ttl,
+                             MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntradas)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "rutas.alternativas");
+    }
+
+    public void guardar(Long solicitudId, RutaService.PropuestasSolicitud propuestas) {
+        if (propuestas.distancias().values().stream().anyMatch(OsrmClient.RouteResponse::isEstimada)) {
+            log.debug("Alternativas de solicitud {} con tramos estimados: no se guardan en la caché", solicitudId);
+            return;
+        }
+        cache.put(solicitudId, propuestas);
+    }
+
+    /**
+     * Propuestas guardadas para la solicitud, o null si no hay o si no coinciden con la versión
+     * pedida (sin versión no se devuelve ninguna: no hay cómo saber si siguen vigentes)
+     */
+    public RutaService.PropuestasSolicitud obtener(Long solicitudId, String version) {
+        RutaService.PropuestasSolicitud propuestas = cache.getIfPresent(solicitudId);
+        if (propuestas == null || version == null || !version.equals(propuestas.version())) {
+            return null;
+        }
+        return propuestas;
+    }
+
+    public void invalidar(Long solicitudId) {
+        cache.invalidate(solicitudId);
+    }
+}
@@ -3,6 +3,7 @@ package com.transportes.logistics.service;
 import com.transportes.logistics.dto.CamionDTO;
 import com.transportes.logistics.entity.Camion;
 import com.transportes.logistics.entity.Tramo;
+import com.transportes.logistics.exception.ConflictoException;
 import com.transportes.logistics.repository.CamionRepository;
 import com.transportes.logistics.repository.TramoRepository;
 import lombok.RequiredArgsConstructor;
@@ -23,26 +24,24 @@ public class CamionService {
 
     @Transactional
     public void asignarCamionATramo(Long tramoId, Long camionId) {
-        Tramo tramo = tramoRepository.findById(tramoId)
-                .orElseThrow(() -> new RuntimeException("Tramo no encontrado"));
-
-        Camion camion = camionRepository.findById(camionId)
-                .orElseThrow(() -> new RuntimeException("Camión no encontrado"));
-
-        // Validar que el camión esté disponible
-        if (camion.getEstado() != Camion.EstadoCamion.DISPONIBLE) {
-            throw new RuntimeException("El camión no está disponible");
+        // Reservar el camión: si ya no está DISPONIBLE se rechaza de inmediato con 409
+        if (camionRepository.reservar(camionId) == 0) {
+            if (!camionRepository.existsById(camionId)) {
+                throw new RuntimeException("Camión no encontrado");
+            }
+            throw new ConflictoException("El camión no está disponible");
         }
 
-        // Asignar camión al tramo
-        tramo.setCamion(camion);
-        tramo.setEstado(Tramo.EstadoTramo.ASIGNADO);
-
-        // Cambiar estado del camión
-        camion.setEstado(Camion.EstadoCamion.OCUPADO);
-
-        tramoRepository.save(tramo);
-        camionRepository.save(camion);
+        // Asignar camión al tramo: solo si todavía no tiene uno (ESTIMADO).
+        // Si falla se revierte también la reserva del camión
+        Tramo.TransicionTramo transicion = Tramo.TransicionTramo.ASIGNAR;
+        Camion camion = camionRepository.getReferenceById(camionId);
+        if (tramoRepository.asignarCamion(tramoId, transicion.desde(), transicion.hacia(), camion) == 0) {
+            if (!tramoRepository.existsById(tramoId)) {
+                throw new RuntimeException("Tramo no encontrado");
+            }
+            throw new ConflictoException("El tramo no está en estado " + transicion.desde());
+        }
 
         log.info("Camión {} asignado al tramo {}", camionId, tramoId);
     }
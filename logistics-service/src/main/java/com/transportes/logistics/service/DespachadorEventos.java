@@ -0,0 +1,224 @@
+package com.transportes.logistics.service;
+
+import com.transportes.logistics.client.BillingClient;
+import com.transportes.logistics.client.ClientsClient;
+import com.transportes.logistics.entity.Camion;
+import com.transportes.logistics.entity.EventoOutbox;
+import com.transportes.logistics.entity.Ruta;
+import com.transportes.logistics.repository.EventoOutboxRepository;
+import com.transportes.logistics.repository.RutaRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Entrega los eventos de la tabla evento_outbox fuera de la transacción que los generó.
+ * En cada pasada los cambios de estado se envían a clients-service en una sola llamada y cada
+ * costo real se pide a billing-service; si la entrega falla se reintenta con espera creciente
+ * hasta un máximo de intentos. Los eventos de una misma solicitud se entregan en orden.
+ * Ambos destinos son idempotentes (la solicitud y el estado, o la solicitud y el costo final,
+ * hacen de clave), así un reintento tras una respuesta perdida no duplica el efecto.
+ * Pensado para una sola instancia de logistics-service.
+ */
+@Slf4j
+@Component
+public class DespachadorEventos {
+
+    private static final String ESTADO_ENTREGADA = "ENTREGADA";
+
+    private final EventoOutboxRepository eventoOutboxRepository;
+    private final RutaRepository rutaRepository;
+    private final ClientsClient clientsClient;
+    private final BillingClient billingClient;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${eventos.outbox.habilitado:true}")
+    private boolean habilitado;
+
+    @Value("${eventos.outbox.lote:100}")
+    private int tamanioLote;
+
+    @Value("${eventos.outbox.max-intentos:10}")
+    private int maxIntentos;
+
+    @Value("${eventos.outbox.espera-reintento:5s}")
+    private Duration esperaReintento;
+
+    @Value("${eventos.outbox.espera-maxima:10m}")
+    private Duration esperaMaxima;
+
+    @Value("${eventos.outbox.retencion:7d}")
+    private Duration retencion;
+
+    public DespachadorEventos(EventoOutboxRepository eventoOutboxRepository,
+                              RutaRepository rutaRepository,
+                              ClientsClient clientsClient,
+                              BillingClient billingClient,
+                              PlatformTransactionManager transactionManager) {
+        this.eventoOutboxRepository = eventoOutboxRepository;
+        this.rutaRepository = rutaRepository;
+        this.clientsClient = clientsClient;
+        this.billingClient = billingClient;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${eventos.outbox.intervalo-ms:500}")
+    public void despacharPendientes() {
+        if (!habilitado) {
+            return;
+        }
+        List<EventoOutbox> listos = eventoOutboxRepository.findListos(
+                LocalDateTime.now(), PageRequest.of(0, tamanioLote));
+        if (listos.isEmpty()) {
+            return;
+        }
+
+        // Solicitudes con un evento fallido en esta pasada: sus eventos siguientes esperan
+        Set<Long> demoradas = new HashSet<>();
+        List<EventoOutbox> cambiosEstado = new ArrayList<>();
+        for (EventoOutbox evento : listos) {
+            if (demoradas.contains(evento.getSolicitudId())) {
+                continue;
+            }
+            switch (evento.getTipo()) {
+                case ESTADO_SOLICITUD -> cambiosEstado.add(evento);
+                case COSTO_REAL_RUTA -> {
+                    if (!despacharCostoReal(evento)) {
+                        demoradas.add(evento.getSolicitudId());
+                    }
+                }
+            }
+        }
+        despacharCambiosEstado(cambiosEstado);
+        log.debug("Procesados {} eventos de evento_outbox", listos.size());
+    }
+
+    @Scheduled(cron = "${eventos.outbox.purga-cron:0 30 3 * * *}")
+    public void purgarProcesados() {
+        LocalDateTime limite = LocalDateTime.now().minus(retencion);
+        Integer eliminados = transactionTemplate.execute(status ->
+                eventoOutboxRepository.eliminarProcesadosAntesDe(limite));
+        log.info("Purgados {} eventos de evento_outbox procesados antes de {}", eliminados, limite);
+    }
+
+    /**
+     * Todos los cambios de estado de la pasada en una sola llamada; clients-service los aplica en orden
+     */
+    private void despacharCambiosEstado(List<EventoOutbox> eventos) {
+        if (eventos.isEmpty()) {
+            return;
+        }
+        try {
+            clientsClient.actualizarEstados(eventos.stream()
+                    .map(e -> new ClientsClient.CambioEstadoRequest(e.getSolicitudId(), e.getEstadoSolicitud(), e.getObservacion()))
+                    .collect(Collectors.toList()));
+            eventos.forEach(this::marcarEnviado);
+            log.info("Enviados {} cambios de estado de solicitudes a clients-service", eventos.size());
+        } catch (Exception e) {
+            eventos.forEach(evento -> registrarFalla(evento, e));
+        }
+        transactionTemplate.executeWithoutResult(status -> eventoOutboxRepository.saveAll(eventos));
+    }
+
+    /**
+     * Pide el costo real a billing-service, lo guarda en la ruta y registra el pase a ENTREGADA
+     * como un nuevo evento, todo en una transacción
+     */
+    private boolean despacharCostoReal(EventoOutbox evento) {
+        try {
+            ClientsClient.SolicitudResponse solicitud = clientsClient.obtenerSolicitud(evento.getSolicitudId());
+            BillingClient.CalcularCostoRequest request = transactionTemplate.execute(status ->
+                    construirCostoRealRequest(evento.getRutaId(), solicitud));
+            BillingClient.CostoEstimadoResponse costoReal = billingClient.calcularCostoRealInterno(request);
+
+            transactionTemplate.executeWithoutResult(status -> {
+                rutaRepository.findById(evento.getRutaId()).ifPresent(ruta -> {
+                    ruta.setCostoRealTotal(costoReal.costoTotal());
+                    rutaRepository.save(ruta);
+                });
+                marcarEnviado(evento);
+                eventoOutboxRepository.save(evento);
+                eventoOutboxRepository.save(EventoOutbox.builder()
+                        .tipo(EventoOutbox.TipoEvento.ESTADO_SOLICITUD)
+                        .solicitudId(evento.getSolicitudId())
+                        .rutaId(evento.getRutaId())
+                        .estadoSolicitud(ESTADO_ENTREGADA)
+                        .observacion("Entrega completada exitosamente")
+                        .build());
+            });
+            log.info("Costo real calculado para ruta {}: {}", evento.getRutaId(), costoReal.costoTotal());
+            return true;
+        } catch (Exception e) {
+            registrarFalla(evento, e);
+            transactionTemplate.executeWithoutResult(status -> eventoOutboxRepository.save(evento));
+            return false;
+        }
+    }
+
+    private BillingClient.CalcularCostoRequest construirCostoRealRequest(Long rutaId, ClientsClient.SolicitudResponse solicitud) {
+        Ruta ruta = rutaRepository.findById(rutaId)
+                .orElseThrow(() -> new RuntimeException("Ruta no encontrada: " + rutaId));
+
+        List<BillingClient.TramoRequest> tramosRequest = ruta.getTramos().stream()
+                .map(tramo -> {
+                    Camion camion = tramo.getCamion();
+                    return new BillingClient.TramoRequest(
+                            tramo.getId(),
+                            tramo.getDistanciaKm(),
+                            camion.getCostoBasePorKm(),
+                            camion.getConsumoCombustibleKmLitro()
+                    );
+                })
+                .collect(Collectors.toList());
+
+        return new BillingClient.CalcularCostoRequest(
+                ruta.getSolicitudId(),
+                tramosRequest,
+                solicitud.contenedor().pesoKg(),
+                solicitud.contenedor().volumenM3(),
+                ruta.getCantidadDepositos(), // días de estadía
+                null, // horasEstadiaTotales - se calculará en base a fechas reales
+                null  // costosAdicionales
+        );
+    }
+
+    private void marcarEnviado(EventoOutbox evento) {
+        evento.setEstado(EventoOutbox.EstadoEvento.ENVIADO);
+        evento.setFechaProcesado(LocalDateTime.now());
+        evento.setUltimoError(null);
+    }
+
+    private void registrarFalla(EventoOutbox evento, Exception e) {
+        LocalDateTime ahora = LocalDateTime.now();
+        int intentos = evento.getIntentos() + 1;
+        evento.setIntentos(intentos);
+        evento.setUltimoError(e.getMessage());
+        if (intentos >= maxIntentos) {
+            evento.setEstado(EventoOutbox.EstadoEvento.DESCARTADO);
+            evento.setFechaProcesado(ahora);
+            log.error("Evento {} {} de solicitud {} descartado tras {} intentos: {}",
+                    evento.getId(), evento.getTipo(), evento.getSolicitudId(), intentos, e.getMessage());
+        } else {
+            evento.setProximoIntento(ahora.plus(espera(intentos)));
+            log.warn("No se pudo entregar el evento {} {} de solicitud {} (intento {}): {}",
+                    evento.getId(), evento.getTipo(), evento.getSolicitudId(), intentos, e.getMessage());
+        }
+    }
+
+    private Duration espera(int intentos) {
+        Duration espera = esperaReintento.multipliedBy(1L << Math.min(intentos - 1, 20));
+        return espera.compareTo(esperaMaxima) > 0 ? esperaMaxima : espera;
+    }
+}
@@ -0,0 +1,110 @@
+package com.transportes.logistics.service;
+
+/**
+ * Coordenadas de un conjunto de puntos guardadas como arreglos primitivos paralelos (x, y, z sobre
+ * la esfera unitaria, calculados una sola vez a partir de los radianes y cosenos de cada punto).
+ * Calcular la distancia desde un punto a todos los demás no requiere funciones trigonométricas por
+ * elemento: la cuerda al cuadrado es solo multiplicaciones y sumas sobre arreglos contiguos, un bucle
+ * que el compilador JIT vectoriza. La distancia Haversine se obtiene de la cuerda
+ * (2R·asin(cuerda/2)) y solo cuando hace falta en kilómetros.
+ */
+public final class DistanciasHaversine {
+
+    public static final double RADIO_TIERRA_KM = 6371.0;
+
+    private final double[] x;
+    private final double[] y;
+    private final double[] z;
+
+    public DistanciasHaversine(double[] latitudes, double[] longitudes) {
+        if (latitudes.length != longitudes.length) {
+            throw new IllegalArgumentException("Latitudes y longitudes deben tener el mismo largo");
+        }
+        int n = latitudes.length;
+        this.x = new double[n];
+        this.y = new double[n];
+        this.z = new double[n];
+        for (int i = 0; i < n; i++) {
+            double lat = Math.toRadians(latitudes[i]);
+            double lon = Math.toRadians(longitudes[i]);
+            double cosLat = Math.cos(lat);
+            x[i] = cosLat * Math.cos(lon);
+            y[i] = cosLat * Math.sin(lon);
+            z[i] = Math.sin(lat);
+        }
+    }
+
+    public int cantidad() {
+        return x.length;
+    }
+
+    /**
+     * Punto (x, y, z) sobre la esfera unitaria, para usar con {@link #cuerdaCuadrada(int, double[])}
+     */
+    public static double[] proyectar(double latitud, double longitud) {
+        double lat = Math.toRadians(latitud);
+        double lon = Math.toRadians(longitud);
+        double cosLat = Math.cos(lat);
+        return new double[]{cosLat * Math.cos(lon), cosLat * Math.sin(lon), Math.sin(lat)};
+    }
+
+    public double coordenada(int i, int eje) {
+        return switch (eje) {
+            case 0 -> x[i];
+            case 1 -> y[i];
+            default -> z[i];
+        };
+    }
+
+    /**
+     * Cuerda al cuadrado entre el punto i y un punto proyectado. Crece igual que la distancia
+     * sobre la superficie, así que sirve para comparar sin convertir a kilómetros.
+     */
+    public double cuerdaCuadrada(int i, double[] punto) {
+        double dx = x[i] - punto[0];
+        double dy = y[i] - punto[1];
+        double dz = z[i] - punto[2];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Cuerda al cuadrado desde el punto a cada uno de los puntos del conjunto
+     */
+    public void cuerdasCuadradas(double latitud, double longitud, double[] salida) {
+        double[] punto = proyectar(latitud, longitud);
+        double px = punto[0];
+        double py = punto[1];
+        double pz = punto[2];
+        int n = x.length;
+        for (int i = 0; i < n; i++) {
+            double dx = x[i] - px;
+            double dy = y[i] - py;
+            double dz = z[i] - pz;
+            salida[i] = dx * dx + dy * dy + dz * dz;
+        }
+    }
+
+    /**
+     * Distancia Haversine en km desde el punto a cada uno de los puntos del conjunto
+     */
+    public void distanciasKm(double latitud, double longitud, double[] salida) {
+        cuerdasCuadradas(latitud, longitud, salida);
+        int n = x.length;
+        for (int i = 0; i < n; i++) {
+            salida[i] = aKilometros(salida[i]);
+        }
+    }
+
+    public static double aKilometros(double cuerdaCuadrada) {
+        return 2 * RADIO_TIERRA_KM * Math.asin(Math.min(1.0, Math.sqrt(cuerdaCuadrada) / 2));
+    }
+
+    /**
+     * Cuerda al cuadrado equivalente a una distancia sobre la superficie
+     */
+    public static double aCuerdaCuadrada(double distanciaKm) {
+        double angulo = Math.min(distanciaKm / RADIO_TIERRA_KM, Math.PI);
+        double cuerda = 2 * Math.sin(angulo / 2);
+        return cuerda * cuerda;
+    }
+}
@@ -0,0 +1,223 @@
+package com.transportes.logistics.service;
+
+import com.transportes.logistics.entity.Deposito;
+import com.transportes.logistics.repository.DepositoRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+
+/**
+ * Índice espacial en memoria de los depósitos activos (KD-tree).
+ * Cada depósito se proyecta a un punto (x, y, z) sobre la esfera unitaria ({@link DistanciasHaversine}):
+ * la distancia euclídea entre esos puntos (cuerda) crece igual que la distancia sobre la superficie
+ * terrestre, por lo que los vecinos más cercanos del árbol son exactamente los más cercanos por Haversine.
+ * Se reconstruye al arrancar, cuando DepositoController modifica depósitos y periódicamente
+ * (para recoger cambios hechos por otras instancias).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IndiceDepositos {
+
+    private final DepositoRepository depositoRepository;
+
+    private volatile Arbol arbol;
+    private volatile long version;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${depositos.indice.refresco-ms:300000}",
+               fixedDelayString = "${depositos.indice.refresco-ms:300000}")
+    public synchronized void reconstruir() {
+        List<Deposito> activos = depositoRepository.findByActivoTrue();
+        Arbol nuevo = new Arbol(activos);
+        if (arbol == null || arbol.huella != nuevo.huella) {
+            version++;
+        }
+        this.arbol = nuevo;
+        log.debug("Índice de depósitos reconstruido con {} depósitos activos (versión {})", activos.size(), version);
+    }
+
+    /**
+     * Se incrementa cada vez que cambia el conjunto de depósitos activos o sus coordenadas
+     */
+    public long version() {
+        obtenerArbol();
+        return version;
+    }
+
+    public int cantidad() {
+        return obtenerArbol().depositos.length;
+    }
+
+    /**
+     * Los k depósitos activos más cercanos al punto, ordenados de menor a mayor distancia
+     */
+    public List<Deposito> masCercanos(BigDecimal latitud, BigDecimal longitud, int k) {
+        return obtenerArbol().masCercanos(latitud.doubleValue(), longitud.doubleValue(), k);
+    }
+
+    /**
+     * Depósitos activos a menos de radioKm del punto (distancia en línea recta), ordenados por distancia
+     */
+    public List<Deposito> dentroDelRadio(BigDecimal latitud, BigDecimal longitud, double radioKm) {
+        return obtenerArbol().dentroDelRadio(latitud.doubleValue(), longitud.doubleValue(), radioKm);
+    }
+
+    private Arbol obtenerArbol() {
+        Arbol actual = arbol;
+        if (actual == null) {
+            reconstruir();
+            actual = arbol;
+        }
+        return actual;
+    }
+
+    /**
+     * KD-tree implícito e inmutable: el nodo de cada rango [desde, hasta) es su elemento central,
+     * y los subárboles son las mitades izquierda y derecha.
+     */
+    private static final class Arbol {
+
+        private final Deposito[] depositos;
+        private final DistanciasHaversine coordenadas; // en el orden del árbol
+        private final int[] ejes;                      // eje de corte de cada nodo
+        private final int huella;        // suma de hashes de ids y coordenadas (independiente del orden), para detectar cambios
+
+        Arbol(List<Deposito> activos) {
+            int n = activos.size();
+            this.depositos = new Deposito[n];
+            this.ejes = new int[n];
+
+            Integer[] orden = new Integer[n];
+            double[] latitudes = new double[n];
+            double[] longitudes = new double[n];
+            for (int i = 0; i < n; i++) {
+                Deposito d = activos.get(i);
+                latitudes[i] = d.getLatitud().doubleValue();
+                longitudes[i] = d.getLongitud().doubleValue();
+                orden[i] = i;
+            }
+
+            construir(orden, 0, n, 0, new DistanciasHaversine(latitudes, longitudes));
+            int hash = 0;
+            double[] latitudesArbol = new double[n];
+            double[] longitudesArbol = new double[n];
+            for (int i = 0; i < n; i++) {
+                depositos[i] = activos.get(orden[i]);
+                latitudesArbol[i] = latitudes[orden[i]];
+                longitudesArbol[i] = longitudes[orden[i]];
+                hash += Objects.hash(depositos[i].getId(),
+                        depositos[i].getLatitud().stripTrailingZeros(), depositos[i].getLongitud().stripTrailingZeros());
+            }
+            this.coordenadas = new DistanciasHaversine(latitudesArbol, longitudesArbol);
+            this.huella = hash;
+        }
+
+        private void construir(Integer[] orden, int desde, int hasta, int eje, DistanciasHaversine proyectados) {
+            if (hasta - desde <= 0) {
+                return;
+            }
+            Arrays.sort(orden, desde, hasta, Comparator.comparingDouble(i -> proyectados.coordenada(i, eje)));
+            int medio = (desde + hasta) >>> 1;
+            ejes[medio] = eje;
+            int siguiente = (eje + 1) % 3;
+            construir(orden, desde, medio, siguiente, proyectados);
+            construir(orden, medio + 1, hasta, siguiente, proyectados);
+        }
+
+        List<Deposito> masCercanos(double latitud, double longitud, int k) {
+            if (k <= 0 || depositos.length == 0) {
+                return List.of();
+            }
+            double[] objetivo = DistanciasHaversine.proyectar(latitud, longitud);
+            // Max-heap por distancia: la cabeza es el peor de los k mejores encontrados hasta ahora
+            PriorityQueue<double[]> mejores = new PriorityQueue<>(k, (a, b) -> Double.compare(b[1], a[1]));
+            buscarCercanos(0, depositos.length, objetivo, k, mejores);
+
+            List<double[]> ordenados = new ArrayList<>(mejores);
+            ordenados.sort(Comparator.comparingDouble(a -> a[1]));
+            List<Deposito> resultado = new ArrayList<>(ordenados.size());
+            for (double[] candidato : ordenados) {
+                resultado.add(depositos[(int) candidato[0]]);
+            }
+            return resultado;
+        }
+
+        private void buscarCercanos(int desde, int hasta, double[] objetivo, int k, PriorityQueue<double[]> mejores) {
+            if (hasta - desde <= 0) {
+                return;
+            }
+            int medio = (desde + hasta) >>> 1;
+            double distancia = coordenadas.cuerdaCuadrada(medio, objetivo);
+            if (mejores.size() < k) {
+                mejores.add(new double[]{medio, distancia});
+            } else if (distancia < mejores.peek()[1]) {
+                mejores.poll();
+                mejores.add(new double[]{medio, distancia});
+            }
+
+            int eje = ejes[medio];
+            double diferencia = objetivo[eje] - coordenadas.coordenada(medio, eje);
+            boolean izquierdaPrimero = diferencia < 0;
+            if (izquierdaPrimero) {
+                buscarCercanos(desde, medio, objetivo, k, mejores);
+            } else {
+                buscarCercanos(medio + 1, hasta, objetivo, k, mejores);
+            }
+            // Solo se explora el otro lado si el plano de corte está más cerca que el peor candidato
+            if (mejores.size() < k || diferencia * diferencia < mejores.peek()[1]) {
+                if (izquierdaPrimero) {
+                    buscarCercanos(medio + 1, hasta, objetivo, k, mejores);
+                } else {
+                    buscarCercanos(desde, medio, objetivo, k, mejores);
+                }
+            }
+        }
+
+        List<Deposito> dentroDelRadio(double latitud, double longitud, double radioKm) {
+            if (depositos.length == 0 || radioKm < 0) {
+                return List.of();
+            }
+            double[] objetivo = DistanciasHaversine.proyectar(latitud, longitud);
+            List<double[]> encontrados = new ArrayList<>();
+            buscarEnRadio(0, depositos.length, objetivo, DistanciasHaversine.aCuerdaCuadrada(radioKm), encontrados);
+
+            encontrados.sort(Comparator.comparingDouble(a -> a[1]));
+            List<Deposito> resultado = new ArrayList<>(encontrados.size());
+            for (double[] encontrado : encontrados) {
+                resultado.add(depositos[(int) encontrado[0]]);
+            }
+            return resultado;
+        }
+
+        private void buscarEnRadio(int desde, int hasta, double[] objetivo, double radioCuadrado,
+                                   List<double[]> encontrados) {
+            if (hasta - desde <= 0) {
+                return;
+            }
+            int medio = (desde + hasta) >>> 1;
+            double distancia = coordenadas.cuerdaCuadrada(medio, objetivo);
+            if (distancia <= radioCuadrado) {
+                encontrados.add(new double[]{medio, distancia});
+            }
+            double diferencia = objetivo[ejes[medio]] - coordenadas.coordenada(medio, ejes[medio]);
+            if (diferencia < 0 || diferencia * diferencia <= radioCuadrado) {
+                buscarEnRadio(desde, medio, objetivo, radioCuadrado, encontrados);
+            }
+            if (diferencia >= 0 || diferencia * diferencia <= radioCuadrado) {
+                buscarEnRadio(medio + 1, hasta, objetivo, radioCuadrado, encontrados);
+            }
+        }
+    }
+}
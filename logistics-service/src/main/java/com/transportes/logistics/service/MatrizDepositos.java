@@ -0,0 +1,393 @@
+package com.transportes.logistics.service;
+
+import com.transportes.logistics.client.OsrmClient;
+import com.transportes.logistics.entity.Deposito;
+import com.transportes.logistics.repository.DepositoRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Matriz densa de distancias y duraciones por ruta entre todos los depósitos activos.
+ * Se calcula en segundo plano con consultas /table de OSRM por bloques y se guarda en disco en
+ * formato binario, así al reiniciar solo se consultan los pares que falten. Cuando se agrega, mueve
+ * o desactiva un depósito se recalculan solo sus filas y columnas. Los pares sin respuesta de OSRM
+ * quedan sin valor (NaN) y se reintentan en el siguiente refresco.
+ * RutaService y PlanificadorRutas leen de acá los tramos entre depósitos (por id de depósito),
+ * sin consultar OSRM. El refresco usa su propio circuit breaker de OSRM, así sus fallas no
+ * cortan las consultas de los usuarios.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MatrizDepositos {
+
+    private static final int FORMATO = 0x4D445031; // "MDP1"
+
+    private final DepositoRepository depositoRepository;
+    private final OsrmClient osrmClient;
+
+    @Value("${depositos.matriz.habilitada:true}")
+    private boolean habilitada;
+
+    @Value("${depositos.matriz.archivo:data/matriz-depositos.bin}")
+    private String archivo;
+
+    // Orígenes y destinos por consulta a OSRM (max-table-size de OSRM es 100 por defecto)
+    @Value("${depositos.matriz.bloque:50}")
+    private int bloque;
+
+    // Con n depósitos ocupa 8·n² bytes: 2000 depósitos son 32 MB
+    @Value("${depositos.matriz.max-depositos:2000}")
+    private int maxDepositos;
+
+    private final AtomicBoolean actualizacionPendiente = new AtomicBoolean();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(hilo());
+
+    private volatile Matriz matriz = Matriz.VACIA;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        if (!habilitada) {
+            return;
+        }
+        executor.execute(() -> {
+            Matriz guardada = leer();
+            if (guardada != null) {
+                matriz = guardada;
+                log.info("Matriz de depósitos cargada desde {} ({} depósitos)", archivo, guardada.cantidad());
+            }
+        });
+        actualizar();
+    }
+
+    /**
+     * Programa una actualización incremental (en segundo plano). Varias llamadas seguidas
+     * se resuelven con una sola actualización.
+     */
+    @Scheduled(initialDelayString = "${depositos.matriz.refresco-ms:900000}",
+               fixedDelayString = "${depositos.matriz.refresco-ms:900000}")
+    public void actualizar() {
+        if (habilitada && actualizacionPendiente.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                actualizacionPendiente.set(false);
+                try {
+                    recalcular();
+                } catch (Exception e) {
+                    log.error("Error al actualizar la matriz de depósitos", e);
+                }
+            });
+        }
+    }
+
+    public OsrmClient.RouteResponse obtener(Deposito origen, Deposito destino) {
+        return obtener(origen.getId(), origen.getLatitud(), origen.getLongitud(),
+                destino.getId(), destino.getLatitud(), destino.getLongitud());
+    }
+
+    /**
+     * Distancia y duración por ruta entre dos depósitos, o null si alguno no es un depósito de la
+     * matriz (id null o desconocido), se movió desde el último refresco o el par todavía no tiene valor
+     */
+    public OsrmClient.RouteResponse obtener(Long origenDepositoId, BigDecimal origenLat, BigDecimal origenLon,
+                                            Long destinoDepositoId, BigDecimal destinoLat, BigDecimal destinoLon) {
+        if (origenDepositoId == null || destinoDepositoId == null) {
+            return null;
+        }
+        Matriz actual = matriz;
+        Integer i = actual.indices.get(origenDepositoId);
+        Integer j = actual.indices.get(destinoDepositoId);
+        if (i == null || j == null || !actual.estaEn(i, origenLat, origenLon) || !actual.estaEn(j, destinoLat, destinoLon)) {
+            return null;
+        }
+        int celda = i * actual.cantidad() + j;
+        float metros = actual.metros[celda];
+        float segundos = actual.segundos[celda];
+        if (Float.isNaN(metros) || Float.isNaN(segundos)) {
+            return null;
+        }
+        return OsrmClient.RouteResponse.builder()
+                .distanciaMetros((double) metros)
+                .distanciaKm(BigDecimal.valueOf(metros / 1000.0))
+                .duracionSegundos(Math.round(segundos))
+                .duracionHoras((int) Math.ceil(segundos / 3600.0))
+                .build();
+    }
+
+    public int cantidad() {
+        return matriz.cantidad();
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        executor.shutdownNow();
+    }
+
+    private void recalcular() {
+        List<Deposito> activos = new ArrayList<>(depositoRepository.findByActivoTrue());
+        if (activos.size() > maxDepositos) {
+            log.warn("Hay {} depósitos activos y la matriz admite {}: no se precalculan los tramos entre depósitos",
+                    activos.size(), maxDepositos);
+            matriz = Matriz.VACIA;
+            return;
+        }
+        activos.sort(Comparator.comparing(Deposito::getId));
+
+        Matriz anterior = matriz;
+        Matriz nueva = new Matriz(activos);
+        int copiadas = nueva.copiarDe(anterior);
+        int faltantes = nueva.faltantes();
+        if (faltantes == 0) {
+            if (copiadas != anterior.metros.length || nueva.cantidad() != anterior.cantidad()) {
+                matriz = nueva;
+                guardar(nueva);
+            }
+            return;
+        }
+
+        long inicio = System.nanoTime();
+        int calculadas = completar(nueva);
+        matriz = nueva;
+        guardar(nueva);
+        log.info("Matriz de depósitos actualizada: {} depósitos, {} pares calculados, {} sin respuesta de OSRM, {} ms",
+                nueva.cantidad(), calculadas, nueva.faltantes(), (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    /**
+     * Consulta a OSRM los pares sin valor, por bloques de filas y, dentro de cada bloque,
+     * solo las columnas que tengan algún par sin valor
+     */
+    private int completar(Matriz nueva) {
+        int n = nueva.cantidad();
+        int calculadas = 0;
+        for (int desde = 0; desde < n; desde += bloque) {
+            int hasta = Math.min(n, desde + bloque);
+            List<Integer> columnas = new ArrayList<>();
+            for (int j = 0; j < n; j++) {
+                for (int i = desde; i < hasta; i++) {
+                    if (Float.isNaN(nueva.metros[i * n + j])) {
+                        columnas.add(j);
+                        break;
+                    }
+                }
+            }
+            for (int c = 0; c < columnas.size(); c += bloque) {
+                List<Integer> destinos = columnas.subList(c, Math.min(columnas.size(), c + bloque));
+                List<OsrmClient.Coordenada> coordenadasOrigen = new ArrayList<>();
+                for (int i = desde; i < hasta; i++) {
+                    coordenadasOrigen.add(nueva.coordenada(i));
+                }
+                List<OsrmClient.Coordenada> coordenadasDestino = new ArrayList<>();
+                for (int j : destinos) {
+                    coordenadasDestino.add(nueva.coordenada(j));
+                }
+
+                OsrmClient.RouteResponse[][] tabla = osrmClient.consultarMatrizSinCache(coordenadasOrigen, coordenadasDestino);
+                if (tabla == null) {
+                    // OSRM no responde: se reintenta en el próximo refresco
+                    return calculadas;
+                }
+                for (int i = desde; i < hasta; i++) {
+                    for (int d = 0; d < destinos.size(); d++) {
+                        int celda = i * n + destinos.get(d);
+                        OsrmClient.RouteResponse ruta = tabla[i - desde][d];
+                        if (Float.isNaN(nueva.metros[celda]) && ruta != null) {
+                            nueva.metros[celda] = ruta.getDistanciaMetros().floatValue();
+                            nueva.segundos[celda] = ruta.getDuracionSegundos().floatValue();
+                            calculadas++;
+                        }
+                    }
+                }
+            }
+        }
+        return calculadas;
+    }
+
+    private void guardar(Matriz actual) {
+        Path destino = Path.of(archivo);
+        Path temporal = destino.resolveSibling(destino.getFileName() + ".tmp");
+        try {
+            if (destino.getParent() != null) {
+                Files.createDirectories(destino.getParent());
+            }
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporal)))) {
+                int n = actual.cantidad();
+                out.writeInt(FORMATO);
+                out.writeInt(n);
+                for (int i = 0; i < n; i++) {
+                    out.writeLong(actual.ids[i]);
+                    out.writeDouble(actual.latitudes[i]);
+                    out.writeDouble(actual.longitudes[i]);
+                }
+                for (float metros : actual.metros) {
+                    out.writeFloat(metros);
+                }
+                for (float segundos : actual.segundos) {
+                    out.writeFloat(segundos);
+                }
+            }
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("No se pudo guardar la matriz de depósitos en {}: {}", archivo, e.getMessage());
+        }
+    }
+
+    private Matriz leer() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(Path.of(archivo))))) {
+            if (in.readInt() != FORMATO) {
+                log.warn("{} no tiene el formato de la matriz de depósitos, se ignora", archivo);
+                return null;
+            }
+            int n = in.readInt();
+            if (n < 0 || n > maxDepositos) {
+                return null;
+            }
+            long[] ids = new long[n];
+            double[] latitudes = new double[n];
+            double[] longitudes = new double[n];
+            for (int i = 0; i < n; i++) {
+                ids[i] = in.readLong();
+                latitudes[i] = in.readDouble();
+                longitudes[i] = in.readDouble();
+            }
+            Matriz leida = new Matriz(ids, latitudes, longitudes);
+            for (int c = 0; c < leida.metros.length; c++) {
+                leida.metros[c] = in.readFloat();
+            }
+            for (int c = 0; c < leida.segundos.length; c++) {
+                leida.segundos[c] = in.readFloat();
+            }
+            return leida;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            log.warn("No se pudo leer la matriz de depósitos de {}: {}", archivo, e.getMessage());
+            return null;
+        }
+    }
+
+    private static CustomizableThreadFactory hilo() {
+        CustomizableThreadFactory factory = new CustomizableThreadFactory("matriz-depositos-");
+        factory.setDaemon(true);
+        return factory;
+    }
+
+    /**
+     * Depósitos ordenados por id y, en arreglos n·n por filas, metros y segundos de cada par
+     * (origen i, destino j). NaN = sin valor.
+     */
+    private static final class Matriz {
+
+        static final Matriz VACIA = new Matriz(new long[0], new double[0], new double[0]);
+
+        final long[] ids;
+        final double[] latitudes;
+        final double[] longitudes;
+        final float[] metros;
+        final float[] segundos;
+        final Map<Long, Integer> indices;
+
+        Matriz(List<Deposito> depositos) {
+            this(depositos.stream().mapToLong(Deposito::getId).toArray(),
+                 depositos.stream().mapToDouble(d -> d.getLatitud().doubleValue()).toArray(),
+                 depositos.stream().mapToDouble(d -> d.getLongitud().doubleValue()).toArray());
+        }
+
+        Matriz(long[] ids, double[] latitudes, double[] longitudes) {
+            int n = ids.length;
+            this.ids = ids;
+            this.latitudes = latitudes;
+            this.longitudes = longitudes;
+            this.metros = new float[n * n];
+            this.segundos = new float[n * n];
+            Arrays.fill(metros, Float.NaN);
+            Arrays.fill(segundos, Float.NaN);
+            this.indices = new HashMap<>(n * 2);
+            for (int i = 0; i < n; i++) {
+                indices.put(ids[i], i);
+                metros[i * n + i] = 0f;
+                segundos[i * n + i] = 0f;
+            }
+        }
+
+        int cantidad() {
+            return ids.length;
+        }
+
+        boolean estaEn(int i, BigDecimal latitud, BigDecimal longitud) {
+            return latitudes[i] == latitud.doubleValue() && longitudes[i] == longitud.doubleValue();
+        }
+
+        OsrmClient.Coordenada coordenada(int i) {
+            return new OsrmClient.Coordenada(BigDecimal.valueOf(latitudes[i]), BigDecimal.valueOf(longitudes[i]));
+        }
+
+        /**
+         * Copia los pares de depósitos que siguen activos y en el mismo lugar. Devuelve cuántos copió
+         */
+        int copiarDe(Matriz anterior) {
+            Map<Long, Integer> posicionesAnteriores = new HashMap<>(anterior.cantidad() * 2);
+            for (int i = 0; i < anterior.cantidad(); i++) {
+                posicionesAnteriores.put(anterior.ids[i], i);
+            }
+            int n = cantidad();
+            int m = anterior.cantidad();
+            int[] origen = new int[n];
+            for (int i = 0; i < n; i++) {
+                Integer k = posicionesAnteriores.get(ids[i]);
+                origen[i] = k != null && anterior.latitudes[k] == latitudes[i]
+                        && anterior.longitudes[k] == longitudes[i] ? k : -1;
+            }
+            int copiadas = 0;
+            for (int i = 0; i < n; i++) {
+                if (origen[i] < 0) {
+                    continue;
+                }
+                for (int j = 0; j < n; j++) {
+                    if (origen[j] >= 0) {
+                        metros[i * n + j] = anterior.metros[origen[i] * m + origen[j]];
+                        segundos[i * n + j] = anterior.segundos[origen[i] * m + origen[j]];
+                        copiadas++;
+                    }
+                }
+            }
+            return copiadas;
+        }
+
+        int faltantes() {
+            int faltantes = 0;
+            for (float valor : metros) {
+                if (Float.isNaN(valor)) {
+                    faltantes++;
+                }
+            }
+            return faltantes;
+        }
+    }
+}
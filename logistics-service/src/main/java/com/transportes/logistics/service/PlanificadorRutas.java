@@ -0,0 +1,287 @@
+package com.transportes.logistics.service;
+
+import com.transportes.logistics.client.OsrmClient;
+import com.transportes.logistics.entity.Deposito;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Planificador de rutas alternativas sobre un grafo de depósitos.
+ * Los nodos son el origen, los depósitos candidatos y el destino; el peso de cada arista es la
+ * distancia (o duración) por ruta que devuelve OSRM en una sola consulta de matriz.
+ * Las alternativas son los k caminos simples más cortos de origen a destino (algoritmo de Yen)
+ * que pasan por, como máximo, rutas.max-depositos depósitos.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PlanificadorRutas {
+
+    public enum Criterio { DISTANCIA, TIEMPO }
+
+    private static final int ORIGEN = 0;
+
+    private final OsrmClient osrmClient;
+    private final IndiceDepositos indiceDepositos;
+    private final MatrizDepositos matrizDepositos;
+
+    @Value("${rutas.depositos-candidatos:5}")
+    private int depositosCandidatos;
+
+    @Value("${rutas.max-depositos:2}")
+    private int maxDepositos;
+
+    @Value("${rutas.cantidad-alternativas:3}")
+    private int cantidadAlternativas;
+
+    @Value("${rutas.criterio:DISTANCIA}")
+    private Criterio criterio;
+
+    /**
+     * Secuencias de depósitos de las alternativas. La primera es siempre la ruta directa (lista
+     * vacía), como índice 0; después siguen las mejores alternativas con depósitos, ordenadas de
+     * menor a mayor costo, hasta completar rutas.cantidad-alternativas. El orden es determinístico
+     * para los mismos datos, por lo que la posición en la lista sirve como índice de la alternativa.
+     */
+    public List<List<Deposito>> planificar(BigDecimal latOrigen, BigDecimal lonOrigen,
+                                           BigDecimal latDestino, BigDecimal lonDestino) {
+        List<Deposito> candidatos = seleccionarCandidatos(latOrigen, lonOrigen, latDestino, lonDestino);
+        if (candidatos.isEmpty()) {
+            return List.of(Collections.emptyList());
+        }
+
+        double[][] costos = construirGrafo(candidatos, latOrigen, lonOrigen, latDestino, lonDestino);
+        int cantidad = Math.max(1, cantidadAlternativas);
+        List<Camino> caminos = buscarCaminos(costos, candidatos.size() + 1, cantidad, maxDepositos + 1);
+
+        List<List<Deposito>> alternativas = new ArrayList<>();
+        alternativas.add(Collections.emptyList());
+        for (Camino camino : caminos) {
+            // La directa ya está primera; si no estaba entre las k mejores, queda afuera la peor con depósitos
+            if (camino.nodos().length == 2 || alternativas.size() == cantidad) {
+                continue;
+            }
+            List<Deposito> depositos = new ArrayList<>();
+            for (int i = 1; i < camino.nodos().length - 1; i++) {
+                depositos.add(candidatos.get(camino.nodos()[i] - 1));
+            }
+            alternativas.add(depositos);
+        }
+        log.debug("Planificadas {} alternativas sobre {} depósitos candidatos (criterio {})",
+                alternativas.size(), candidatos.size(), criterio);
+        return alternativas;
+    }
+
+    /**
+     * Depósitos más cercanos a los puntos que dividen el trayecto origen-destino en 2, 3, ...
+     * (max-depositos + 1) partes iguales, sin repetidos.
+     */
+    private List<Deposito> seleccionarCandidatos(BigDecimal latOrigen, BigDecimal lonOrigen,
+                                                 BigDecimal latDestino, BigDecimal lonDestino) {
+        if (maxDepositos <= 0 || indiceDepositos.cantidad() == 0) {
+            return Collections.emptyList();
+        }
+
+        Map<Long, Deposito> candidatos = new LinkedHashMap<>();
+        for (int partes = 2; partes <= maxDepositos + 1; partes++) {
+            for (int i = 1; i < partes; i++) {
+                double fraccion = (double) i / partes;
+                BigDecimal lat = latOrigen.add(latDestino.subtract(latOrigen).multiply(BigDecimal.valueOf(fraccion)));
+                BigDecimal lon = lonOrigen.add(lonDestino.subtract(lonOrigen).multiply(BigDecimal.valueOf(fraccion)));
+                indiceDepositos.masCercanos(lat, lon, Math.max(1, depositosCandidatos))
+                        .forEach(d -> candidatos.putIfAbsent(d.getId(), d));
+            }
+        }
+        return new ArrayList<>(candidatos.values());
+    }
+
+    /**
+     * Matriz de costos entre nodos: 0 = origen, 1..n = depósitos, n + 1 = destino.
+     * No hay aristas hacia el origen ni desde el destino. Entre depósitos se usa la matriz
+     * precalculada cuando tiene el par (los mismos valores que usará RutaService para los tramos).
+     */
+    private double[][] construirGrafo(List<Deposito> candidatos,
+                                      BigDecimal latOrigen, BigDecimal lonOrigen,
+                                      BigDecimal latDestino, BigDecimal lonDestino) {
+        int n = candidatos.size();
+        List<OsrmClient.Coordenada> origenes = new ArrayList<>();
+        origenes.add(new OsrmClient.Coordenada(latOrigen, lonOrigen));
+        List<OsrmClient.Coordenada> destinos = new ArrayList<>();
+        for (Deposito deposito : candidatos) {
+            origenes.add(new OsrmClient.Coordenada(deposito.getLatitud(), deposito.getLongitud()));
+            destinos.add(new OsrmClient.Coordenada(deposito.getLatitud(), deposito.getLongitud()));
+        }
+        destinos.add(new OsrmClient.Coordenada(latDestino, lonDestino));
+
+        OsrmClient.RouteResponse[][] matriz = osrmClient.calcularMatriz(origenes, destinos);
+
+        double[][] costos = new double[n + 2][n + 2];
+        for (double[] fila : costos) {
+            Arrays.fill(fila, Double.POSITIVE_INFINITY);
+        }
+        for (int i = 0; i <= n; i++) {
+            for (int j = 0; j <= n; j++) {
+                int desde = i;
+                int hasta = j + 1;
+                if (desde != hasta) {
+                    OsrmClient.RouteResponse entreDepositos = i > 0 && j < n
+                            ? matrizDepositos.obtener(candidatos.get(i - 1), candidatos.get(j))
+                            : null;
+                    costos[desde][hasta] = costo(entreDepositos != null ? entreDepositos : matriz[i][j]);
+                }
+            }
+        }
+        return costos;
+    }
+
+    private double costo(OsrmClient.RouteResponse tramo) {
+        return criterio == Criterio.TIEMPO
+                ? tramo.getDuracionSegundos().doubleValue()
+                : tramo.getDistanciaMetros();
+    }
+
+    /**
+     * Algoritmo de Yen: k caminos simples más cortos de ORIGEN a destino con a lo sumo maxAristas aristas
+     */
+    private List<Camino> buscarCaminos(double[][] costos, int destino, int k, int maxAristas) {
+        List<Camino> encontrados = new ArrayList<>();
+        List<Camino> pendientes = new ArrayList<>();
+
+        Camino primero = caminoMasCorto(costos, ORIGEN, destino, maxAristas,
+                new boolean[costos.length], new boolean[costos.length][costos.length]);
+        if (primero == null) {
+            return encontrados;
+        }
+        encontrados.add(primero);
+
+        while (encontrados.size() < k) {
+            Camino anterior = encontrados.get(encontrados.size() - 1);
+
+            // Cada nodo del camino anterior (salvo el destino) es un posible punto de desvío
+            for (int i = 0; i < anterior.nodos().length - 1; i++) {
+                int desvio = anterior.nodos()[i];
+                int[] raiz = Arrays.copyOf(anterior.nodos(), i + 1);
+
+                // Se quitan las aristas que ya usaron los caminos con la misma raíz
+                boolean[][] aristasExcluidas = new boolean[costos.length][costos.length];
+                for (Camino camino : encontrados) {
+                    if (camino.nodos().length > i + 1 && Arrays.equals(camino.nodos(), 0, i + 1, raiz, 0, i + 1)) {
+                        aristasExcluidas[camino.nodos()[i]][camino.nodos()[i + 1]] = true;
+                    }
+                }
+                // El resto del camino no puede volver a pasar por los nodos de la raíz
+                boolean[] nodosExcluidos = new boolean[costos.length];
+                for (int j = 0; j < i; j++) {
+                    nodosExcluidos[raiz[j]] = true;
+                }
+
+                Camino derivado = caminoMasCorto(costos, desvio, destino, maxAristas - i,
+                        nodosExcluidos, aristasExcluidas);
+                if (derivado == null) {
+                    continue;
+                }
+
+                int[] nodos = new int[i + derivado.nodos().length];
+                System.arraycopy(raiz, 0, nodos, 0, i);
+                System.arraycopy(derivado.nodos(), 0, nodos, i, derivado.nodos().length);
+                Camino candidato = new Camino(nodos, costoDe(costos, nodos));
+                if (pendientes.stream().noneMatch(c -> Arrays.equals(c.nodos(), nodos))) {
+                    pendientes.add(candidato);
+                }
+            }
+
+            if (pendientes.isEmpty()) {
+                break;
+            }
+            pendientes.sort(ORDEN_CAMINOS);
+            encontrados.add(pendientes.remove(0));
+        }
+        return encontrados;
+    }
+
+    /**
+     * Camino de menor costo entre dos nodos con a lo sumo maxAristas aristas (Bellman-Ford por capas).
+     * Con costos no negativos y desempate a favor de menos aristas, el camino obtenido es simple.
+     */
+    private Camino caminoMasCorto(double[][] costos, int desde, int hasta, int maxAristas,
+                                  boolean[] nodosExcluidos, boolean[][] aristasExcluidas) {
+        int n = costos.length;
+        if (maxAristas <= 0) {
+            return null;
+        }
+
+        // distancias[h][v]: costo mínimo para llegar a v usando exactamente h aristas
+        double[][] distancias = new double[maxAristas + 1][n];
+        int[][] previos = new int[maxAristas + 1][n];
+        for (double[] fila : distancias) {
+            Arrays.fill(fila, Double.POSITIVE_INFINITY);
+        }
+        distancias[0][desde] = 0;
+
+        for (int h = 1; h <= maxAristas; h++) {
+            for (int u = 0; u < n; u++) {
+                if (distancias[h - 1][u] == Double.POSITIVE_INFINITY || u == hasta) {
+                    continue;
+                }
+                for (int v = 0; v < n; v++) {
+                    if (nodosExcluidos[v] || aristasExcluidas[u][v] || costos[u][v] == Double.POSITIVE_INFINITY) {
+                        continue;
+                    }
+                    double distancia = distancias[h - 1][u] + costos[u][v];
+                    if (distancia < distancias[h][v]) {
+                        distancias[h][v] = distancia;
+                        previos[h][v] = u;
+                    }
+                }
+            }
+        }
+
+        int mejorAristas = -1;
+        for (int h = 1; h <= maxAristas; h++) {
+            if (distancias[h][hasta] < Double.POSITIVE_INFINITY
+                    && (mejorAristas == -1 || distancias[h][hasta] < distancias[mejorAristas][hasta])) {
+                mejorAristas = h;
+            }
+        }
+        if (mejorAristas == -1) {
+            return null;
+        }
+
+        int[] nodos = new int[mejorAristas + 1];
+        int actual = hasta;
+        for (int h = mejorAristas; h >= 0; h--) {
+            nodos[h] = actual;
+            actual = previos[h][actual];
+        }
+        return new Camino(nodos, distancias[mejorAristas][hasta]);
+    }
+
+    private static double costoDe(double[][] costos, int[] nodos) {
+        double total = 0;
+        for (int i = 0; i < nodos.length - 1; i++) {
+            total += costos[nodos[i]][nodos[i + 1]];
+        }
+        return total;
+    }
+
+    /**
+     * Menor costo primero; a igual costo, menos depósitos y luego orden de nodos (para que sea determinístico)
+     */
+    private static final Comparator<Camino> ORDEN_CAMINOS = Comparator
+            .comparingDouble(Camino::costo)
+            .thenComparingInt(c -> c.nodos().length)
+            .thenComparing(Camino::nodos, Arrays::compare);
+
+    private record Camino(int[] nodos, double costo) {}
+}
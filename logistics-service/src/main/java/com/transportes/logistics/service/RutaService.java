@@ -3,21 +3,31 @@ package com.transportes.logistics.service;
 import com.transportes.logistics.client.BillingClient;
 import com.transportes.logistics.client.ClientsClient;
 import com.transportes.logistics.client.OsrmClient;
+import com.transportes.logistics.dto.AlternativasSolicitudDTO;
 import com.transportes.logistics.dto.RutaDTO;
 import com.transportes.logistics.dto.TramoDTO;
 import com.transportes.logistics.entity.*;
+import com.transportes.logistics.exception.ConflictoException;
 import com.transportes.logistics.repository.CamionRepository;
-import com.transportes.logistics.repository.DepositoRepository;
 import com.transportes.logistics.repository.RutaRepository;
 import com.transportes.logistics.repository.TramoRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -27,11 +37,29 @@ public class RutaService {
 
     private final RutaRepository rutaRepository;
     private final TramoRepository tramoRepository;
-    private final DepositoRepository depositoRepository;
     private final CamionRepository camionRepository;
     private final OsrmClient osrmClient;
     private final BillingClient billingClient;
     private final ClientsClient clientsClient;
+    private final PlanificadorRutas planificadorRutas;
+    private final IndiceDepositos indiceDepositos;
+    private final MatrizDepositos matrizDepositos;
+    private final CacheAlternativas cacheAlternativas;
+
+    @Qualifier("rutasExecutor")
+    private final Executor rutasExecutor;
+
+    @Qualifier("trayectosExecutor")
+    private final Executor trayectosExecutor;
+
+    @Qualifier("precalculoExecutor")
+    private final Executor precalculoExecutor;
+
+    @Value("${rutas.alternativas.timeout-ms:5000}")
+    private long timeoutAlternativasMs;
+
+    @Value("${rutas.lote.max-solicitudes:100}")
+    private int maxSolicitudesLote;
 
     @Transactional
     public List<RutaDTO> generarRutasAlternativas(Long solicitudId,
@@ -42,78 +70,322 @@ public class RutaService {
 
         // Obtener datos reales de la solicitud
         ClientsClient.SolicitudResponse solicitud = clientsClient.obtenerSolicitud(solicitudId);
+        PropuestasSolicitud propuestas = prepararPropuestas(solicitudId, solicitud);
+
+        BigDecimal peso = solicitud.contenedor().pesoKg();
+        BigDecimal volumen = solicitud.contenedor().volumenM3();
+
+        List<Ruta> rutas = new ArrayList<>();
+        for (int indice = 0; indice < propuestas.alternativas().size(); indice++) {
+            rutas.add(crearRuta(solicitudId, propuestas, indice));
+        }
+        calcularYAsignarCostosEstimados(solicitudId, rutas, peso, volumen);
+
+        // NO guardamos en BD - solo generamos los DTOs
+        List<RutaDTO> rutasAlternativas = new ArrayList<>();
+        for (Ruta ruta : rutas) {
+            RutaDTO dto = convertirARutaDTO(ruta);
+            dto.setVersion(propuestas.version());
+            rutasAlternativas.add(dto);
+        }
+
+        log.info("Se generaron {} rutas alternativas (NO guardadas en BD)", rutasAlternativas.size());
+        return rutasAlternativas;
+    }
+
+    /**
+     * Igual que generarRutasAlternativas, pero entrega cada alternativa apenas tiene sus tramos y
+     * su costo, sin esperar a las demás (la ruta directa, de un solo tramo, suele ser la primera).
+     * Al terminar deja las alternativas en la caché para asignarRuta. Se ejecuta en rutasExecutor;
+     * el futuro se completa con la cantidad de alternativas entregadas.
+     */
+    public CompletableFuture<Integer> generarRutasAlternativas(Long solicitudId, Consumer<RutaDTO> alGenerar) {
+        log.info("Generando rutas alternativas para solicitud {} (streaming)", solicitudId);
+        Executor executor = conContextoDeRequest(rutasExecutor);
+
+        return CompletableFuture
+                .supplyAsync(() -> planificarPropuestas(clientsClient.obtenerSolicitud(solicitudId)), executor)
+                .thenCompose(plan -> {
+                    ClientsClient.SolicitudResponse solicitud = plan.solicitud();
+                    Map<Trayecto, CompletableFuture<OsrmClient.RouteResponse>> tramos =
+                            iniciarTrayectos(trayectosDe(plan), distanciasPrecalculadas(solicitudId, plan));
+
+                    List<CompletableFuture<Map<Trayecto, OsrmClient.RouteResponse>>> entregas = new ArrayList<>();
+                    for (int i = 0; i < plan.alternativas().size(); i++) {
+                        int indice = i;
+                        List<Trayecto> propios = obtenerTrayectos(
+                                solicitud.origen().latitud(), solicitud.origen().longitud(),
+                                solicitud.destino().latitud(), solicitud.destino().longitud(),
+                                plan.alternativas().get(indice));
+                        CompletableFuture<?>[] futuros = propios.stream().map(tramos::get).toArray(CompletableFuture[]::new);
+
+                        entregas.add(CompletableFuture.allOf(futuros).thenApplyAsync(listos -> {
+                            Map<Trayecto, OsrmClient.RouteResponse> distancias = new HashMap<>();
+                            propios.forEach(t -> distancias.put(t, tramos.get(t).join()));
+
+                            Ruta ruta = crearRuta(solicitudId, plan.conDistancias(distancias), indice);
+                            calcularYAsignarCostosEstimados(solicitudId, List.of(ruta),
+                                    solicitud.contenedor().pesoKg(), solicitud.contenedor().volumenM3());
+                            RutaDTO dto = convertirARutaDTO(ruta);
+                            dto.setVersion(plan.version());
+                            alGenerar.accept(dto);
+                            return distancias;
+                        }, executor));
+                    }
+
+                    return CompletableFuture.allOf(entregas.toArray(new CompletableFuture[0])).thenApply(listas -> {
+                        Map<Trayecto, OsrmClient.RouteResponse> distancias = new HashMap<>();
+                        entregas.forEach(entrega -> distancias.putAll(entrega.join()));
+                        cacheAlternativas.guardar(solicitudId, plan.conDistancias(distancias));
+                        log.info("Se entregaron {} rutas alternativas para solicitud {} (NO guardadas en BD)",
+                                entregas.size(), solicitudId);
+                        return entregas.size();
+                    });
+                });
+    }
+
+    /**
+     * Genera las alternativas de varias solicitudes a la vez. Las solicitudes se obtienen de
+     * clients-service en una sola llamada y se planifican en paralelo en rutasExecutor; los tramos
+     * de todas se calculan juntos, así los compartidos (mismo origen, depósito o destino) se
+     * consultan una sola vez. Cada solicitud se cotiza apenas tiene sus tramos y queda en la caché
+     * para asignarRuta. Un error en una solicitud no afecta a las demás: se informa en su resultado.
+     */
+    public List<AlternativasSolicitudDTO> generarRutasAlternativasLote(List<Long> solicitudIds) {
+        List<Long> ids = solicitudIds.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        if (ids.size() > maxSolicitudesLote) {
+            throw new RuntimeException("El lote supera el máximo de " + maxSolicitudesLote + " solicitudes");
+        }
+        log.info("Generando rutas alternativas para un lote de {} solicitudes", ids.size());
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        Executor executor = conContextoDeRequest(rutasExecutor);
+        Map<Long, ClientsClient.SolicitudResponse> solicitudes = new HashMap<>();
+        clientsClient.obtenerSolicitudes(ids).forEach(s -> solicitudes.put(s.id(), s));
+
+        Map<Long, CompletableFuture<PropuestasSolicitud>> planes = new LinkedHashMap<>();
+        for (Long id : solicitudes.keySet()) {
+            planes.put(id, CompletableFuture.supplyAsync(() -> planificarPropuestas(solicitudes.get(id)), executor));
+        }
+
+        // Tramos de todas las solicitudes juntos: los repetidos entre solicitudes se calculan una vez
+        Set<Trayecto> todos = new LinkedHashSet<>();
+        Map<Trayecto, OsrmClient.RouteResponse> precalculados = new HashMap<>();
+        planes.forEach((id, plan) -> {
+            try {
+                todos.addAll(trayectosDe(plan.join()));
+                precalculados.putAll(distanciasPrecalculadas(id, plan.join()));
+            } catch (CompletionException e) {
+                // El error se informa con el resultado de la solicitud
+            }
+        });
+        Map<Trayecto, CompletableFuture<OsrmClient.RouteResponse>> tramos = iniciarTrayectos(todos, precalculados);
+        log.info("El lote requiere {} tramos distintos", todos.size());
+
+        Map<Long, CompletableFuture<AlternativasSolicitudDTO>> resultados = new LinkedHashMap<>();
+        planes.forEach((id, futuroPlan) -> resultados.put(id, futuroPlan
+                .thenCompose(plan -> {
+                    Set<Trayecto> propios = trayectosDe(plan);
+                    CompletableFuture<?>[] futuros = propios.stream().map(tramos::get).toArray(CompletableFuture[]::new);
+                    return CompletableFuture.allOf(futuros).thenApplyAsync(listos -> {
+                        Map<Trayecto, OsrmClient.RouteResponse> distancias = new HashMap<>();
+                        propios.forEach(t -> distancias.put(t, tramos.get(t).join()));
+                        return cotizarAlternativas(id, plan.conDistancias(distancias));
+                    }, executor);
+                })
+                .exceptionally(error -> {
+                    Throwable causa = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    log.error("Error al generar rutas alternativas para solicitud {}: {}", id, causa.getMessage());
+                    return AlternativasSolicitudDTO.builder()
+                            .solicitudId(id)
+                            .error(causa.getMessage())
+                            .build();
+                })));
+
+        List<AlternativasSolicitudDTO> lote = new ArrayList<>();
+        for (Long id : ids) {
+            CompletableFuture<AlternativasSolicitudDTO> resultado = resultados.get(id);
+            lote.add(resultado != null ? resultado.join() : AlternativasSolicitudDTO.builder()
+                    .solicitudId(id)
+                    .error("Solicitud no encontrada con ID: " + id)
+                    .build());
+        }
+        log.info("Lote de {} solicitudes planificado (NO guardado en BD)", ids.size());
+        return lote;
+    }
+
+    /**
+     * Construye y cotiza las alternativas de una solicitud ya calculada y las deja en la caché
+     */
+    private AlternativasSolicitudDTO cotizarAlternativas(Long solicitudId, PropuestasSolicitud propuestas) {
+        List<Ruta> rutas = new ArrayList<>();
+        for (int indice = 0; indice < propuestas.alternativas().size(); indice++) {
+            rutas.add(crearRuta(solicitudId, propuestas, indice));
+        }
+        calcularYAsignarCostosEstimados(solicitudId, rutas,
+                propuestas.solicitud().contenedor().pesoKg(), propuestas.solicitud().contenedor().volumenM3());
+        cacheAlternativas.guardar(solicitudId, propuestas);
+
+        List<RutaDTO> dtos = new ArrayList<>();
+        for (Ruta ruta : rutas) {
+            RutaDTO dto = convertirARutaDTO(ruta);
+            dto.setVersion(propuestas.version());
+            dtos.add(dto);
+        }
+        return AlternativasSolicitudDTO.builder()
+                .solicitudId(solicitudId)
+                .version(propuestas.version())
+                .rutas(dtos)
+                .build();
+    }
+
+    /**
+     * Calcula en segundo plano las alternativas de una solicitud recién creada y las deja en la
+     * caché, para que al abrirlas el operador no espere a OSRM. No las cotiza: billing-service
+     * exige el token de un operador, así que el costo se calcula al pedirlas.
+     * La planificación corre en precalculoExecutor; los tramos se componen sin bloquear ese hilo.
+     * Si algún tramo quedó estimado, CacheAlternativas no guarda el resultado.
+     */
+    public void precalcularAlternativas(Long solicitudId) {
+        CompletableFuture<PropuestasSolicitud> planificacion;
+        try {
+            planificacion = CompletableFuture.supplyAsync(
+                    () -> planificarPropuestas(clientsClient.obtenerSolicitud(solicitudId)), precalculoExecutor);
+        } catch (RejectedExecutionException e) {
+            log.warn("Cola de precálculo llena: la solicitud {} queda sin precalcular", solicitudId);
+            return;
+        }
 
-        // Usar direcciones reales de la solicitud
-        String direccionOrigen = solicitud.origen().direccion();
+        planificacion
+                .thenCompose(plan -> {
+                    if (cacheAlternativas.obtener(solicitudId, plan.version()) != null) {
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    Map<Trayecto, CompletableFuture<OsrmClient.RouteResponse>> tramos =
+                            iniciarTrayectos(trayectosDe(plan), Map.of());
+                    return CompletableFuture.allOf(tramos.values().toArray(new CompletableFuture[0]))
+                            .thenAccept(listos -> {
+                                Map<Trayecto, OsrmClient.RouteResponse> distancias = new HashMap<>();
+                                tramos.forEach((trayecto, futuro) -> distancias.put(trayecto, futuro.join()));
+                                cacheAlternativas.guardar(solicitudId, plan.conDistancias(distancias));
+                                log.debug("Precalculadas {} alternativas para solicitud {}",
+                                        plan.alternativas().size(), solicitudId);
+                            });
+                })
+                .exceptionally(error -> {
+                    Throwable causa = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    log.warn("No se pudieron precalcular las alternativas de la solicitud {}: {}",
+                            solicitudId, causa.getMessage());
+                    return null;
+                });
+    }
+
+    /**
+     * Planifica las alternativas de la solicitud, calcula en paralelo todos sus tramos
+     * (los repetidos se consultan una sola vez) y las deja en la caché para asignarRuta.
+     * Si la caché ya tiene las alternativas de esta versión (precalculadas) se reutilizan.
+     */
+    private PropuestasSolicitud prepararPropuestas(Long solicitudId, ClientsClient.SolicitudResponse solicitud) {
+        PropuestasSolicitud plan = planificarPropuestas(solicitud);
+        PropuestasSolicitud enCache = cacheAlternativas.obtener(solicitudId, plan.version());
+        if (enCache != null) {
+            log.debug("Alternativas de solicitud {} tomadas de la caché", solicitudId);
+            return enCache;
+        }
+        PropuestasSolicitud propuestas = plan.conDistancias(calcularTrayectos(trayectosDe(plan)));
+        cacheAlternativas.guardar(solicitudId, propuestas);
+        return propuestas;
+    }
+
+    /**
+     * Alternativas (secuencias de depósitos) y versión de la solicitud, todavía sin distancias
+     */
+    private PropuestasSolicitud planificarPropuestas(ClientsClient.SolicitudResponse solicitud) {
         BigDecimal latOrigen = solicitud.origen().latitud();
         BigDecimal lonOrigen = solicitud.origen().longitud();
-
-        String direccionDestino = solicitud.destino().direccion();
         BigDecimal latDestino = solicitud.destino().latitud();
         BigDecimal lonDestino = solicitud.destino().longitud();
 
-        BigDecimal peso = solicitud.contenedor().pesoKg();
-        BigDecimal volumen = solicitud.contenedor().volumenM3();
+        long versionDepositos = indiceDepositos.version();
+        List<List<Deposito>> alternativas = planificadorRutas.planificar(latOrigen, lonOrigen, latDestino, lonDestino);
 
-        List<RutaDTO> rutasAlternativas = new ArrayList<>();
+        // La versión cambia si cambian los depósitos activos o los datos de la solicitud
+        String version = versionDepositos + "-" + Integer.toHexString(Objects.hash(
+                latOrigen.stripTrailingZeros(), lonOrigen.stripTrailingZeros(),
+                latDestino.stripTrailingZeros(), lonDestino.stripTrailingZeros(),
+                solicitud.contenedor().pesoKg(), solicitud.contenedor().volumenM3()));
 
-        // Ruta 1: Directa (sin depósitos)
-        Ruta rutaDirecta = crearRutaDirecta(solicitudId, latOrigen, lonOrigen, latDestino, lonDestino,
-                                             direccionOrigen, direccionDestino);
-        calcularYAsignarCostoEstimado(rutaDirecta, peso, volumen);
-        // NO guardamos en BD - solo generamos el DTO
-        RutaDTO dto1 = convertirARutaDTO(rutaDirecta);
-        dto1.setIndice(0); // Índice para identificar esta ruta
-        dto1.setDescripcion("Ruta directa sin depósitos");
-        rutasAlternativas.add(dto1);
-
-        // Ruta 2: Con 1 depósito intermedio
-        List<Deposito> depositosActivos = depositoRepository.findByActivoTrue();
-        if (!depositosActivos.isEmpty()) {
-            List<Deposito> depositos1 = seleccionarDepositosParaRuta(latOrigen, lonOrigen,
-                                                                       latDestino, lonDestino, 1);
-            if (!depositos1.isEmpty()) {
-                Ruta rutaCon1Deposito = crearRutaConDepositos(solicitudId, latOrigen, lonOrigen,
-                                                               latDestino, lonDestino,
-                                                               direccionOrigen, direccionDestino,
-                                                               depositos1);
-                calcularYAsignarCostoEstimado(rutaCon1Deposito, peso, volumen);
-                // NO guardamos en BD - solo generamos el DTO
-                RutaDTO dto2 = convertirARutaDTO(rutaCon1Deposito);
-                dto2.setIndice(1); // Índice para identificar esta ruta
-                dto2.setDescripcion("Ruta con 1 depósito intermedio");
-                rutasAlternativas.add(dto2);
-            }
+        return new PropuestasSolicitud(version, versionDepositos, solicitud, List.copyOf(alternativas), Map.of());
+    }
+
+    /**
+     * Distancias ya calculadas para esta versión de la solicitud (por ejemplo, precalculadas al crearla)
+     */
+    private Map<Trayecto, OsrmClient.RouteResponse> distanciasPrecalculadas(Long solicitudId, PropuestasSolicitud plan) {
+        PropuestasSolicitud enCache = cacheAlternativas.obtener(solicitudId, plan.version());
+        return enCache != null ? enCache.distancias() : Map.of();
+    }
+
+    private Set<Trayecto> trayectosDe(PropuestasSolicitud plan) {
+        ClientsClient.SolicitudResponse solicitud = plan.solicitud();
+        Set<Trayecto> trayectos = new LinkedHashSet<>();
+        for (List<Deposito> depositos : plan.alternativas()) {
+            trayectos.addAll(obtenerTrayectos(
+                    solicitud.origen().latitud(), solicitud.origen().longitud(),
+                    solicitud.destino().latitud(), solicitud.destino().longitud(), depositos));
         }
+        return trayectos;
+    }
 
-        // Ruta 3: Con 2 depósitos intermedios
-        if (depositosActivos.size() >= 2) {
-            List<Deposito> depositos2 = seleccionarDepositosParaRuta(latOrigen, lonOrigen,
-                                                                       latDestino, lonDestino, 2);
-            if (depositos2.size() == 2) {
-                Ruta rutaCon2Depositos = crearRutaConDepositos(solicitudId, latOrigen, lonOrigen,
-                                                                latDestino, lonDestino,
-                                                                direccionOrigen, direccionDestino,
-                                                                depositos2);
-                calcularYAsignarCostoEstimado(rutaCon2Depositos, peso, volumen);
-                // NO guardamos en BD - solo generamos el DTO
-                RutaDTO dto3 = convertirARutaDTO(rutaCon2Depositos);
-                dto3.setIndice(2); // Índice para identificar esta ruta
-                dto3.setDescripcion("Ruta con 2 depósitos intermedios");
-                rutasAlternativas.add(dto3);
-            }
+    /**
+     * Construye (sin guardar) la ruta de la alternativa indicada, con su índice y descripción
+     */
+    private Ruta crearRuta(Long solicitudId, PropuestasSolicitud propuestas, int indice) {
+        ClientsClient.SolicitudResponse solicitud = propuestas.solicitud();
+        List<Deposito> depositos = propuestas.alternativas().get(indice);
+        Ruta ruta = crearRuta(solicitudId,
+                solicitud.origen().latitud(), solicitud.origen().longitud(),
+                solicitud.destino().latitud(), solicitud.destino().longitud(),
+                solicitud.origen().direccion(), solicitud.destino().direccion(),
+                depositos, propuestas.distancias());
+        ruta.setIndice(indice); // Posición en el ranking, identifica la ruta al asignarla
+        ruta.setDescripcion(describirRuta(depositos));
+        return ruta;
+    }
+
+    private Ruta crearRuta(Long solicitudId, BigDecimal origenLat, BigDecimal origenLon,
+                           BigDecimal destinoLat, BigDecimal destinoLon,
+                           String direccionOrigen, String direccionDestino,
+                           List<Deposito> depositos,
+                           Map<Trayecto, OsrmClient.RouteResponse> distancias) {
+        if (depositos.isEmpty()) {
+            return crearRutaDirecta(solicitudId, origenLat, origenLon, destinoLat, destinoLon,
+                                    direccionOrigen, direccionDestino, distancias);
         }
+        return crearRutaConDepositos(solicitudId, origenLat, origenLon, destinoLat, destinoLon,
+                                     direccionOrigen, direccionDestino, depositos, distancias);
+    }
 
-        log.info("Se generaron {} rutas alternativas (NO guardadas en BD)", rutasAlternativas.size());
-        return rutasAlternativas;
+    private String describirRuta(List<Deposito> depositos) {
+        if (depositos.isEmpty()) {
+            return "Ruta directa sin depósitos";
+        }
+        return depositos.size() == 1
+                ? "Ruta con 1 depósito intermedio"
+                : "Ruta con " + depositos.size() + " depósitos intermedios";
     }
 
     private Ruta crearRutaDirecta(Long solicitudId, BigDecimal origenLat, BigDecimal origenLon,
                                   BigDecimal destinoLat, BigDecimal destinoLon,
-                                  String direccionOrigen, String direccionDestino) {
-        // Calcular distancia con OSRM
-        OsrmClient.RouteResponse routeInfo = osrmClient.calcularRuta(origenLat, origenLon,
-                                                                      destinoLat, destinoLon);
+                                  String direccionOrigen, String direccionDestino,
+                                  Map<Trayecto, OsrmClient.RouteResponse> distancias) {
+        // Distancia calculada previamente con OSRM
+        OsrmClient.RouteResponse routeInfo = distancias.get(
+                new Trayecto(null, origenLat, origenLon, null, destinoLat, destinoLon));
 
         Ruta ruta = Ruta.builder()
                 .solicitudId(solicitudId)
@@ -139,6 +411,7 @@ public class RutaService {
                 .destinoLatitud(destinoLat)
                 .destinoLongitud(destinoLon)
                 .distanciaKm(routeInfo.getDistanciaKm())
+                .distanciaEstimada(routeInfo.isEstimada())
                 .estado(Tramo.EstadoTramo.ESTIMADO)
                 .build();
 
@@ -149,7 +422,8 @@ public class RutaService {
     private Ruta crearRutaConDepositos(Long solicitudId, BigDecimal origenLat, BigDecimal origenLon,
                                        BigDecimal destinoLat, BigDecimal destinoLon,
                                        String direccionOrigen, String direccionDestino,
-                                       List<Deposito> depositos) {
+                                       List<Deposito> depositos,
+                                       Map<Trayecto, OsrmClient.RouteResponse> distancias) {
         List<Tramo> tramos = new ArrayList<>();
         BigDecimal distanciaTotal = BigDecimal.ZERO;
         int tiempoTotal = 0;
@@ -157,9 +431,9 @@ public class RutaService {
 
         // Primer tramo: Origen -> Primer Depósito
         Deposito primerDeposito = depositos.get(0);
-        OsrmClient.RouteResponse tramo1 = osrmClient.calcularRuta(
-                origenLat, origenLon,
-                primerDeposito.getLatitud(), primerDeposito.getLongitud());
+        OsrmClient.RouteResponse tramo1 = distancias.get(new Trayecto(
+                null, origenLat, origenLon,
+                primerDeposito.getId(), primerDeposito.getLatitud(), primerDeposito.getLongitud()));
 
         Tramo primerTramo = Tramo.builder()
                 .numeroOrden(numeroOrden++)
@@ -174,6 +448,7 @@ public class RutaService {
                 .destinoLongitud(primerDeposito.getLongitud())
                 .destinoDepositoId(primerDeposito.getId())
                 .distanciaKm(tramo1.getDistanciaKm())
+                .distanciaEstimada(tramo1.isEstimada())
                 .estado(Tramo.EstadoTramo.ESTIMADO)
                 .build();
 
@@ -186,9 +461,9 @@ public class RutaService {
             Deposito depositoOrigen = depositos.get(i);
             Deposito depositoDestino = depositos.get(i + 1);
 
-            OsrmClient.RouteResponse tramoEntreDepositos = osrmClient.calcularRuta(
-                    depositoOrigen.getLatitud(), depositoOrigen.getLongitud(),
-                    depositoDestino.getLatitud(), depositoDestino.getLongitud());
+            OsrmClient.RouteResponse tramoEntreDepositos = distancias.get(new Trayecto(
+                    depositoOrigen.getId(), depositoOrigen.getLatitud(), depositoOrigen.getLongitud(),
+                    depositoDestino.getId(), depositoDestino.getLatitud(), depositoDestino.getLongitud()));
 
             Tramo tramoIntermedio = Tramo.builder()
                     .numeroOrden(numeroOrden++)
@@ -204,6 +479,7 @@ public class RutaService {
                     .destinoLongitud(depositoDestino.getLongitud())
                     .destinoDepositoId(depositoDestino.getId())
                     .distanciaKm(tramoEntreDepositos.getDistanciaKm())
+                    .distanciaEstimada(tramoEntreDepositos.isEstimada())
                     .estado(Tramo.EstadoTramo.ESTIMADO)
                     .build();
 
@@ -214,9 +490,9 @@ public class RutaService {
 
         // Último tramo: Último Depósito -> Destino
         Deposito ultimoDeposito = depositos.get(depositos.size() - 1);
-        OsrmClient.RouteResponse tramoFinal = osrmClient.calcularRuta(
-                ultimoDeposito.getLatitud(), ultimoDeposito.getLongitud(),
-                destinoLat, destinoLon);
+        OsrmClient.RouteResponse tramoFinal = distancias.get(new Trayecto(
+                ultimoDeposito.getId(), ultimoDeposito.getLatitud(), ultimoDeposito.getLongitud(),
+                null, destinoLat, destinoLon));
 
         Tramo ultimoTramo = Tramo.builder()
                 .numeroOrden(numeroOrden)
@@ -231,6 +507,7 @@ public class RutaService {
                 .destinoLatitud(destinoLat)
                 .destinoLongitud(destinoLon)
                 .distanciaKm(tramoFinal.getDistanciaKm())
+                .distanciaEstimada(tramoFinal.isEstimada())
                 .estado(Tramo.EstadoTramo.ESTIMADO)
                 .build();
 
@@ -256,80 +533,113 @@ public class RutaService {
         return ruta;
     }
 
-    private List<Deposito> seleccionarDepositosParaRuta(BigDecimal latOrigen, BigDecimal lonOrigen,
-                                                         BigDecimal latDestino, BigDecimal lonDestino,
-                                                         int cantidadDepositos) {
-        List<Deposito> depositosActivos = depositoRepository.findByActivoTrue();
-
-        if (depositosActivos.isEmpty() || cantidadDepositos == 0) {
-            return Collections.emptyList();
-        }
-
-        if (cantidadDepositos == 1) {
-            // Punto medio entre origen y destino
-            BigDecimal latMedio = latOrigen.add(latDestino).divide(BigDecimal.valueOf(2), 8, RoundingMode.HALF_UP);
-            BigDecimal lonMedio = lonOrigen.add(lonDestino).divide(BigDecimal.valueOf(2), 8, RoundingMode.HALF_UP);
-
-            return depositosActivos.stream()
-                    .min(Comparator.comparingDouble(d ->
-                            calcularDistanciaHaversine(latMedio, lonMedio, d.getLatitud(), d.getLongitud())))
-                    .map(List::of)
-                    .orElse(Collections.emptyList());
+    /**
+     * Tramos (pares de puntos consecutivos) que recorre una ruta: origen -> depósitos -> destino
+     */
+    private List<Trayecto> obtenerTrayectos(BigDecimal origenLat, BigDecimal origenLon,
+                                            BigDecimal destinoLat, BigDecimal destinoLon,
+                                            List<Deposito> depositos) {
+        List<Trayecto> trayectos = new ArrayList<>();
+        Long depositoId = null;
+        BigDecimal lat = origenLat;
+        BigDecimal lon = origenLon;
+        for (Deposito deposito : depositos) {
+            trayectos.add(new Trayecto(depositoId, lat, lon, deposito.getId(), deposito.getLatitud(), deposito.getLongitud()));
+            depositoId = deposito.getId();
+            lat = deposito.getLatitud();
+            lon = deposito.getLongitud();
         }
+        trayectos.add(new Trayecto(depositoId, lat, lon, null, destinoLat, destinoLon));
+        return trayectos;
+    }
 
-        if (cantidadDepositos == 2) {
-            // Dividir el trayecto en 3 partes iguales
-            BigDecimal lat1 = latOrigen.add(latDestino.subtract(latOrigen).multiply(BigDecimal.valueOf(0.33)));
-            BigDecimal lon1 = lonOrigen.add(lonDestino.subtract(lonOrigen).multiply(BigDecimal.valueOf(0.33)));
-
-            BigDecimal lat2 = latOrigen.add(latDestino.subtract(latOrigen).multiply(BigDecimal.valueOf(0.66)));
-            BigDecimal lon2 = lonOrigen.add(lonDestino.subtract(lonOrigen).multiply(BigDecimal.valueOf(0.66)));
-
-            Deposito deposito1 = depositosActivos.stream()
-                    .min(Comparator.comparingDouble(d ->
-                            calcularDistanciaHaversine(lat1, lon1, d.getLatitud(), d.getLongitud())))
-                    .orElse(null);
+    /**
+     * Consulta OSRM en paralelo para todos los tramos, con un plazo total para el conjunto.
+     * Los tramos entre depósitos se leen de la matriz precalculada sin consultar OSRM.
+     * Los tramos que no terminen dentro del plazo, o cuya consulta fue rechazada, se estiman con Haversine.
+     */
+    private Map<Trayecto, OsrmClient.RouteResponse> calcularTrayectos(Collection<Trayecto> trayectos) {
+        Map<Trayecto, OsrmClient.RouteResponse> resultado = new HashMap<>();
+        iniciarTrayectos(trayectos, Map.of()).forEach((trayecto, futuro) -> resultado.put(trayecto, futuro.join()));
+        return resultado;
+    }
 
-            if (deposito1 == null) {
-                return Collections.emptyList();
+    /**
+     * Inicia en paralelo el cálculo de cada tramo. Cada futuro se completa siempre: con la distancia
+     * ya conocida, con la matriz de depósitos, con OSRM o, si OSRM falla, la consulta es rechazada
+     * o no responde dentro del plazo, con la estimación por Haversine. El plazo es uno solo para
+     * todo el conjunto, contado desde que se inicia.
+     */
+    private Map<Trayecto, CompletableFuture<OsrmClient.RouteResponse>> iniciarTrayectos(
+            Collection<Trayecto> trayectos, Map<Trayecto, OsrmClient.RouteResponse> conocidos) {
+        CompletableFuture<OsrmClient.RouteResponse> plazo = new CompletableFuture<OsrmClient.RouteResponse>()
+                .completeOnTimeout(null, timeoutAlternativasMs, TimeUnit.MILLISECONDS);
+        Map<Trayecto, CompletableFuture<OsrmClient.RouteResponse>> futuros = new LinkedHashMap<>();
+        for (Trayecto trayecto : trayectos) {
+            OsrmClient.RouteResponse conocido = conocidos.get(trayecto);
+            if (conocido != null) {
+                futuros.put(trayecto, CompletableFuture.completedFuture(conocido));
+                continue;
             }
-
-            List<Deposito> depositosRestantes = depositosActivos.stream()
-                    .filter(d -> !d.equals(deposito1))
-                    .toList();
-
-            Deposito deposito2 = depositosRestantes.stream()
-                    .min(Comparator.comparingDouble(d ->
-                            calcularDistanciaHaversine(lat2, lon2, d.getLatitud(), d.getLongitud())))
-                    .orElse(null);
-
-            if (deposito2 != null) {
-                return List.of(deposito1, deposito2);
+            OsrmClient.RouteResponse entreDepositos = matrizDepositos.obtener(
+                    trayecto.origenDepositoId(), trayecto.origenLat(), trayecto.origenLon(),
+                    trayecto.destinoDepositoId(), trayecto.destinoLat(), trayecto.destinoLon());
+            if (entreDepositos != null) {
+                futuros.put(trayecto, CompletableFuture.completedFuture(entreDepositos));
+                continue;
             }
+            futuros.computeIfAbsent(trayecto, t -> consultarTrayecto(t)
+                    .applyToEither(plazo, ruta -> ruta)
+                    .handle((ruta, error) -> {
+                        if (ruta != null) {
+                            return ruta;
+                        }
+                        if (error != null) {
+                            log.warn("Error al calcular tramo: {}", error.getMessage());
+                        } else {
+                            log.warn("Se superó el plazo de {} ms consultando OSRM; se estima el tramo",
+                                    timeoutAlternativasMs);
+                        }
+                        return osrmClient.calcularRutaFallback(t.origenLat(), t.origenLon(), t.destinoLat(), t.destinoLon());
+                    }));
         }
-
-        return Collections.emptyList();
+        return futuros;
     }
 
-    private double calcularDistanciaHaversine(BigDecimal lat1, BigDecimal lon1, BigDecimal lat2, BigDecimal lon2) {
-        final double R = 6371.0; // Radio de la Tierra en kilómetros
-
-        double lat1Rad = Math.toRadians(lat1.doubleValue());
-        double lat2Rad = Math.toRadians(lat2.doubleValue());
-        double deltaLatRad = Math.toRadians(lat2.subtract(lat1).doubleValue());
-        double deltaLonRad = Math.toRadians(lon2.subtract(lon1).doubleValue());
-
-        double a = Math.sin(deltaLatRad / 2) * Math.sin(deltaLatRad / 2) +
-                   Math.cos(lat1Rad) * Math.cos(lat2Rad) *
-                   Math.sin(deltaLonRad / 2) * Math.sin(deltaLonRad / 2);
-
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    /**
+     * Las llamadas a billing y clients reenvían el token de la petición original
+     * (FeignClientConfig lo lee del RequestContextHolder), que no viaja solo a otros hilos
+     */
+    private static Executor conContextoDeRequest(Executor executor) {
+        RequestAttributes atributos = RequestContextHolder.getRequestAttributes();
+        return tarea -> executor.execute(() -> {
+            RequestAttributes anteriores = RequestContextHolder.getRequestAttributes();
+            RequestContextHolder.setRequestAttributes(atributos);
+            try {
+                tarea.run();
+            } finally {
+                RequestContextHolder.setRequestAttributes(anteriores);
+            }
+        });
+    }
 
-        return R * c;
+    /**
+     * Consulta OSRM en trayectosExecutor. Con la cola llena la consulta falla de inmediato
+     * (se estima el tramo) en lugar de ejecutarse en el hilo que llama
+     */
+    private CompletableFuture<OsrmClient.RouteResponse> consultarTrayecto(Trayecto t) {
+        try {
+            return CompletableFuture.supplyAsync(
+                    () -> osrmClient.calcularRuta(t.origenLat(), t.origenLon(), t.destinoLat(), t.destinoLon()),
+                    trayectosExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(
+                    new RejectedExecutionException("Cola de consultas a OSRM llena", e));
+        }
     }
 
     @Transactional
-    public RutaDTO asignarRuta(Long solicitudId, Integer indiceRuta) {
+    public RutaDTO asignarRuta(Long solicitudId, Integer indiceRuta, String version) {
         log.info("Asignando ruta con índice {} a solicitud {}", indiceRuta, solicitudId);
 
         // Desmarcar otras rutas de la misma solicitud (si existen)
@@ -339,60 +649,26 @@ public class RutaService {
             r.setTipo(Ruta.TipoRuta.PROPUESTA);
         });
 
-        // Obtener datos de la solicitud para regenerar la ruta seleccionada
-        ClientsClient.SolicitudResponse solicitud = clientsClient.obtenerSolicitud(solicitudId);
-
-        String direccionOrigen = solicitud.origen().direccion();
-        BigDecimal latOrigen = solicitud.origen().latitud();
-        BigDecimal lonOrigen = solicitud.origen().longitud();
-
-        String direccionDestino = solicitud.destino().direccion();
-        BigDecimal latDestino = solicitud.destino().latitud();
-        BigDecimal lonDestino = solicitud.destino().longitud();
-
-        BigDecimal peso = solicitud.contenedor().pesoKg();
-        BigDecimal volumen = solicitud.contenedor().volumenM3();
+        // Reutilizar las alternativas que vio el operador (su versión) si siguen vigentes para los
+        // depósitos actuales. Sin versión, o si vencieron, se vuelve a leer la solicitud: si la versión
+        // actual no es la que vio el operador, el índice elegido puede ser otra ruta y se rechaza
+        PropuestasSolicitud propuestas = version != null ? cacheAlternativas.obtener(solicitudId, version) : null;
+        if (propuestas == null || propuestas.versionDepositos() != indiceDepositos.version()) {
+            log.debug("Alternativas de solicitud {} no disponibles en caché, se recalculan", solicitudId);
+            propuestas = prepararPropuestas(solicitudId, clientsClient.obtenerSolicitud(solicitudId));
+            if (version != null && !version.equals(propuestas.version())) {
+                throw new ConflictoException("Las rutas alternativas de la solicitud " + solicitudId
+                        + " cambiaron: vuelva a consultarlas");
+            }
+        }
 
-        // Regenerar la ruta según el índice seleccionado
-        Ruta rutaSeleccionada;
-        String descripcionRuta;
-
-        switch (indiceRuta) {
-            case 0: // Ruta directa
-                rutaSeleccionada = crearRutaDirecta(solicitudId, latOrigen, lonOrigen,
-                        latDestino, lonDestino, direccionOrigen, direccionDestino);
-                descripcionRuta = "Ruta directa sin depósitos";
-                break;
-
-            case 1: // Ruta con 1 depósito
-                List<Deposito> depositos1 = seleccionarDepositosParaRuta(latOrigen, lonOrigen,
-                        latDestino, lonDestino, 1);
-                if (depositos1.isEmpty()) {
-                    throw new RuntimeException("No se pudieron seleccionar depósitos para esta ruta");
-                }
-                rutaSeleccionada = crearRutaConDepositos(solicitudId, latOrigen, lonOrigen,
-                        latDestino, lonDestino, direccionOrigen, direccionDestino, depositos1);
-                descripcionRuta = "Ruta con 1 depósito intermedio";
-                break;
-
-            case 2: // Ruta con 2 depósitos
-                List<Deposito> depositos2 = seleccionarDepositosParaRuta(latOrigen, lonOrigen,
-                        latDestino, lonDestino, 2);
-                if (depositos2.size() < 2) {
-                    throw new RuntimeException("No se pudieron seleccionar 2 depósitos para esta ruta");
-                }
-                rutaSeleccionada = crearRutaConDepositos(solicitudId, latOrigen, lonOrigen,
-                        latDestino, lonDestino, direccionOrigen, direccionDestino, depositos2);
-                descripcionRuta = "Ruta con 2 depósitos intermedios";
-                break;
-
-            default:
-                throw new RuntimeException("Índice de ruta inválido: " + indiceRuta);
+        if (indiceRuta == null || indiceRuta < 0 || indiceRuta >= propuestas.alternativas().size()) {
+            throw new RuntimeException("Índice de ruta inválido: " + indiceRuta);
         }
 
-        // Asignar índice y descripción
-        rutaSeleccionada.setIndice(indiceRuta);
-        rutaSeleccionada.setDescripcion(descripcionRuta);
+        BigDecimal peso = propuestas.solicitud().contenedor().pesoKg();
+        BigDecimal volumen = propuestas.solicitud().contenedor().volumenM3();
+        Ruta rutaSeleccionada = crearRuta(solicitudId, propuestas, indiceRuta);
 
         // Marcar como seleccionada y asignada
         rutaSeleccionada.setSeleccionada(true);
@@ -439,6 +715,7 @@ public class RutaService {
                         .origenDireccion(tramo.getOrigenDireccion())
                         .destinoDireccion(tramo.getDestinoDireccion())
                         .distanciaKm(tramo.getDistanciaKm())
+                        .distanciaEstimada(tramo.getDistanciaEstimada())
                         .estado(tramo.getEstado())
                         .camionId(tramo.getCamion() != null ? tramo.getCamion().getId() : null)
                         .camionDominio(tramo.getCamion() != null ? tramo.getCamion().getDominio() : null)
@@ -460,6 +737,7 @@ public class RutaService {
                 .cantidadTramos(ruta.getCantidadTramos())
                 .cantidadDepositos(ruta.getCantidadDepositos())
                 .distanciaTotalKm(ruta.getDistanciaTotalKm())
+                .distanciasEstimadas(tramosDTO.stream().anyMatch(t -> Boolean.TRUE.equals(t.getDistanciaEstimada())))
                 .tiempoEstimadoTotalHoras(ruta.getTiempoEstimadoTotalHoras())
                 .costoEstimadoTotal(ruta.getCostoEstimadoTotal())
                 .seleccionada(ruta.getSeleccionada())
@@ -470,36 +748,19 @@ public class RutaService {
     private void calcularYAsignarCostoEstimado(Ruta ruta, BigDecimal pesoKg, BigDecimal volumenM3) {
         try {
             // Obtener un camión disponible para obtener costos base
-            Camion camion = camionRepository.findAll().stream()
-                    .filter(c -> c.getActivo() && c.getEstado() == Camion.EstadoCamion.DISPONIBLE)
-                    .findFirst()
-                    .orElse(null);
+            Camion camion = obtenerCamionReferencia();
 
             if (camion == null) {
                 log.warn("No hay camiones disponibles para calcular costo estimado");
                 return;
             }
 
-            // Construir request para BillingClient
-            List<BillingClient.TramoRequest> tramosRequest = ruta.getTramos().stream()
-                    .map(tramo -> new BillingClient.TramoRequest(
-                            tramo.getId(),
-                            tramo.getDistanciaKm(),
-                            camion.getCostoBasePorKm(),
-                            camion.getConsumoCombustibleKmLitro()
-                    ))
-                    .collect(Collectors.toList());
-
-            // Estimar días de estadía
-            // Mínimo 1 día (carga/descarga) + 1 día adicional por cada depósito
-            Integer diasEstadia = 1 + ruta.getCantidadDepositos();
-
             BillingClient.CalcularCostoRequest request = new BillingClient.CalcularCostoRequest(
                     ruta.getSolicitudId(),
-                    tramosRequest,
+                    construirTramosRequest(ruta, camion),
                     pesoKg,
                     volumenM3,
-                    diasEstadia,
+                    estimarDiasEstadia(ruta),
                     null, // horasEstadiaTotales para cálculo estimado
                     null  // costosAdicionales para cálculo estimado
             );
@@ -517,4 +778,87 @@ public class RutaService {
             throw new RuntimeException("No se pudo calcular el costo estimado de la ruta " + ruta.getId() + ": " + e.getMessage(), e);
         }
     }
+
+    /**
+     * Calcula con una sola llamada a billing-service el costo estimado de todas las alternativas,
+     * sin persistirlo (solo se persiste el de la ruta que se asigne)
+     */
+    private void calcularYAsignarCostosEstimados(Long solicitudId, List<Ruta> rutas,
+                                                 BigDecimal pesoKg, BigDecimal volumenM3) {
+        try {
+            Camion camion = obtenerCamionReferencia();
+
+            if (camion == null) {
+                log.warn("No hay camiones disponibles para calcular costo estimado");
+                return;
+            }
+
+            List<BillingClient.AlternativaCostoRequest> alternativas = rutas.stream()
+                    .map(ruta -> new BillingClient.AlternativaCostoRequest(
+                            construirTramosRequest(ruta, camion),
+                            estimarDiasEstadia(ruta)))
+                    .collect(Collectors.toList());
+
+            BillingClient.CalcularCostoLoteRequest request = new BillingClient.CalcularCostoLoteRequest(
+                    solicitudId, alternativas, pesoKg, volumenM3, false);
+
+            List<BillingClient.CostoEstimadoResponse> costos = billingClient.calcularCostosEstimadosLote(request);
+
+            for (int i = 0; i < rutas.size(); i++) {
+                rutas.get(i).setCostoEstimadoTotal(costos.get(i).costoTotal());
+            }
+
+            log.info("Costo estimado calculado para {} alternativas de solicitud {}", rutas.size(), solicitudId);
+        } catch (Exception e) {
+            log.error("Error al calcular costos estimados para solicitud {}: {}", solicitudId, e.getMessage(), e);
+            throw new RuntimeException("No se pudo calcular el costo estimado de las alternativas de la solicitud "
+                    + solicitudId + ": " + e.getMessage(), e);
+        }
+    }
+
+    private Camion obtenerCamionReferencia() {
+        return camionRepository.findAll().stream()
+                .filter(c -> c.getActivo() && c.getEstado() == Camion.EstadoCamion.DISPONIBLE)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private List<BillingClient.TramoRequest> construirTramosRequest(Ruta ruta, Camion camion) {
+        return ruta.getTramos().stream()
+                .map(tramo -> new BillingClient.TramoRequest(
+                        tramo.getId(),
+                        tramo.getDistanciaKm(),
+                        camion.getCostoBasePorKm(),
+                        camion.getConsumoCombustibleKmLitro()
+                ))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Mínimo 1 día (carga/descarga) + 1 día adicional por cada depósito
+     */
+    private Integer estimarDiasEstadia(Ruta ruta) {
+        return 1 + ruta.getCantidadDepositos();
+    }
+
+    /**
+     * Tramo a consultar en OSRM, identificado por sus coordenadas de origen y destino y, en los
+     * extremos que son depósitos, por su id (null en el origen y el destino de la solicitud)
+     */
+    private record Trayecto(Long origenDepositoId, BigDecimal origenLat, BigDecimal origenLon,
+                            Long destinoDepositoId, BigDecimal destinoLat, BigDecimal destinoLon) {}
+
+    /**
+     * Alternativas generadas para una solicitud junto con los datos necesarios para
+     * construir cualquiera de ellas sin consultar otros servicios
+     */
+    record PropuestasSolicitud(String version, long versionDepositos,
+                               ClientsClient.SolicitudResponse solicitud,
+                               List<List<Deposito>> alternativas,
+                               Map<Trayecto, OsrmClient.RouteResponse> distancias) {
+
+        PropuestasSolicitud conDistancias(Map<Trayecto, OsrmClient.RouteResponse> distancias) {
+            return new PropuestasSolicitud(version, versionDepositos, solicitud, alternativas, Map.copyOf(distancias));
+        }
+    }
 }
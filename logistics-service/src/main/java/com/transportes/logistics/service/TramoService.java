@@ -1,12 +1,11 @@
 package com.transportes.logistics.service;
 
-import com.transportes.logistics.client.BillingClient;
-import com.transportes.logistics.client.ClientsClient;
 import com.transportes.logistics.dto.TramoDTO;
-import com.transportes.logistics.entity.Camion;
+import com.transportes.logistics.entity.EventoOutbox;
 import com.transportes.logistics.entity.Ruta;
 import com.transportes.logistics.entity.Tramo;
 import com.transportes.logistics.repository.CamionRepository;
+import com.transportes.logistics.repository.EventoOutboxRepository;
 import com.transportes.logistics.repository.RutaRepository;
 import com.transportes.logistics.repository.TramoRepository;
 import lombok.RequiredArgsConstructor;
@@ -25,9 +24,8 @@ public class TramoService {
 
     private final TramoRepository tramoRepository;
     private final CamionRepository camionRepository;
+    private final EventoOutboxRepository eventoOutboxRepository;
     private final RutaRepository rutaRepository;
-    private final ClientsClient clientsClient;
-    private final BillingClient billingClient;
 
     @Transactional(readOnly = true)
     public List<TramoDTO> obtenerTramosAsignadosATransportista(String keycloakUserId) {
@@ -40,25 +38,16 @@ public class TramoService {
 
     @Transactional
     public TramoDTO iniciarTramo(Long tramoId, String keycloakUserId) {
-        Tramo tramo = tramoRepository.findById(tramoId)
-                .orElseThrow(() -> new RuntimeException("Tramo no encontrado"));
-
-        // Validar que el tramo esté asignado
-        if (tramo.getEstado() != Tramo.EstadoTramo.ASIGNADO) {
-            throw new RuntimeException("El tramo no está en estado ASIGNADO");
+        // Marcar inicio: solo si está ASIGNADO y el camión es del transportista
+        Tramo.TransicionTramo transicion = Tramo.TransicionTramo.INICIAR;
+        int actualizados = tramoRepository.iniciar(tramoId, transicion.desde(), transicion.hacia(),
+                keycloakUserId, LocalDateTime.now());
+        if (actualizados == 0) {
+            throw rechazarTransicion(tramoId, transicion, "iniciar");
         }
 
-        // Validar que el transportista sea el asignado
-        if (tramo.getCamion() == null || tramo.getCamion().getTransportista() == null ||
-            !tramo.getCamion().getTransportista().getKeycloakUserId().equals(keycloakUserId)) {
-            throw new RuntimeException("No tiene permisos para iniciar este tramo");
-        }
-
-        // Marcar inicio
-        tramo.setEstado(Tramo.EstadoTramo.INICIADO);
-        tramo.setFechaHoraInicioReal(LocalDateTime.now());
-
-        Tramo tramoActualizado = tramoRepository.save(tramo);
+        Tramo tramoActualizado = tramoRepository.findConCamionYRutaById(tramoId)
+                .orElseThrow(() -> new RuntimeException("Tramo no encontrado"));
         log.info("Tramo {} iniciado por transportista", tramoId);
 
         // Verificar si es el primer tramo de la ruta y actualizar estado de solicitud
@@ -69,43 +58,44 @@ public class TramoService {
 
     @Transactional
     public TramoDTO finalizarTramo(Long tramoId, String keycloakUserId) {
-        Tramo tramo = tramoRepository.findById(tramoId)
-                .orElseThrow(() -> new RuntimeException("Tramo no encontrado"));
-
-        // Validar que el tramo esté iniciado
-        if (tramo.getEstado() != Tramo.EstadoTramo.INICIADO) {
-            throw new RuntimeException("El tramo no está en estado INICIADO");
+        // Marcar fin: solo si está INICIADO y el camión es del transportista
+        Tramo.TransicionTramo transicion = Tramo.TransicionTramo.FINALIZAR;
+        int actualizados = tramoRepository.finalizar(tramoId, transicion.desde(), transicion.hacia(),
+                keycloakUserId, LocalDateTime.now());
+        if (actualizados == 0) {
+            throw rechazarTransicion(tramoId, transicion, "finalizar");
         }
 
-        // Validar que el transportista sea el asignado
-        if (tramo.getCamion() == null || tramo.getCamion().getTransportista() == null ||
-            !tramo.getCamion().getTransportista().getKeycloakUserId().equals(keycloakUserId)) {
-            throw new RuntimeException("No tiene permisos para finalizar este tramo");
-        }
-
-        // Marcar fin
-        tramo.setEstado(Tramo.EstadoTramo.FINALIZADO);
-        tramo.setFechaHoraFinReal(LocalDateTime.now());
+        Tramo tramo = tramoRepository.findConCamionYRutaById(tramoId)
+                .orElseThrow(() -> new RuntimeException("Tramo no encontrado"));
 
         // Liberar camión si no hay más tramos pendientes
-        Camion camion = tramo.getCamion();
-        List<Tramo> tramosRestantes = tramoRepository.findByCamionId(camion.getId()).stream()
-                .filter(t -> t.getEstado() == Tramo.EstadoTramo.ASIGNADO || t.getEstado() == Tramo.EstadoTramo.INICIADO)
-                .collect(Collectors.toList());
-
-        if (tramosRestantes.isEmpty()) {
-            camion.setEstado(Camion.EstadoCamion.DISPONIBLE);
-            camionRepository.save(camion);
-            log.info("Camión {} liberado", camion.getId());
+        Long camionId = tramo.getCamion().getId();
+        if (camionRepository.liberarSiNoTieneTramosActivos(camionId) > 0) {
+            log.info("Camión {} liberado", camionId);
         }
 
-        Tramo tramoActualizado = tramoRepository.save(tramo);
         log.info("Tramo {} finalizado por transportista", tramoId);
 
         // Verificar si es el último tramo de la ruta
-        verificarYFinalizarRuta(tramoActualizado);
+        verificarYFinalizarRuta(tramo);
 
-        return convertirATramoDTO(tramoActualizado);
+        return convertirATramoDTO(tramo);
+    }
+
+    /**
+     * La transición no se aplicó: se lee el tramo solo para informar el motivo
+     * (no existe, está en otro estado o el camión no es del transportista)
+     */
+    private RuntimeException rechazarTransicion(Long tramoId, Tramo.TransicionTramo transicion, String accion) {
+        Tramo tramo = tramoRepository.findById(tramoId).orElse(null);
+        if (tramo == null) {
+            return new RuntimeException("Tramo no encontrado");
+        }
+        if (tramo.getEstado() != transicion.desde()) {
+            return new RuntimeException("El tramo no está en estado " + transicion.desde());
+        }
+        return new RuntimeException("No tiene permisos para " + accion + " este tramo");
     }
 
     @Transactional(readOnly = true)
@@ -123,6 +113,7 @@ public class TramoService {
                 .origenDireccion(tramo.getOrigenDireccion())
                 .destinoDireccion(tramo.getDestinoDireccion())
                 .distanciaKm(tramo.getDistanciaKm())
+                .distanciaEstimada(tramo.getDistanciaEstimada())
                 .estado(tramo.getEstado())
                 .camionId(tramo.getCamion() != null ? tramo.getCamion().getId() : null)
                 .camionDominio(tramo.getCamion() != null ? tramo.getCamion().getDominio() : null)
@@ -135,84 +126,48 @@ public class TramoService {
                 .build();
     }
 
+    /**
+     * Si es el primer tramo, registra el pase de la solicitud a EN_TRANSITO. Lo entrega a
+     * clients-service DespachadorEventos, después de confirmar la transacción.
+     */
     private void verificarYActualizarEstadoEnTransito(Tramo tramoIniciado) {
-        try {
-            Ruta ruta = tramoIniciado.getRuta();
-
-            // Verificar si es el primer tramo en iniciarse (numeroOrden = 1)
-            if (tramoIniciado.getNumeroOrden() == 1) {
-                log.info("Primer tramo de la ruta {} iniciado. Actualizando solicitud a EN_TRANSITO...", ruta.getId());
-
-                // Actualizar estado de la solicitud a EN_TRANSITO
-                ClientsClient.ActualizarEstadoRequest estadoRequest =
-                        new ClientsClient.ActualizarEstadoRequest("EN_TRANSITO", "Transporte iniciado");
-
-                clientsClient.actualizarEstado(ruta.getSolicitudId(), estadoRequest);
-
-                log.info("Solicitud {} actualizada a estado EN_TRANSITO", ruta.getSolicitudId());
-            }
-        } catch (Exception e) {
-            log.error("Error al actualizar estado de solicitud a EN_TRANSITO: {}", e.getMessage(), e);
+        Ruta ruta = tramoIniciado.getRuta();
+
+        // Verificar si es el primer tramo en iniciarse (numeroOrden = 1)
+        if (tramoIniciado.getNumeroOrden() == 1) {
+            log.info("Primer tramo de la ruta {} iniciado. Solicitud {} pasa a EN_TRANSITO", ruta.getId(), ruta.getSolicitudId());
+
+            eventoOutboxRepository.save(EventoOutbox.builder()
+                    .tipo(EventoOutbox.TipoEvento.ESTADO_SOLICITUD)
+                    .solicitudId(ruta.getSolicitudId())
+                    .rutaId(ruta.getId())
+                    .estadoSolicitud("EN_TRANSITO")
+                    .observacion("Transporte iniciado")
+                    .build());
         }
     }
 
+    /**
+     * Si todos los tramos de la ruta terminaron, registra el cálculo del costo real. Lo entrega
+     * DespachadorEventos, que al obtenerlo pasa la solicitud a ENTREGADA.
+     * Se bloquea la ruta antes de contar: si dos tramos terminan a la vez, el segundo espera a
+     * que el primero confirme y ve su tramo finalizado, así el evento se registra una sola vez.
+     */
     private void verificarYFinalizarRuta(Tramo tramoFinalizado) {
-        Ruta ruta = tramoFinalizado.getRuta();
-        try {
-
-            // Verificar si todos los tramos de la ruta están finalizados
-            boolean todosFinalizados = ruta.getTramos().stream()
-                    .allMatch(t -> t.getEstado() == Tramo.EstadoTramo.FINALIZADO);
-
-            if (todosFinalizados) {
-                log.info("Todos los tramos de la ruta {} finalizados. Procesando finalización...", ruta.getId());
-
-                // Obtener datos de la solicitud
-                ClientsClient.SolicitudResponse solicitud = clientsClient.obtenerSolicitud(ruta.getSolicitudId());
-
-                // Calcular costo real
-                List<BillingClient.TramoRequest> tramosRequest = ruta.getTramos().stream()
-                        .map(tramo -> {
-                            Camion camion = tramo.getCamion();
-                            return new BillingClient.TramoRequest(
-                                    tramo.getId(),
-                                    tramo.getDistanciaKm(),
-                                    camion.getCostoBasePorKm(),
-                                    camion.getConsumoCombustibleKmLitro()
-                            );
-                        })
-                        .collect(Collectors.toList());
-
-                BillingClient.CalcularCostoRequest costoRequest = new BillingClient.CalcularCostoRequest(
-                        ruta.getSolicitudId(),
-                        tramosRequest,
-                        solicitud.contenedor().pesoKg(),
-                        solicitud.contenedor().volumenM3(),
-                        ruta.getCantidadDepositos(), // días de estadía
-                        null, // horasEstadiaTotales - se calculará en base a fechas reales
-                        null  // costosAdicionales
-                );
-
-                BillingClient.CostoEstimadoResponse costoReal = billingClient.calcularCostoReal(costoRequest);
-
-                // Actualizar costo real en la ruta
-                ruta.setCostoRealTotal(costoReal.costoTotal());
-                rutaRepository.save(ruta);
-
-                log.info("Costo real calculado para ruta {}: {}", ruta.getId(), costoReal.costoTotal());
-
-                // Actualizar estado de la solicitud a ENTREGADA
-                ClientsClient.ActualizarEstadoRequest estadoRequest =
-                        new ClientsClient.ActualizarEstadoRequest("ENTREGADA", "Entrega completada exitosamente");
-
-                clientsClient.actualizarEstado(ruta.getSolicitudId(), estadoRequest);
-
-                log.info("Solicitud {} actualizada a estado ENTREGADA", ruta.getSolicitudId());
-            }
-        } catch (Exception e) {
-            log.error("Error al verificar y finalizar ruta: {}", e.getMessage(), e);
-            // Relanzar la excepción para que el flujo principal la maneje
-            throw new RuntimeException("No se pudo finalizar la ruta " + ruta.getId() + " y calcular el costo real: " + e.getMessage(), e);
+        Ruta ruta = rutaRepository.findParaActualizarById(tramoFinalizado.getRuta().getId())
+                .orElseThrow(() -> new RuntimeException("Ruta no encontrada"));
+
+        // Verificar si todos los tramos de la ruta están finalizados (consulta, no la colección en memoria)
+        boolean todosFinalizados = !tramoRepository.existsByRutaIdAndEstadoNot(ruta.getId(), Tramo.EstadoTramo.FINALIZADO);
+
+        if (todosFinalizados) {
+            log.info("Todos los tramos de la ruta {} finalizados. Se registra el cálculo del costo real", ruta.getId());
+
+            eventoOutboxRepository.save(EventoOutbox.builder()
+                    .tipo(EventoOutbox.TipoEvento.COSTO_REAL_RUTA)
+                    .solicitudId(ruta.getSolicitudId())
+                    .rutaId(ruta.getId())
+                    .build());
         }
     }
 }
@@ -0,0 +1,14 @@
+-- Agregar columna distancia_estimada a la tabla tramo
+-- Este script debe ejecutarse manualmente en la base de datos logistics_db
+
+ALTER TABLE tramo
+ADD COLUMN IF NOT EXISTS distancia_estimada BOOLEAN DEFAULT FALSE;
+
+-- Si Hibernate (ddl-auto: update) ya creó la columna, no tiene valor por defecto
+ALTER TABLE tramo
+ALTER COLUMN distancia_estimada SET DEFAULT FALSE;
+
+-- Los tramos anteriores se calcularon con OSRM o sin marcar la estimación
+UPDATE tramo SET distancia_estimada = FALSE WHERE distancia_estimada IS NULL;
+
+COMMENT ON COLUMN tramo.distancia_estimada IS 'true si la distancia se estimó con Haversine porque OSRM no estuvo disponible';
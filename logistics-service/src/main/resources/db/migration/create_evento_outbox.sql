@@ -0,0 +1,40 @@
+-- Crear tabla evento_outbox (efectos pendientes sobre clients-service y billing-service)
+-- Este script debe ejecutarse manualmente en la base de datos logistics_db
+
+CREATE TABLE IF NOT EXISTS evento_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    tipo VARCHAR(50) NOT NULL,
+    solicitud_id BIGINT NOT NULL,
+    ruta_id BIGINT,
+    estado_solicitud VARCHAR(30),
+    observacion VARCHAR(255),
+    estado VARCHAR(20) NOT NULL DEFAULT 'PENDIENTE',
+    intentos INTEGER NOT NULL DEFAULT 0,
+    fecha_creacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    proximo_intento TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    fecha_procesado TIMESTAMP,
+    ultimo_error TEXT
+);
+
+-- Si Hibernate (ddl-auto: update) ya creó la tabla, le faltan los valores por defecto y los checks
+ALTER TABLE evento_outbox ALTER COLUMN estado SET DEFAULT 'PENDIENTE';
+ALTER TABLE evento_outbox ALTER COLUMN intentos SET DEFAULT 0;
+ALTER TABLE evento_outbox ALTER COLUMN fecha_creacion SET DEFAULT CURRENT_TIMESTAMP;
+ALTER TABLE evento_outbox ALTER COLUMN proximo_intento SET DEFAULT CURRENT_TIMESTAMP;
+
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'chk_evento_outbox_tipo') THEN
+        ALTER TABLE evento_outbox
+        ADD CONSTRAINT chk_evento_outbox_tipo CHECK (tipo IN ('ESTADO_SOLICITUD', 'COSTO_REAL_RUTA'));
+    END IF;
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'chk_evento_outbox_estado') THEN
+        ALTER TABLE evento_outbox
+        ADD CONSTRAINT chk_evento_outbox_estado CHECK (estado IN ('PENDIENTE', 'ENVIADO', 'DESCARTADO'));
+    END IF;
+END $$;
+
+-- Solo las filas pendientes, por solicitud y en orden, como las lee DespachadorEventos
+CREATE INDEX IF NOT EXISTS idx_evento_outbox_pendientes ON evento_outbox(solicitud_id, id) WHERE estado = 'PENDIENTE';
+
+COMMENT ON TABLE evento_outbox IS 'Efectos escritos en la misma transacción que el cambio del tramo y entregados por DespachadorEventos';
@@ -0,0 +1,20 @@
+-- Crear tabla tramo_distancia_cache (distancias OSRM persistidas entre reinicios)
+-- Este script debe ejecutarse manualmente en la base de datos logistics_db
+
+CREATE TABLE IF NOT EXISTS tramo_distancia_cache (
+    id BIGSERIAL PRIMARY KEY,
+    origen_lat BIGINT NOT NULL,
+    origen_lon BIGINT NOT NULL,
+    destino_lat BIGINT NOT NULL,
+    destino_lon BIGINT NOT NULL,
+    precision_decimales INTEGER NOT NULL,
+    distancia_metros DOUBLE PRECISION NOT NULL,
+    duracion_segundos INTEGER NOT NULL,
+    fecha_calculo TIMESTAMP NOT NULL,
+    CONSTRAINT uk_tramo_distancia_cache_puntos
+        UNIQUE (origen_lat, origen_lon, destino_lat, destino_lon, precision_decimales)
+);
+
+CREATE INDEX IF NOT EXISTS idx_tramo_distancia_cache_fecha ON tramo_distancia_cache(fecha_calculo);
+
+COMMENT ON TABLE tramo_distancia_cache IS 'Distancias por ruta calculadas por OSRM, con coordenadas redondeadas (grados x 10^precision_decimales)';
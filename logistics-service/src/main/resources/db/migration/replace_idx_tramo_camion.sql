@@ -0,0 +1,7 @@
+-- Reemplazar idx_tramo_camion por un índice compuesto (camion_id, estado)
+-- Este script debe ejecutarse manualmente en la base de datos logistics_db
+-- El índice nuevo se crea antes de borrar el anterior para no dejar tramo sin índice por camion_id
+
+CREATE INDEX IF NOT EXISTS idx_tramo_camion_estado ON tramo(camion_id, estado);
+
+DROP INDEX IF EXISTS idx_tramo_camion;